@@ -1,17 +1,27 @@
 package in.adarshr.targetcloner;
 
 import in.adarshr.targetcloner.bo.RepoData;
+import in.adarshr.targetcloner.bo.RepoFetchResult;
+import in.adarshr.targetcloner.bo.TargetLoadResult;
+import in.adarshr.targetcloner.build.BuildManifest;
+import in.adarshr.targetcloner.build.ResolutionIndex;
 import in.adarshr.targetcloner.build.TargetBuilder;
+import in.adarshr.targetcloner.build.TargetPipeline;
+import in.adarshr.targetcloner.build.UnitCatalog;
+import in.adarshr.targetcloner.constants.TargetClonerConstants;
 import in.adarshr.targetcloner.data.Target;
 import in.adarshr.targetcloner.data.TargetDetails;
 import in.adarshr.targetcloner.dto.TargetData;
 import in.adarshr.targetcloner.helper.*;
+import in.adarshr.targetcloner.source.RepositorySourceFactory;
+import in.adarshr.targetcloner.template.TargetTemplates;
 import in.adarshr.targetcloner.utils.TargetClonerUtil;
 import org.apache.commons.collections4.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -39,10 +49,19 @@ public class TargetCloner {
         //Proceed only when we have the Input XML data
         if (targetDetails != null) {
             LOG.info("*** Step {} *** TargetDetails input successfully parsed ***", stepCount());
-            //Read the input target files
+            //Parse the formats of the input XML, so a wrong placeholder is reported before anything is downloaded
             TargetData targetData = new TargetData();
-            List<File> targetFilesToCopy = TargetClonerUtil.getTargetFilesToCopy("input/targets/");
-            List<Target> targets = TargetClonerUtil.unmarshalTargetFiles(targetFilesToCopy);
+            try {
+                targetData.setTemplates(TargetTemplates.compile(targetDetails));
+            } catch (IllegalArgumentException e) {
+                LOG.error("!!! Invalid format in input XML file: {}. Exiting the application. !!!", e.getMessage());
+                return;
+            }
+            //Read the input target files
+            TargetLoadResult targetLoadResult = TargetClonerUtil.loadTargetFiles("input/targets/");
+            targetLoadResult.getFailures().forEach(failure ->
+                    LOG.error("!!! Failed to parse target file {}: {} !!!", failure.getFile(), failure.getError()));
+            List<Target> targets = targetLoadResult.getTargets();
             if (CollectionUtils.isNotEmpty(targets)) {
                 LOG.info("*** Step {} *** Input target files successfully parsed ***", stepCount());
                 //Set the data to TargetData for target file generation
@@ -52,11 +71,16 @@ public class TargetCloner {
                 targetData.setInputTargets(targets);
 
                 //Delivery report data
-                targetData.setDeliveryReportMap(ReportHelper.getDeliveryReport(targetData));
+                HttpTransport httpTransport = new HttpTransport(argumentParser.getHedgeDelay());
+                RepositoryCache repositoryCache = TargetClonerUtil.createRepositoryCache(argumentParser.getCacheDirectory(), targetDetails, httpTransport);
+                targetData.setDeliveryReportMap(ReportHelper.getDeliveryReport(targetData, httpTransport, repositoryCache));
                 LOG.info("*** Step {} *** Delivery report data obtained ***", stepCount());
 
-                //Get repository jar urls
-                Set<RepoData> repoDataJarUrls = ReportHelper.getSelectedReposForJarQueryUrls(targetData);
+                //Get repository jar urls, correlating again only the locations the report changes since the last run affect
+                Path outputDirectory = Paths.get(System.getProperty(TargetClonerConstants.USER_DIRECTORY), TargetClonerConstants.OUTPUT_DIRECTORY);
+                DeliveryReportSnapshot snapshot = argumentParser.isForce() ? DeliveryReportSnapshot.create(outputDirectory) : DeliveryReportSnapshot.load(outputDirectory);
+                Set<RepoData> repoDataJarUrls = ReportHelper.getSelectedReposForJarQueryUrls(targetData, snapshot);
+                snapshot.save();
                 if (repoDataJarUrls.isEmpty()) {
                     LOG.error("*** Error *** No jar urls found. Exiting the application. ***");
                     return;
@@ -65,31 +89,35 @@ public class TargetCloner {
                     targetData.setRepoDataUrlSet(repoDataJarUrls);
                 }
 
-                //Download jar and get input stream
-                Map<RepoData, String> repoStringMap = ConnectionHelper.downloadAllJars(repoDataJarUrls);
-                LOG.info("*** Step {} ***  Repo Jar download completed. ***", stepCount());
-
-                // Parse the XML from the jar file
-                targetData.setRepoUnitsMap(XMLHelper.parseAllXml(repoStringMap));
-                LOG.info("*** Step {} ***  Repo Jar Urls parsing completed. ***", stepCount());
-
-                if (targetData.getRepoUnitsMap().isEmpty()) {
-                    LOG.error("!!! Error. No XML files found in the jar. Exiting the application. !!!");
-                    return;
-                }
-
                 //Set version. Use to create target file name
                 targetData.setVersion(targetDetails.getVersion());
-                targetData.setTargetSaveFormat(targetDetails.getTargetSaveFormat());
-
-                // Create target files
-                TargetBuilder targetBuilder = new TargetBuilder();
-                Map<String, Target> stringTargetMap = targetBuilder.buildTargets(targetData);
-                LOG.info("*** Step {} *** Target file creation completed. ***", stepCount());
 
-                //Write the target files to disk
-                XMLHelper.saveFilesToDisk(stringTargetMap);
-                LOG.info("*** Step {} ***  Target files are written to disk. ***", stepCount());
+                //Build manifest of the last run, to skip the targets whose inputs did not change. The comparison
+                //needs all targets, so nothing is skipped when comparing
+                boolean isFullBuild = argumentParser.isForce() || argumentParser.isCompare();
+                BuildManifest manifest = isFullBuild ? BuildManifest.create(outputDirectory) : BuildManifest.load(outputDirectory);
+
+                //Download jar and parse the XML from the jar file, then create the target files
+                Map<String, Target> stringTargetMap;
+                RepoUnitIndex unitIndex = TargetClonerUtil.createRepoUnitIndex(repositoryCache);
+                try (DownloadScheduler downloadScheduler = new DownloadScheduler(argumentParser.getMaxDownloads(), argumentParser.getMaxDownloadsPerHost())) {
+                    RepositorySourceFactory sourceFactory = new RepositorySourceFactory(TargetClonerUtil.getMirrors(targetDetails),
+                            repositoryCache, httpTransport, downloadScheduler);
+                    if (argumentParser.isPipeline()) {
+                        RepositoryResolver repositoryResolver = new RepositoryResolver(sourceFactory, downloadScheduler, unitIndex);
+                        stringTargetMap = new TargetPipeline(repositoryResolver, downloadScheduler, manifest)
+                                .run(targetData, ReportHelper.getWantedUnitIds(targetData));
+                        LOG.info("*** Step {} *** Target files are created and written to disk as their repos were parsed. ***", stepCount());
+                    } else {
+                        stringTargetMap = runStaged(targetData, sourceFactory, downloadScheduler, unitIndex, manifest);
+                    }
+                }
+                if (stringTargetMap == null) {
+                    return;
+                }
+                manifest.save();
+                LOG.info("*** Step {} *** {} targets rebuilt, {} up to date. ***", stepCount(),
+                        manifest.getRebuiltTargets().size(), manifest.getUpToDateTargets().size());
 
                 if (argumentParser.isCompare()) {
                     //Compare the target files
@@ -105,6 +133,44 @@ public class TargetCloner {
         }
     }
 
+    /**
+     * Run the stages one after the other: download and parse all repos, then create all target files, then
+     * write them all to disk
+     *
+     * @param targetData        TargetData
+     * @param sourceFactory     the factory of the repository sources
+     * @param downloadScheduler the download scheduler
+     * @param unitIndex         the index of the parsed metadata, may be null
+     * @param manifest          the manifest of the last run
+     * @return Map of file name and target, of the targets that were built. Null when no repo could be parsed
+     */
+    private static Map<String, Target> runStaged(TargetData targetData, RepositorySourceFactory sourceFactory,
+                                                 DownloadScheduler downloadScheduler, RepoUnitIndex unitIndex, BuildManifest manifest) {
+        Map<RepoData, RepoFetchResult> fetchResults = ConnectionHelper.downloadAndParseAll(targetData.getRepoDataUrlSet(),
+                ReportHelper.getWantedUnitIds(targetData), sourceFactory, downloadScheduler, unitIndex);
+        targetData.setRepoUnitsMap(ConnectionHelper.getRepoUnitsMap(fetchResults));
+        LOG.info("*** Step {} ***  Repo Jar download and parsing completed. ***", stepCount());
+
+        if (targetData.getRepoUnitsMap().isEmpty()) {
+            LOG.error("!!! Error. No XML files found in the jar. Exiting the application. !!!");
+            return null;
+        }
+
+        //Index the parsed data for the target builder
+        targetData.setResolutionIndex(new ResolutionIndex(targetData));
+        targetData.setUnitCatalog(new UnitCatalog(targetData.getRepoUnitsMap()));
+
+        // Create target files
+        TargetBuilder targetBuilder = new TargetBuilder();
+        Map<String, Target> stringTargetMap = targetBuilder.buildTargets(targetData, manifest);
+        LOG.info("*** Step {} *** Target file creation completed. ***", stepCount());
+
+        //Write the target files to disk
+        manifest.removeFailed(XMLHelper.saveFilesToDisk(stringTargetMap));
+        LOG.info("*** Step {} ***  Target files are written to disk. ***", stepCount());
+        return stringTargetMap;
+    }
+
     /**
      * Method to count the steps
      *
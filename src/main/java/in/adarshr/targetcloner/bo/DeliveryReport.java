@@ -4,7 +4,6 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -15,8 +14,6 @@ import java.util.Objects;
 @NoArgsConstructor
 public class DeliveryReport {
 
-    private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(DeliveryReport.class);
-
     private String status;
     private String group;
     private String artifact;
@@ -25,23 +22,6 @@ public class DeliveryReport {
     private String extension;
     private boolean externalEntry;
 
-    /**
-     * Create a report object from a delimited string
-     *
-     * @param currentLine the current line
-     * @param delimiter   the delimiter
-     * @return the report object
-     */
-    public static DeliveryReport fromDelimitedString(String currentLine, String delimiter) {
-        String[] parts = currentLine.split(delimiter);
-        parts = Arrays.stream(parts).map(String::trim).toArray(String[]::new);
-        if (parts.length < 4) {
-            LOG.error("!!! Insufficient fields to create a Report object !!!");
-            throw new IllegalArgumentException("!!! Insufficient fields to create a Report object !!!");
-        }
-        return new DeliveryReport(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5], false);
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,17 @@
+package in.adarshr.targetcloner.bo;
+
+/**
+ * The group, artifact and version of a delivery report entry, used as the key of the delivery report map.
+ * Two keys are equal only when all three fields are equal, so "ab" + "c" and "a" + "bc" are different keys.
+ *
+ * @param group    the group
+ * @param artifact the artifact
+ * @param version  the version
+ */
+public record Gav(String group, String artifact, String version) {
+
+    @Override
+    public String toString() {
+        return group + ":" + artifact + ":" + version;
+    }
+}
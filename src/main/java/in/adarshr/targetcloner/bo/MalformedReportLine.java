@@ -0,0 +1,15 @@
+package in.adarshr.targetcloner.bo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * This class is used to store a line of the delivery report that could not be parsed
+ */
+@Data
+@AllArgsConstructor
+public class MalformedReportLine {
+    private int lineNumber;
+    private String line;
+    private String error;
+}
@@ -1,5 +1,6 @@
 package in.adarshr.targetcloner.bo;
 
+import in.adarshr.targetcloner.data.UnitSelection;
 import lombok.Data;
 
 import java.util.List;
@@ -15,6 +16,7 @@ public class RepoData {
     private String location;
     private String version;
     private List<RepoUnit> repoUnits;
+    private UnitSelection unitSelection;
 
     public String toString() {
         return "Repo: " + group + ":" + artifact;
@@ -0,0 +1,44 @@
+package in.adarshr.targetcloner.bo;
+
+import in.adarshr.targetcloner.constants.FetchStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is used to store the result of fetching and parsing the metadata of a repository
+ */
+@Data
+@AllArgsConstructor
+public class RepoFetchResult {
+    private FetchStatus status;
+    private int retries;
+    private List<RepoUnit> repoUnits;
+    private int skippedUnits;
+    private String error;
+
+    /**
+     * Create a result for a repository that was fetched
+     *
+     * @param repoUnits    the units of the repository that are used by the input targets
+     * @param retries      the number of requests that had to be retried
+     * @param skippedUnits the number of units in the metadata that were not used and not created
+     * @return the result
+     */
+    public static RepoFetchResult success(List<RepoUnit> repoUnits, int retries, int skippedUnits) {
+        FetchStatus status = retries > 0 ? FetchStatus.RETRIED : FetchStatus.SUCCESS;
+        return new RepoFetchResult(status, retries, repoUnits, skippedUnits, null);
+    }
+
+    /**
+     * Create a result for a repository that could not be fetched
+     *
+     * @param error the reason
+     * @return the result
+     */
+    public static RepoFetchResult failed(String error) {
+        return new RepoFetchResult(FetchStatus.FAILED, 0, new ArrayList<>(), 0, error);
+    }
+}
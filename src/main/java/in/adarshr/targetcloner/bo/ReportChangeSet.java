@@ -0,0 +1,42 @@
+package in.adarshr.targetcloner.bo;
+
+import java.util.Set;
+
+/**
+ * The delivery report entries that differ from the last run
+ *
+ * @param added   the entries that are new
+ * @param removed the entries that are gone
+ * @param changed the entries whose status, classifier, extension or origin is different
+ */
+public record ReportChangeSet(Set<Gav> added, Set<Gav> removed, Set<Gav> changed) {
+
+    /**
+     * Check if an entry of the last run is removed or changed
+     *
+     * @param gav the entry
+     * @return boolean
+     */
+    public boolean isRemovedOrChanged(Gav gav) {
+        return removed.contains(gav) || changed.contains(gav);
+    }
+
+    /**
+     * Check if an entry of this run is added or changed
+     *
+     * @param gav the entry
+     * @return boolean
+     */
+    public boolean isAddedOrChanged(Gav gav) {
+        return added.contains(gav) || changed.contains(gav);
+    }
+
+    /**
+     * Get the number of entries that differ
+     *
+     * @return int
+     */
+    public int size() {
+        return added.size() + removed.size() + changed.size();
+    }
+}
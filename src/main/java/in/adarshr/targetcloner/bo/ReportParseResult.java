@@ -0,0 +1,17 @@
+package in.adarshr.targetcloner.bo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is used to store the entries parsed from the delivery report and the lines that could not be parsed
+ */
+@Data
+@AllArgsConstructor
+public class ReportParseResult {
+    private Map<Gav, DeliveryReport> deliveryReports;
+    private List<MalformedReportLine> malformedLines;
+}
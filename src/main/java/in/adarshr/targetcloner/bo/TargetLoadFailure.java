@@ -0,0 +1,16 @@
+package in.adarshr.targetcloner.bo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * This class is used to store an input target file that could not be parsed
+ */
+@Data
+@AllArgsConstructor
+public class TargetLoadFailure {
+    private Path file;
+    private String error;
+}
@@ -0,0 +1,18 @@
+package in.adarshr.targetcloner.bo;
+
+import in.adarshr.targetcloner.data.Target;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * This class is used to store the result of parsing the input target files: the targets that were parsed,
+ * in the order the files were found, and the files that could not be parsed
+ */
+@Data
+@AllArgsConstructor
+public class TargetLoadResult {
+    private List<Target> targets;
+    private List<TargetLoadFailure> failures;
+}
@@ -0,0 +1,45 @@
+package in.adarshr.targetcloner.bo;
+
+import in.adarshr.targetcloner.constants.WriteStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * This class is used to store the result of writing a target file
+ */
+@Data
+@AllArgsConstructor
+public class WriteResult {
+    private WriteStatus status;
+    private long bytesWritten;
+    private String error;
+
+    /**
+     * Create a result for a file that was written
+     *
+     * @param bytesWritten the size of the file
+     * @return the result
+     */
+    public static WriteResult written(long bytesWritten) {
+        return new WriteResult(WriteStatus.WRITTEN, bytesWritten, null);
+    }
+
+    /**
+     * Create a result for a file that already had the same content
+     *
+     * @return the result
+     */
+    public static WriteResult unchanged() {
+        return new WriteResult(WriteStatus.UNCHANGED, 0, null);
+    }
+
+    /**
+     * Create a result for a file that could not be written
+     *
+     * @param error the reason
+     * @return the result
+     */
+    public static WriteResult failed(String error) {
+        return new WriteResult(WriteStatus.FAILED, 0, error);
+    }
+}
@@ -0,0 +1,336 @@
+package in.adarshr.targetcloner.build;
+
+import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.bo.Gav;
+import in.adarshr.targetcloner.bo.RepoData;
+import in.adarshr.targetcloner.bo.WriteResult;
+import in.adarshr.targetcloner.build.UnitTable.UnitView;
+import in.adarshr.targetcloner.constants.WriteStatus;
+import in.adarshr.targetcloner.data.Plugin;
+import in.adarshr.targetcloner.data.Target;
+import in.adarshr.targetcloner.data.TargetDetails;
+import in.adarshr.targetcloner.dto.TargetData;
+import in.adarshr.targetcloner.helper.JaxbHelper;
+import in.adarshr.targetcloner.utils.TargetClonerUtil;
+import in.adarshr.targetcloner.utils.UnitIdPattern;
+import jakarta.xml.bind.JAXBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class keeps the digests of the inputs of every output target in a manifest in the output directory:
+ * the input target, the target details, the delivery report entries of its repositories and the units it
+ * was built from. A target whose inputs have the same digests as in the last run, and whose file is still
+ * there, does not have to be built and written again.
+ */
+public class BuildManifest {
+
+    public static final String MANIFEST_FILE = "targetcloner.manifest";
+    private static final Logger LOG = LoggerFactory.getLogger(BuildManifest.class);
+    private static final String INPUT_TARGET = "target";
+    private static final String TARGET_DETAILS = "details";
+    private static final String DELIVERY_REPORT = "report";
+    private static final String REPO_UNITS = "units";
+    private static final String KEY_SEPARATOR = "#";
+
+    private final Path outputDirectory;
+    private final Properties previousDigests;
+    private final Map<String, String> currentDigests = new ConcurrentHashMap<>();
+    private final Map<TargetDetails, String> targetDetailsDigests = new ConcurrentHashMap<>();
+    private final Map<UnitTable, String> unitTableDigests = new ConcurrentHashMap<>();
+    private final Map<String, String> rebuiltTargets = new ConcurrentHashMap<>();
+    private final Set<String> upToDateTargets = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor
+     *
+     * @param outputDirectory the output directory
+     * @param previousDigests the digests of the last run
+     */
+    private BuildManifest(Path outputDirectory, Properties previousDigests) {
+        this.outputDirectory = outputDirectory;
+        this.previousDigests = previousDigests;
+    }
+
+    /**
+     * Load the manifest of the last run from the output directory. The manifest is empty when there was no
+     * run or it cannot be read, so every target is built.
+     *
+     * @param outputDirectory the output directory
+     * @return BuildManifest
+     */
+    public static BuildManifest load(Path outputDirectory) {
+        Properties previousDigests = new Properties();
+        Path manifestFile = outputDirectory.resolve(MANIFEST_FILE);
+        if (Files.exists(manifestFile)) {
+            try (InputStream in = Files.newInputStream(manifestFile)) {
+                previousDigests.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                LOG.warn(">>> Failed to read build manifest {}, all targets are rebuilt: {}", manifestFile, e.getMessage());
+                previousDigests.clear();
+            }
+        }
+        return new BuildManifest(outputDirectory, previousDigests);
+    }
+
+    /**
+     * Create an empty manifest, so every target is built
+     *
+     * @param outputDirectory the output directory
+     * @return BuildManifest
+     */
+    public static BuildManifest create(Path outputDirectory) {
+        return new BuildManifest(outputDirectory, new Properties());
+    }
+
+    /**
+     * Get the reason a target has to be built. The digests of its inputs are kept for the next manifest.
+     * Needs the resolution index of the target data, and the unit catalog when the target has include bundles.
+     *
+     * @param context    the build context of the target
+     * @param targetData TargetData
+     * @return the reason, empty when the inputs did not change and the target file is still there
+     */
+    public Optional<String> getRebuildReason(TargetBuildContext context, TargetData targetData) {
+        Map<String, String> digests = new LinkedHashMap<>();
+        digests.put(INPUT_TARGET, digestInputTarget(context.inputTarget()));
+        digests.put(TARGET_DETAILS, targetDetailsDigests.computeIfAbsent(targetData.getTargetDetails(), BuildManifest::digestTargetDetails));
+        digests.put(DELIVERY_REPORT, digestDeliveryReport(context, targetData));
+        digests.put(REPO_UNITS, digestRepoUnits(context, targetData, unitTableDigests));
+
+        List<String> reasons = new ArrayList<>();
+        digests.forEach((part, digest) -> {
+            String key = context.fileName() + KEY_SEPARATOR + part;
+            String previous = previousDigests.getProperty(key);
+            if (previous != null && !previous.equals(digest)) {
+                reasons.add(getDescription(part) + " changed");
+            }
+            currentDigests.put(key, digest);
+        });
+        if (!previousDigests.containsKey(context.fileName() + KEY_SEPARATOR + INPUT_TARGET)) {
+            reasons.add("not built before");
+        } else if (reasons.isEmpty() && !Files.exists(outputDirectory.resolve(context.fileName()))) {
+            reasons.add("target file missing");
+        }
+        if (reasons.isEmpty()) {
+            upToDateTargets.add(context.fileName());
+            return Optional.empty();
+        }
+        String reason = String.join(", ", reasons);
+        rebuiltTargets.put(context.fileName(), reason);
+        return Optional.of(reason);
+    }
+
+    /**
+     * Get the targets that are built in this run
+     *
+     * @return Map of file name and the reason it is built
+     */
+    public Map<String, String> getRebuiltTargets() {
+        return new TreeMap<>(rebuiltTargets);
+    }
+
+    /**
+     * Get the targets that are skipped in this run because their inputs did not change
+     *
+     * @return the file names
+     */
+    public Set<String> getUpToDateTargets() {
+        return new TreeSet<>(upToDateTargets);
+    }
+
+    /**
+     * Forget the digests of a target, so it is built again on the next run. Used when the target file could
+     * not be written.
+     *
+     * @param fileName the file name of the target
+     */
+    public void remove(String fileName) {
+        currentDigests.keySet().removeIf(key -> key.startsWith(fileName + KEY_SEPARATOR));
+    }
+
+    /**
+     * Forget the digests of the targets whose files could not be written
+     *
+     * @param writeResults Map of file name and the result of writing it
+     */
+    public void removeFailed(Map<String, WriteResult> writeResults) {
+        writeResults.forEach((fileName, writeResult) -> {
+            if (writeResult.getStatus() == WriteStatus.FAILED) {
+                remove(fileName);
+            }
+        });
+    }
+
+    /**
+     * Save the manifest with the digests of this run. The manifest is written to a temporary file first and
+     * then moved in place, so an interrupted run never leaves a partial manifest.
+     */
+    public void save() {
+        Properties digests = new Properties();
+        digests.putAll(currentDigests);
+        try {
+            Files.createDirectories(outputDirectory);
+            Path tempFile = Files.createTempFile(outputDirectory, MANIFEST_FILE, null);
+            try {
+                try (OutputStream out = Files.newOutputStream(tempFile)) {
+                    digests.store(out, "TargetCloner build manifest");
+                }
+                Files.move(tempFile, outputDirectory.resolve(MANIFEST_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            LOG.error(">>> Failed to write build manifest: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Get the description of an input for the rebuild reason
+     *
+     * @param part the input
+     * @return String
+     */
+    private static String getDescription(String part) {
+        return switch (part) {
+            case INPUT_TARGET -> "input target";
+            case TARGET_DETAILS -> "target details";
+            case DELIVERY_REPORT -> "delivery report entries";
+            default -> "repository metadata";
+        };
+    }
+
+    /**
+     * Digest the input target, as it is marshalled
+     *
+     * @param inputTarget the input target
+     * @return String
+     */
+    private static String digestInputTarget(Target inputTarget) {
+        try {
+            return digest(List.of(JaxbHelper.marshal(inputTarget, Target.class)));
+        } catch (JAXBException e) {
+            LOG.warn(">>> Failed to digest input target {}: {}", inputTarget.getName(), e.getMessage());
+            return digest(List.of(UUID.randomUUID().toString()));
+        }
+    }
+
+    /**
+     * Digest the fields of the target details, as they are marshalled
+     *
+     * @param targetDetails the target details
+     * @return String
+     */
+    private static String digestTargetDetails(TargetDetails targetDetails) {
+        try {
+            return digest(List.of(JaxbHelper.marshal(targetDetails, TargetDetails.class)));
+        } catch (JAXBException e) {
+            LOG.warn(">>> Failed to digest target details: {}", e.getMessage());
+            return digest(List.of(UUID.randomUUID().toString()));
+        }
+    }
+
+    /**
+     * Digest the delivery report entries of the repositories of a target
+     *
+     * @param context    the build context of the target
+     * @param targetData TargetData
+     * @return String
+     */
+    private static String digestDeliveryReport(TargetBuildContext context, TargetData targetData) {
+        List<String> entries = new ArrayList<>();
+        for (RepoData repoData : getRepoData(context, targetData)) {
+            DeliveryReport deliveryReport = targetData.getDeliveryReportMap().get(
+                    new Gav(repoData.getGroup(), repoData.getArtifact(), repoData.getVersion()));
+            entries.add(repoData.getLocation() + KEY_SEPARATOR + deliveryReport);
+        }
+        Collections.sort(entries);
+        return digest(entries);
+    }
+
+    /**
+     * Digest the units a target is built from: the units of its repositories and the units its include
+     * bundles resolve to. The units of a repository are digested once per run, as repositories are shared
+     * by many targets.
+     *
+     * @param context          the build context of the target
+     * @param targetData       TargetData
+     * @param unitTableDigests the digests of the unit tables digested so far
+     * @return String
+     */
+    private static String digestRepoUnits(TargetBuildContext context, TargetData targetData, Map<UnitTable, String> unitTableDigests) {
+        List<String> entries = new ArrayList<>();
+        for (RepoData repoData : getRepoData(context, targetData)) {
+            UnitTable unitTable = targetData.getRepoUnitsMap().getOrDefault(repoData, UnitTable.empty());
+            entries.add(repoData.getLocation() + KEY_SEPARATOR + unitTableDigests.computeIfAbsent(unitTable, BuildManifest::digestUnits));
+        }
+        Collections.sort(entries);
+        if (context.inputTarget().getIncludeBundles() != null) {
+            UnitCatalog unitCatalog = targetData.getUnitCatalog();
+            for (Plugin plugin : context.inputTarget().getIncludeBundles().getPlugin()) {
+                List<String> pluginIds = Collections.singletonList(plugin.getId());
+                if (UnitIdPattern.isPattern(plugin.getId())) {
+                    pluginIds = unitCatalog.getMatchingIds(UnitIdPattern.compile(plugin.getId()));
+                    entries.add(plugin.getId());
+                }
+                for (String pluginId : pluginIds) {
+                    UnitView unit = unitCatalog.get(pluginId);
+                    entries.add(pluginId + KEY_SEPARATOR + (unit != null ? unit.getVersion() : null));
+                }
+            }
+        }
+        return digest(entries);
+    }
+
+    /**
+     * Digest the units of a repository
+     *
+     * @param unitTable the units of the repository
+     * @return String
+     */
+    private static String digestUnits(UnitTable unitTable) {
+        List<String> entries = new ArrayList<>(unitTable.size());
+        for (int row = 0; row < unitTable.size(); row++) {
+            entries.add(unitTable.getId(row) + KEY_SEPARATOR + unitTable.getVersion(row));
+        }
+        Collections.sort(entries);
+        return digest(entries);
+    }
+
+    /**
+     * Get the repositories of the locations of a target
+     *
+     * @param context    the build context of the target
+     * @param targetData TargetData
+     * @return the repositories
+     */
+    private static Collection<RepoData> getRepoData(TargetBuildContext context, TargetData targetData) {
+        return targetData.getComponentRepoDataMap().getOrDefault(context.inputTarget().getName(), Collections.emptyMap()).values();
+    }
+
+    /**
+     * Digest the given entries
+     *
+     * @param entries the entries
+     * @return the SHA-256 of the entries as hex string
+     */
+    private static String digest(List<String> entries) {
+        MessageDigest digest = TargetClonerUtil.newSha256Digest();
+        entries.forEach(entry -> {
+            digest.update(String.valueOf(entry).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        });
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,129 @@
+package in.adarshr.targetcloner.build;
+
+import in.adarshr.targetcloner.bo.RepoData;
+import in.adarshr.targetcloner.build.UnitTable.UnitView;
+import in.adarshr.targetcloner.data.Target;
+import in.adarshr.targetcloner.dto.TargetData;
+import in.adarshr.targetcloner.utils.UnitIdPattern;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * This class holds the lookups of the target builder, built once when the repositories are parsed, so
+ * every lookup while building the targets is a hash lookup instead of a scan. The index cannot be
+ * changed after it is built.
+ */
+public final class ResolutionIndex {
+
+    private final Map<RepoData, UnitTable> repoUnitIndex;
+    private final Map<String, Map<String, RepoData>> locationIndex;
+    private final Map<String, Target> inputTargetIndex;
+
+    /**
+     * Build the index from the parsed data
+     *
+     * @param targetData TargetData with the input targets, the component repo data and the repo units
+     */
+    public ResolutionIndex(TargetData targetData) {
+        this(targetData.getRepoUnitsMap(), targetData.getComponentRepoDataMap(), targetData.getInputTargets());
+    }
+
+    /**
+     * Build the index from the units of some of the repositories. A target can be built from it as soon as
+     * the repositories of its locations are in the map.
+     *
+     * @param repoUnitsMap         the units of the repositories
+     * @param componentRepoDataMap the repositories of the locations of each input target
+     * @param inputTargets         the input targets
+     */
+    public ResolutionIndex(Map<RepoData, UnitTable> repoUnitsMap, Map<String, Map<String, RepoData>> componentRepoDataMap,
+                           List<Target> inputTargets) {
+        // The tables index their units by id already
+        this.repoUnitIndex = Collections.unmodifiableMap(new HashMap<>(repoUnitsMap));
+
+        Map<String, Map<String, RepoData>> locations = new HashMap<>();
+        componentRepoDataMap.forEach((targetName, repoDataMap) ->
+                locations.put(targetName, Collections.unmodifiableMap(new HashMap<>(repoDataMap))));
+        this.locationIndex = Collections.unmodifiableMap(locations);
+
+        Map<String, Target> inputTargetMap = new HashMap<>();
+        // The last input target with a name wins, same as the scan over the input targets
+        inputTargets.forEach(target -> inputTargetMap.put(target.getName(), target));
+        this.inputTargetIndex = Collections.unmodifiableMap(inputTargetMap);
+    }
+
+    /**
+     * Constructor of an index that shares the location and input target lookups of another index
+     *
+     * @param repoUnitIndex    the units of the repositories, unmodifiable
+     * @param locationIndex    the repositories of the locations of each input target, unmodifiable
+     * @param inputTargetIndex the input targets by name, unmodifiable
+     */
+    private ResolutionIndex(Map<RepoData, UnitTable> repoUnitIndex, Map<String, Map<String, RepoData>> locationIndex,
+                            Map<String, Target> inputTargetIndex) {
+        this.repoUnitIndex = repoUnitIndex;
+        this.locationIndex = locationIndex;
+        this.inputTargetIndex = inputTargetIndex;
+    }
+
+    /**
+     * Get an index with the units of the given repositories and the same location and input target lookups.
+     * Only the map of the repositories is copied, so an index per target costs the repositories of the target.
+     *
+     * @param repoUnitsMap the units of the repositories
+     * @return ResolutionIndex
+     */
+    public ResolutionIndex withRepoUnits(Map<RepoData, UnitTable> repoUnitsMap) {
+        return new ResolutionIndex(Collections.unmodifiableMap(new HashMap<>(repoUnitsMap)), locationIndex, inputTargetIndex);
+    }
+
+    /**
+     * Get the unit of a repository with the given id, at the version the unit selection of the repository
+     * selects
+     *
+     * @param repoData the repository
+     * @param unitId   the unit id
+     * @param version  the version of the input unit
+     * @return the unit, empty when the repository has no such unit at a version that matches or was not fetched
+     * @throws IllegalArgumentException if the version is not a valid range when a range is selected
+     */
+    public Optional<UnitView> getRepoUnit(RepoData repoData, String unitId, String version) {
+        return repoUnitIndex.getOrDefault(repoData, UnitTable.empty()).select(unitId, repoData.getUnitSelection(), version);
+    }
+
+    /**
+     * Get the ids of the units of a repository that match a pattern
+     *
+     * @param repoData the repository
+     * @param pattern  the unit id pattern
+     * @return the matching ids, sorted, empty when the repository was not fetched
+     */
+    public List<String> getMatchingUnitIds(RepoData repoData, UnitIdPattern pattern) {
+        return repoUnitIndex.getOrDefault(repoData, UnitTable.empty()).getMatchingIds(pattern);
+    }
+
+    /**
+     * Get the repository an input location of a target maps to
+     *
+     * @param targetName  the name of the input target
+     * @param locationUrl the repository location of the input location, without content.jar
+     * @return the repository, null when the location does not map to one
+     */
+    public RepoData getRepoData(String targetName, String locationUrl) {
+        return locationIndex.getOrDefault(targetName, Collections.emptyMap()).get(locationUrl);
+    }
+
+    /**
+     * Get the input target with the given name
+     *
+     * @param targetName the name of the target
+     * @return the input target, null when there is none
+     */
+    public Target getInputTarget(String targetName) {
+        return inputTargetIndex.get(targetName);
+    }
+}
@@ -0,0 +1,44 @@
+package in.adarshr.targetcloner.build;
+
+import in.adarshr.targetcloner.constants.Placeholder;
+import in.adarshr.targetcloner.data.Target;
+import in.adarshr.targetcloner.template.TargetTemplates;
+
+import java.util.function.Function;
+
+import static in.adarshr.targetcloner.constants.SeparatorConstants.FIELD_DELIMITER_UNDERSCORE;
+import static in.adarshr.targetcloner.constants.TargetClonerConstants.TARGET_FILE_SUFFIX;
+
+/**
+ * The data of the one target being built. Each target gets its own context, so targets can be built
+ * concurrently while the shared TargetData is only read.
+ *
+ * @param inputTarget   the input target
+ * @param componentName the component name, the part of the input target name before the version
+ * @param version       the version of the new target
+ * @param targetName    the name of the new target
+ * @param fileName      the file name of the new target
+ */
+public record TargetBuildContext(Target inputTarget, String componentName, String version, String targetName,
+                                 String fileName) {
+
+    /**
+     * Create the context of an input target
+     *
+     * @param inputTarget the input target
+     * @param version     the version of the new target
+     * @param templates   the formats of the input XML
+     * @return TargetBuildContext
+     */
+    public static TargetBuildContext of(Target inputTarget, String version, TargetTemplates templates) {
+        String componentName = inputTarget.getName().split(FIELD_DELIMITER_UNDERSCORE)[0];
+        Function<Placeholder, String> values = placeholder -> switch (placeholder) {
+            case COMPONENT -> componentName;
+            case VERSION -> version;
+            default -> null;
+        };
+        String targetName = templates.getTargetNameFormat().render(values);
+        String fileName = templates.getTargetSaveFormat().render(values) + TARGET_FILE_SUFFIX;
+        return new TargetBuildContext(inputTarget, componentName, version, targetName, fileName);
+    }
+}
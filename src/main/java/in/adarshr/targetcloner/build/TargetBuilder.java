@@ -1,168 +1,153 @@
 package in.adarshr.targetcloner.build;
 
 import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.bo.Gav;
 import in.adarshr.targetcloner.bo.RepoData;
-import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.build.UnitTable.UnitView;
 import in.adarshr.targetcloner.data.*;
 import in.adarshr.targetcloner.dto.TargetData;
-import in.adarshr.targetcloner.utils.TargetClonerUtil;
+import in.adarshr.targetcloner.utils.UnitIdPattern;
 import org.apache.commons.collections4.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import static in.adarshr.targetcloner.constants.SeparatorConstants.EMPTY_STRING;
-import static in.adarshr.targetcloner.constants.SeparatorConstants.FIELD_DELIMITER_UNDERSCORE;
 import static in.adarshr.targetcloner.constants.TargetClonerConstants.*;
 
 /**
- * This class is used to build the target
+ * This class is used to build the target. The shared TargetData is only read while the targets are built,
+ * everything that belongs to a single target is in its {@link TargetBuildContext}.
  */
 public class TargetBuilder {
 
     private static final Logger LOG = LoggerFactory.getLogger(TargetBuilder.class);
 
-    /**
-     * Get target name
-     *
-     * @param componentName Component name
-     * @param version       Version
-     * @return String
-     */
-    public static String getTargetName(String componentName, String version) {
-        return componentName + FIELD_DELIMITER_UNDERSCORE + version;
-    }
-
-    private static Optional<RepoUnit> getInputUnit(RepoData repoData, TargetData targetData, Unit unit) {
-        Map<RepoData, List<RepoUnit>> repoUnitsMap = targetData.getRepoUnitsMap();
-        List<RepoUnit> repoUnits = repoUnitsMap.get(repoData);
-        for (RepoUnit repoUnit : repoUnits) {
-            if (repoUnit.getId().equals(unit.getId())) {
-                return Optional.of(repoUnit);
-            }
-        }
-        return Optional.empty();
+    private static Optional<UnitView> getInputUnit(RepoData repoData, TargetData targetData, String unitId, Unit unit) {
+        return targetData.getResolutionIndex().getRepoUnit(repoData, unitId, unit.getVersion());
     }
 
     /**
-     * This method is used to format the target name
+     * This method is used to build the targets. The targets are built concurrently on the common fork join
+     * pool, each with its own build context. When two input targets give the same file name, the later one
+     * in the input order wins, same as building them one after the other.
      *
      * @param targetData TargetData
-     * @param targetName String
-     * @return String
+     * @return Map<String, Target>
      */
-    public static String getTargetNameFormatted(TargetData targetData, String targetName) {
-        if (targetName.contains(PLACEHOLDER_COMPONENT)) {
-            targetName = targetName.replace(PLACEHOLDER_COMPONENT, targetData.getCurrentComponentName());
-        }
-        if (targetName.contains(PLACEHOLDER_VERSION)) {
-            targetName = targetName.replace(PLACEHOLDER_VERSION, targetData.getVersion());
-        }
-        return targetName;
+    public Map<String, Target> buildTargets(TargetData targetData) {
+        return buildTargets(targetData, null);
     }
 
     /**
-     * This method is used to build the targets
+     * This method is used to build the targets whose inputs changed since the last run. A target whose inputs
+     * have the same digests as in the manifest is skipped and not in the returned map.
      *
      * @param targetData TargetData
+     * @param manifest   the manifest of the last run, null to build all targets
      * @return Map<String, Target>
      */
-    public Map<String, Target> buildTargets(TargetData targetData) {
-        Map<String, Target> outputTargets = new HashMap<>();
-        for (Target inpTarget : targetData.getInputTargets()) {
-            setTargetVOData(inpTarget, targetData);
-            targetData.setTargetName(getTargetName(targetData.getCurrentComponentName(), targetData.getVersion()));
-            targetData.setCurrentComponentName(targetData.getCurrentComponentName());
-            Target target = createTarget(targetData, inpTarget);
-            outputTargets.put(createTargetFileName(targetData), target);
+    public Map<String, Target> buildTargets(TargetData targetData, BuildManifest manifest) {
+        if (targetData.getResolutionIndex() == null) {
+            targetData.setResolutionIndex(new ResolutionIndex(targetData));
         }
+        if (targetData.getUnitCatalog() == null) {
+            targetData.setUnitCatalog(new UnitCatalog(targetData.getRepoUnitsMap()));
+        }
+        List<Target> inputTargets = targetData.getInputTargets();
+        String version = targetData.getTargetDetails().getVersion();
+        Map<String, BuiltTarget> builtTargets = new ConcurrentHashMap<>();
+        IntStream.range(0, inputTargets.size()).parallel().forEach(index -> {
+            Target inpTarget = targetData.getResolutionIndex().getInputTarget(inputTargets.get(index).getName());
+            if (inpTarget == null) {
+                LOG.error(">>> Input target not found: {}", inputTargets.get(index).getName());
+                return;
+            }
+            TargetBuildContext context = TargetBuildContext.of(inpTarget, version, targetData.getTemplates());
+            if (manifest != null && !isRebuildNeeded(context, targetData, manifest)) {
+                return;
+            }
+            Target target = createTarget(context, targetData);
+            builtTargets.merge(context.fileName(), new BuiltTarget(index, target),
+                    (current, other) -> current.index() > other.index() ? current : other);
+        });
+        Map<String, Target> outputTargets = new ConcurrentHashMap<>();
+        builtTargets.forEach((fileName, builtTarget) -> outputTargets.put(fileName, builtTarget.target()));
         return outputTargets;
     }
 
     /**
-     * This method is used to set the target VO data
+     * This method is used to check the manifest, whether a target has to be built
      *
-     * @param inpTarget   Target
-     * @param targetData  TargetData
+     * @param context    the build context of the target
+     * @param targetData TargetData
+     * @param manifest   the manifest of the last run
+     * @return boolean
      */
-    private void setTargetVOData(Target inpTarget, TargetData targetData) {
-        String[] componentVersion = inpTarget.getName().split(FIELD_DELIMITER_UNDERSCORE);
-        targetData.setCurrentComponentName(componentVersion[0]);
-        targetData.setVersion(targetData.getTargetDetails().getVersion());
+    public static boolean isRebuildNeeded(TargetBuildContext context, TargetData targetData, BuildManifest manifest) {
+        Optional<String> reason = manifest.getRebuildReason(context, targetData);
+        if (reason.isPresent()) {
+            LOG.info(">>> Building target {}: {}", context.fileName(), reason.get());
+            return true;
+        }
+        LOG.info(">>> Target {} is up to date, skipped", context.fileName());
+        return false;
     }
 
     /**
-     * This method is used to create the target file name
+     * This method is used to build a single target. The resolution index of the target data must hold the
+     * repositories of the target, and the unit catalog all repositories when the target has include bundles.
      *
+     * @param context    the build context of the target
      * @param targetData TargetData
-     * @return String
+     * @return Target
      */
-    private String createTargetFileName(TargetData targetData) {
-        String targetNameFormatted = getTargetNameFormatted(targetData, targetData.getTargetSaveFormat());
-        return targetNameFormatted + TARGET_FILE_SUFFIX;
+    public Target buildTarget(TargetBuildContext context, TargetData targetData) {
+        return createTarget(context, targetData);
     }
 
     /**
      * This method is used to create the target
      *
+     * @param context    the build context of the target
      * @param targetData TargetData
      * @return Target
      */
-    private Target createTarget(TargetData targetData, Target iTarget) {
-        Target outTarget = null;
-        for (Target inpTarget : targetData.getInputTargets()) {
-            if (inpTarget.getName().equals(iTarget.getName())) {
-                ObjectFactory objectFactory = new ObjectFactory();
-                outTarget = objectFactory.createTarget();
-                outTarget.setName(createTargetName(targetData));
-                outTarget.setIncludeMode(inpTarget.getIncludeMode());
-                outTarget.setSequenceNumber(inpTarget.getSequenceNumber());
-                outTarget.setLauncherArgs(inpTarget.getLauncherArgs());
-                outTarget.setTargetJRE(inpTarget.getTargetJRE());
-                outTarget.setEnvironment(createEnvironment(inpTarget));
-                outTarget.setLocations(createLocations(inpTarget, targetData));
-                outTarget.setIncludeBundles(createIncludeBundles(inpTarget, targetData));
-            }
-        }
+    private Target createTarget(TargetBuildContext context, TargetData targetData) {
+        Target inpTarget = context.inputTarget();
+        ObjectFactory objectFactory = new ObjectFactory();
+        Target outTarget = objectFactory.createTarget();
+        outTarget.setName(context.targetName());
+        outTarget.setIncludeMode(inpTarget.getIncludeMode());
+        outTarget.setSequenceNumber(inpTarget.getSequenceNumber());
+        outTarget.setLauncherArgs(inpTarget.getLauncherArgs());
+        outTarget.setTargetJRE(inpTarget.getTargetJRE());
+        outTarget.setEnvironment(createEnvironment(inpTarget));
+        outTarget.setLocations(createLocations(context, targetData));
+        outTarget.setIncludeBundles(createIncludeBundles(context, targetData));
         return outTarget;
     }
 
-    /**
-     * This method is used to create the target name
-     *
-     * @param targetData TargetData
-     * @return String
-     */
-    private String createTargetName(TargetData targetData) {
-        String targetName = targetData.getTargetName();
-        return getTargetNameFormatted(targetData, targetName);
-    }
-
     /**
      * This method is used to create the locations
      *
      * @return Locations
      */
-    private Locations createLocations(Target inpTarget, TargetData targetData) {
-        Map<String, DeliveryReport> deliveryReportMap = targetData.getDeliveryReportMap();
+    private Locations createLocations(TargetBuildContext context, TargetData targetData) {
+        Target inpTarget = context.inputTarget();
+        Map<Gav, DeliveryReport> deliveryReportMap = targetData.getDeliveryReportMap();
         Locations locations = new Locations();
         if (inpTarget.getLocations() != null && CollectionUtils.isNotEmpty(inpTarget.getLocations().getLocation())) {
             List<Location> inputLocations = inpTarget.getLocations().getLocation();
-            Map<String, Map<String, RepoData>> componentRepoDataMap = targetData.getComponentRepoDataMap();
+            ResolutionIndex resolutionIndex = targetData.getResolutionIndex();
             for (Location inpLocation : inputLocations) {
                 String inputLocationUrl = inpLocation.getRepository().getLocation();
-                Optional<String> repoLocation =
-                        componentRepoDataMap.get(inpTarget.getName())
-                                .keySet().stream().filter(oldLocationUrl -> filterUrl(inputLocationUrl).equals(oldLocationUrl)).findFirst();
-                if (repoLocation.isPresent()) {
-                    RepoData repoData = componentRepoDataMap.get(inpTarget.getName()).get(repoLocation.get());
-                    if (repoData == null) {
-                        LOG.error(">>> Repo data not found for target: {}", inpTarget.getName());
-                        continue;
-                    }
-                    DeliveryReport deliveryReport = deliveryReportMap.get(TargetClonerUtil.deliveryReportKey(repoData.getGroup(), repoData.getArtifact(), repoData.getVersion()));
+                RepoData repoData = resolutionIndex.getRepoData(inpTarget.getName(), filterUrl(inputLocationUrl));
+                if (repoData != null) {
+                    DeliveryReport deliveryReport = deliveryReportMap.get(new Gav(repoData.getGroup(), repoData.getArtifact(), repoData.getVersion()));
                     if (deliveryReport != null) {
                         locations.getLocation().add(createLocation(inpLocation, repoData, targetData));
                     }
@@ -176,9 +161,9 @@ public class TargetBuilder {
      * This method is used to filter the URL
      *
      * @param inpRepoLocation String
-     * @return CharSequence
+     * @return String
      */
-    private CharSequence filterUrl(String inpRepoLocation) {
+    private String filterUrl(String inpRepoLocation) {
         if (inpRepoLocation.contains(CONTENT_JAR)) {
             return inpRepoLocation.replace(CONTENT_JAR, EMPTY_STRING);
         }
@@ -186,7 +171,8 @@ public class TargetBuilder {
     }
 
     /**
-     * This method is used to create the location
+     * This method is used to create the location. A unit id with wildcards adds every unit of the repository
+     * it matches, in id order, except the units the location lists by their id.
      *
      * @return Location
      */
@@ -199,11 +185,26 @@ public class TargetBuilder {
         outputLocation.setRepository(createTargetRepository(repoData));
 
         List<Unit> inputLocationUnits = inputLocation.getUnit();
+        Set<String> addedUnitIds = new HashSet<>();
+        inputLocationUnits.stream().map(Unit::getId).filter(id -> !UnitIdPattern.isPattern(id)).forEach(addedUnitIds::add);
         for (Unit unit : inputLocationUnits) {
-            Optional<RepoUnit> unitBo = getInputUnit(repoData, targetData, unit);
-            if (unitBo.isPresent()) {
-                RepoUnit boRepoUnit = unitBo.get();
-                outputLocation.getUnit().add(createUnit(boRepoUnit));
+            List<String> unitIds = Collections.singletonList(unit.getId());
+            if (UnitIdPattern.isPattern(unit.getId())) {
+                unitIds = targetData.getResolutionIndex().getMatchingUnitIds(repoData, UnitIdPattern.compile(unit.getId()))
+                        .stream().filter(addedUnitIds::add).toList();
+            }
+            for (String unitId : unitIds) {
+                Optional<UnitView> unitBo;
+                try {
+                    unitBo = getInputUnit(repoData, targetData, unitId, unit);
+                } catch (IllegalArgumentException e) {
+                    LOG.error(">>> Unit {} is left out: {}", unitId, e.getMessage());
+                    continue;
+                }
+                if (unitBo.isPresent()) {
+                    UnitView boRepoUnit = unitBo.get();
+                    outputLocation.getUnit().add(createUnit(boRepoUnit));
+                }
             }
         }
 
@@ -235,10 +236,10 @@ public class TargetBuilder {
     /**
      * This method is used to create the unit
      *
-     * @param boRepoUnit in.adarshr.targetgen.bo.RepoUnit
-     * @return RepoUnit
+     * @param boRepoUnit the unit of the repository
+     * @return Unit
      */
-    private Unit createUnit(RepoUnit boRepoUnit) {
+    private Unit createUnit(UnitView boRepoUnit) {
         Unit unit = new Unit();
         unit.setId(boRepoUnit.getId());
         unit.setVersion(boRepoUnit.getVersion());
@@ -263,34 +264,48 @@ public class TargetBuilder {
     }
 
     /**
-     * This method is used to create the include bundles
+     * This method is used to create the include bundles. A plugin id with wildcards adds every unit of the
+     * repositories it matches, in id order, except the plugins that are listed by their id.
      *
      * @return IncludeBundles
      */
-    private IncludeBundles createIncludeBundles(Target inpTarget, TargetData targetData) {
+    private IncludeBundles createIncludeBundles(TargetBuildContext context, TargetData targetData) {
         IncludeBundles outIncludeBundles = null;
-        IncludeBundles inpIncludeBundles = inpTarget.getIncludeBundles();
-        Map<RepoData, List<RepoUnit>> repoUnitsMap = targetData.getRepoUnitsMap();
+        IncludeBundles inpIncludeBundles = context.inputTarget().getIncludeBundles();
+        UnitCatalog unitCatalog = targetData.getUnitCatalog();
 
-        //Create a single map of repo units with Unit ID as key and Unit as value from repoUnitsMap
-        //handle key collison by taking the latest value
-        Map<String, RepoUnit> unitMap = repoUnitsMap.values().stream().flatMap(Collection::stream).collect(Collectors.toMap(RepoUnit::getId, repoUnit -> repoUnit, (repoUnit1, repoUnit2) -> repoUnit2));
-
-        //Iterate through the input include bundles, check in the unitMap and create the output include bundles
+        //Iterate through the input include bundles, check in the unit catalog and create the output include bundles
         if (inpIncludeBundles != null && CollectionUtils.isNotEmpty(inpIncludeBundles.getPlugin())) {
             outIncludeBundles = new IncludeBundles();
+            Set<String> addedPluginIds = new HashSet<>();
+            inpIncludeBundles.getPlugin().stream().map(Plugin::getId).filter(id -> !UnitIdPattern.isPattern(id)).forEach(addedPluginIds::add);
             for (Plugin plugin : inpIncludeBundles.getPlugin()) {
-                if (unitMap.containsKey(plugin.getId())) {
-                    RepoUnit unit = unitMap.get(plugin.getId());
-                    Plugin outPlugin = new Plugin();
-                    outPlugin.setId(unit.getId());
-                    if (plugin.getVersion() != null) {
-                        outPlugin.setVersion(unit.getVersion());
+                List<String> pluginIds = Collections.singletonList(plugin.getId());
+                if (UnitIdPattern.isPattern(plugin.getId())) {
+                    pluginIds = unitCatalog.getMatchingIds(UnitIdPattern.compile(plugin.getId())).stream().filter(addedPluginIds::add).toList();
+                }
+                for (String pluginId : pluginIds) {
+                    UnitView unit = unitCatalog.get(pluginId);
+                    if (unit != null) {
+                        Plugin outPlugin = new Plugin();
+                        outPlugin.setId(unit.getId());
+                        if (plugin.getVersion() != null) {
+                            outPlugin.setVersion(unit.getVersion());
+                        }
+                        outIncludeBundles.getPlugin().add(outPlugin);
                     }
-                    outIncludeBundles.getPlugin().add(outPlugin);
                 }
             }
         }
         return outIncludeBundles;
     }
+
+    /**
+     * A built target with the position of its input target, to resolve file name collisions in input order
+     *
+     * @param index  the position of the input target
+     * @param target the built target
+     */
+    private record BuiltTarget(int index, Target target) {
+    }
 }
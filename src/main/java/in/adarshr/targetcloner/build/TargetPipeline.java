@@ -0,0 +1,200 @@
+package in.adarshr.targetcloner.build;
+
+import in.adarshr.targetcloner.bo.RepoData;
+import in.adarshr.targetcloner.bo.RepoFetchResult;
+import in.adarshr.targetcloner.bo.WriteResult;
+import in.adarshr.targetcloner.data.Target;
+import in.adarshr.targetcloner.dto.TargetData;
+import in.adarshr.targetcloner.helper.ConnectionHelper;
+import in.adarshr.targetcloner.helper.DownloadScheduler;
+import in.adarshr.targetcloner.helper.RepositoryResolver;
+import in.adarshr.targetcloner.helper.XMLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class runs the targets as a pipeline instead of in stages. Every repository is resolved on the
+ * download scheduler, and every target is built and written as soon as the repositories of its locations
+ * are parsed, so one slow repository only holds back the targets that use it. A target with include bundles
+ * waits for all repositories, because its plugins are looked up in all of them.
+ */
+public class TargetPipeline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TargetPipeline.class);
+
+    private final RepositoryResolver repositoryResolver;
+    private final DownloadScheduler scheduler;
+    private final BuildManifest manifest;
+    private final TargetBuilder targetBuilder = new TargetBuilder();
+
+    /**
+     * Constructor
+     *
+     * @param repositoryResolver the resolver of the repositories
+     * @param scheduler          the scheduler the repositories are resolved on
+     * @param manifest           the manifest of the last run, null to build all targets
+     */
+    public TargetPipeline(RepositoryResolver repositoryResolver, DownloadScheduler scheduler, BuildManifest manifest) {
+        this.repositoryResolver = repositoryResolver;
+        this.scheduler = scheduler;
+        this.manifest = manifest;
+    }
+
+    /**
+     * Resolve the repositories, then build and write the targets as their repositories arrive. The units of
+     * all repositories are set to the target data when everything is done.
+     *
+     * @param targetData    TargetData with the input targets, the delivery report and the repositories
+     * @param wantedUnitIds the ids of the units to keep per repository
+     * @return Map of file name and target, of the targets that were built
+     */
+    public Map<String, Target> run(TargetData targetData, Map<RepoData, Set<String>> wantedUnitIds) {
+        Map<RepoData, CompletableFuture<UnitTable>> repoFutures = new HashMap<>();
+        targetData.getRepoDataUrlSet().forEach(repo -> repoFutures.put(repo, resolve(repo, wantedUnitIds.get(repo))));
+        CompletableFuture<UnitCatalog> unitCatalogFuture = CompletableFuture
+                .allOf(repoFutures.values().toArray(CompletableFuture<?>[]::new))
+                .thenApply(ignored -> new UnitCatalog(getRepoUnits(repoFutures.keySet(), repoFutures)));
+
+        // The lookups of the locations and input targets are built once, each target only adds its repositories
+        ResolutionIndex runIndex = new ResolutionIndex(Collections.emptyMap(), targetData.getComponentRepoDataMap(), targetData.getInputTargets());
+        Map<String, Target> outputTargets = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> targetFutures = new ArrayList<>();
+        getContexts(targetData, runIndex).forEach(context -> targetFutures.add(buildAndSave(context, targetData, runIndex, repoFutures, unitCatalogFuture)
+                .thenAccept(target -> {
+                    if (target != null) {
+                        outputTargets.put(context.fileName(), target);
+                    }
+                })
+                .exceptionally(exception -> {
+                    LOG.error(">>> Failed to create target {}: {}", context.targetName(), exception.getMessage());
+                    // The digests were kept before the build, the target has to be built again on the next run
+                    if (manifest != null) {
+                        manifest.remove(context.fileName());
+                    }
+                    return null;
+                })));
+        CompletableFuture.allOf(targetFutures.toArray(CompletableFuture<?>[]::new)).join();
+
+        targetData.setRepoUnitsMap(getRepoUnits(repoFutures.keySet(), repoFutures));
+        return outputTargets;
+    }
+
+    /**
+     * Resolve a repository on the scheduler. A repository that fails is kept with no units, same as in the
+     * staged run.
+     *
+     * @param repo          the repository
+     * @param wantedUnitIds the ids of the units to keep
+     * @return the future of the units of the repository
+     */
+    private CompletableFuture<UnitTable> resolve(RepoData repo, Set<String> wantedUnitIds) {
+        return CompletableFuture.supplyAsync(() -> {
+            LOG.info(">>> Resolving repository: {}", repo.getLocation());
+            return repositoryResolver.resolve(repo.getLocation(), wantedUnitIds);
+        }, scheduler.getExecutor()).exceptionally(exception -> RepoFetchResult.failed(exception.getMessage())).thenApply(result -> {
+            ConnectionHelper.logFetchResult(repo, result);
+            return UnitTable.of(result.getRepoUnits());
+        });
+    }
+
+    /**
+     * Get the build contexts of the input targets. When two input targets give the same file name only the
+     * later one is built, same as in the staged run.
+     *
+     * @param targetData TargetData
+     * @param runIndex   the index of the run
+     * @return the build contexts
+     */
+    private static Collection<TargetBuildContext> getContexts(TargetData targetData, ResolutionIndex runIndex) {
+        String version = targetData.getTargetDetails().getVersion();
+        Map<String, TargetBuildContext> contexts = new LinkedHashMap<>();
+        for (Target inputTarget : targetData.getInputTargets()) {
+            Target inpTarget = runIndex.getInputTarget(inputTarget.getName());
+            TargetBuildContext context = TargetBuildContext.of(inpTarget, version, targetData.getTemplates());
+            contexts.remove(context.fileName());
+            contexts.put(context.fileName(), context);
+        }
+        return contexts.values();
+    }
+
+    /**
+     * Build and write a target once the repositories it needs are parsed
+     *
+     * @param context           the build context of the target
+     * @param targetData        TargetData
+     * @param runIndex          the index of the run, without repositories
+     * @param repoFutures       the futures of the units of every repository
+     * @param unitCatalogFuture the future of the catalog of all repositories
+     * @return the future of the target, null when the target is up to date
+     */
+    private CompletableFuture<Target> buildAndSave(TargetBuildContext context, TargetData targetData, ResolutionIndex runIndex,
+                                                   Map<RepoData, CompletableFuture<UnitTable>> repoFutures,
+                                                   CompletableFuture<UnitCatalog> unitCatalogFuture) {
+        Set<RepoData> targetRepos = new HashSet<>(targetData.getComponentRepoDataMap()
+                .getOrDefault(context.inputTarget().getName(), Collections.emptyMap()).values());
+        targetRepos.removeIf(repo -> !repoFutures.containsKey(repo));
+        boolean hasIncludeBundles = context.inputTarget().getIncludeBundles() != null;
+        List<CompletableFuture<?>> dependencies = new ArrayList<>();
+        targetRepos.forEach(repo -> dependencies.add(repoFutures.get(repo)));
+        if (hasIncludeBundles) {
+            dependencies.add(unitCatalogFuture);
+        }
+        return CompletableFuture.allOf(dependencies.toArray(CompletableFuture<?>[]::new)).thenApplyAsync(ignored -> {
+            TargetData targetView = createTargetView(targetData, runIndex, getRepoUnits(targetRepos, repoFutures),
+                    hasIncludeBundles ? unitCatalogFuture.join() : null);
+            if (manifest != null && !TargetBuilder.isRebuildNeeded(context, targetView, manifest)) {
+                return null;
+            }
+            Target target = targetBuilder.buildTarget(context, targetView);
+            Map<String, WriteResult> writeResults = XMLHelper.saveFilesToDisk(Map.of(context.fileName(), target));
+            if (manifest != null) {
+                manifest.removeFailed(writeResults);
+            }
+            return target;
+        });
+    }
+
+    /**
+     * Create the target data a single target is built from. It shares everything with the target data of the
+     * run, except that the index only holds the repositories of the target.
+     *
+     * @param targetData   TargetData of the run
+     * @param runIndex     the index of the run, without repositories
+     * @param repoUnitsMap the units of the repositories of the target
+     * @param unitCatalog  the catalog of all repositories, null when the target has no include bundles
+     * @return TargetData
+     */
+    private static TargetData createTargetView(TargetData targetData, ResolutionIndex runIndex, Map<RepoData, UnitTable> repoUnitsMap,
+                                               UnitCatalog unitCatalog) {
+        TargetData targetView = new TargetData();
+        targetView.setVersion(targetData.getVersion());
+        targetView.setTemplates(targetData.getTemplates());
+        targetView.setTargetDetails(targetData.getTargetDetails());
+        targetView.setDeliveryReportMap(targetData.getDeliveryReportMap());
+        targetView.setInputTargets(targetData.getInputTargets());
+        targetView.setRepoDataUrlSet(targetData.getRepoDataUrlSet());
+        targetView.setComponentRepoDataMap(targetData.getComponentRepoDataMap());
+        targetView.setRepoUnitsMap(repoUnitsMap);
+        targetView.setResolutionIndex(runIndex.withRepoUnits(repoUnitsMap));
+        targetView.setUnitCatalog(unitCatalog);
+        return targetView;
+    }
+
+    /**
+     * Get the units of the given repositories. The futures of the repositories must be complete.
+     *
+     * @param repos       the repositories
+     * @param repoFutures the futures of the units of every repository
+     * @return Map of repository and units
+     */
+    private static Map<RepoData, UnitTable> getRepoUnits(Collection<RepoData> repos,
+                                                         Map<RepoData, CompletableFuture<UnitTable>> repoFutures) {
+        Map<RepoData, UnitTable> repoUnitsMap = new HashMap<>();
+        repos.forEach(repo -> repoUnitsMap.put(repo, repoFutures.get(repo).join()));
+        return repoUnitsMap;
+    }
+}
@@ -0,0 +1,75 @@
+package in.adarshr.targetcloner.build;
+
+import in.adarshr.targetcloner.bo.RepoData;
+import in.adarshr.targetcloner.build.UnitTable.UnitView;
+import in.adarshr.targetcloner.utils.UnitIdPattern;
+
+import java.util.*;
+
+/**
+ * This class is the catalog of the units of all repositories, built once per run. When more than one
+ * repository has a unit with the same id, the unit with the highest OSGi version is kept, so the result
+ * does not depend on the order the repositories are visited in. The catalog keeps the table and row of each
+ * unit and does not copy the units, so a lookup is a single hash lookup. The ids are also kept sorted, so
+ * the ids that match a pattern are found with a binary search. The catalog cannot be changed after it is
+ * built.
+ */
+public final class UnitCatalog {
+
+    private final Map<String, UnitView> units;
+    private final String[] sortedIds;
+
+    /**
+     * Build the catalog
+     *
+     * @param repoUnitsMap the units of each repository
+     */
+    public UnitCatalog(Map<RepoData, UnitTable> repoUnitsMap) {
+        Map<String, UnitView> catalog = new HashMap<>();
+        for (UnitTable unitTable : repoUnitsMap.values()) {
+            for (String unitId : unitTable.getIds()) {
+                catalog.merge(unitId, unitTable.get(unitTable.latest(unitId)), UnitCatalog::higherVersion);
+            }
+        }
+        this.units = Collections.unmodifiableMap(catalog);
+        this.sortedIds = catalog.keySet().toArray(String[]::new);
+        Arrays.sort(sortedIds);
+    }
+
+    /**
+     * Get the unit with the given id and the highest version
+     *
+     * @param unitId the unit id
+     * @return the unit, null when no repository has it
+     */
+    public UnitView get(String unitId) {
+        return units.get(unitId);
+    }
+
+    /**
+     * Get the ids of the units of all repositories that match a pattern
+     *
+     * @param pattern the unit id pattern
+     * @return the matching ids, sorted
+     */
+    public List<String> getMatchingIds(UnitIdPattern pattern) {
+        return pattern.getMatches(sortedIds);
+    }
+
+    /**
+     * Pick the unit with the higher version. On the same version the unit with the smaller version string
+     * is kept ("1.0" before "1.0.0"), and on the same string the unit already in the catalog.
+     *
+     * @param current   the unit in the catalog
+     * @param candidate the other unit with the same id
+     * @return UnitView
+     */
+    private static UnitView higherVersion(UnitView current, UnitView candidate) {
+        int result = UnitTable.compareVersions(candidate.table(), candidate.row(), current.table(), current.row());
+        if (result == 0) {
+            result = Objects.requireNonNullElse(current.getVersion(), "")
+                    .compareTo(Objects.requireNonNullElse(candidate.getVersion(), ""));
+        }
+        return result > 0 ? candidate : current;
+    }
+}
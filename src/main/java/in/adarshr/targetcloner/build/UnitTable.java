@@ -0,0 +1,567 @@
+package in.adarshr.targetcloner.build;
+
+import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.data.UnitSelection;
+import in.adarshr.targetcloner.utils.OsgiVersion;
+import in.adarshr.targetcloner.utils.OsgiVersionRange;
+import in.adarshr.targetcloner.utils.PackedVersion;
+import in.adarshr.targetcloner.utils.UnitIdPattern;
+
+import java.util.*;
+
+/**
+ * This class holds the units of a repository in columns, one array per field, instead of one object per
+ * unit. The ids and qualifiers are interned, so the tables of all repositories share one instance of each
+ * string. Each distinct string of a table is interned once. The version numbers are packed into a long per
+ * unit, see {@link PackedVersion}. A version that is not in canonical form is kept as it is written. The
+ * singleton flags are a bit set, and the generations an int column.
+ * <p>
+ * The rows of each id are kept sorted by OSGi version, so the version of a unit is selected with a binary
+ * search over its rows: the latest, the latest in a range or an exact version. The ids are found through an
+ * open addressing hash table. Versions in canonical form are compared on their packed numbers and interned
+ * qualifiers, without allocating. Of units with the same OSGi version, the one with the smaller version
+ * string ("1.0" before "1.0.0") and then the one first in the metadata is selected.
+ * <p>
+ * The distinct ids are also kept sorted, so the ids that match a {@link UnitIdPattern} are found with a binary
+ * search for its prefix, visiting only the ids that start with it.
+ * <p>
+ * The table cannot be changed after it is built. A unit is read through a {@link UnitView}, which is only the
+ * table and the row.
+ */
+public final class UnitTable {
+
+    private static final UnitTable EMPTY = of(Collections.emptyList());
+    private static final String ANY_VERSION = "0.0.0";
+    private static final int NO_GENERATION = -1;
+    private static final int NO_GROUP = 0;
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    private final String[] ids;
+    private final long[] versions;
+    // The number of segments of each version, 0 when the version is kept as it is written
+    private final byte[] segments;
+    private final String[] qualifiers;
+    private final Map<Integer, String> rawVersions;
+    private final BitSet singletons;
+    private final int[] generations;
+    // The id of each group of rows, in the order the ids first appear
+    private final String[] groupIds;
+    // The distinct ids in sorted order
+    private final String[] sortedIds;
+    // The start of each group in the version order, and the end of the last group
+    private final int[] groupStarts;
+    // The rows grouped by id, each group sorted by version with the selected unit of a version last
+    private final int[] versionOrder;
+    // The group of each id plus one, 0 for an empty slot
+    private final int[] slots;
+
+    /**
+     * Constructor
+     *
+     * @param repoUnits the units, in the order of the metadata
+     */
+    private UnitTable(List<RepoUnit> repoUnits) {
+        int size = repoUnits.size();
+        this.ids = new String[size];
+        this.versions = new long[size];
+        this.segments = new byte[size];
+        this.qualifiers = new String[size];
+        this.rawVersions = new HashMap<>();
+        this.singletons = new BitSet(size);
+        this.generations = new int[size];
+        this.slots = new int[Integer.highestOneBit(Math.max(size, 1) * 2 - 1) * 2];
+
+        Map<String, String> foundQualifiers = new HashMap<>();
+        String[] foundIds = new String[size];
+        int[] rowGroups = new int[size];
+        int[] groupSizes = new int[size];
+        int groupCount = 0;
+        for (int row = 0; row < size; row++) {
+            RepoUnit repoUnit = repoUnits.get(row);
+            set(row, repoUnit, foundQualifiers);
+            String id = repoUnit.getId();
+            if (id == null) {
+                rowGroups[row] = -1;
+                continue;
+            }
+            int slot = findSlot(slots, foundIds, id);
+            if (slots[slot] == NO_GROUP) {
+                foundIds[groupCount] = id.intern();
+                slots[slot] = ++groupCount;
+            }
+            rowGroups[row] = slots[slot] - 1;
+            ids[row] = foundIds[rowGroups[row]];
+            groupSizes[rowGroups[row]]++;
+        }
+        this.groupIds = Arrays.copyOf(foundIds, groupCount);
+        this.sortedIds = groupIds.clone();
+        Arrays.sort(sortedIds);
+        this.groupStarts = new int[groupCount + 1];
+        for (int group = 0; group < groupCount; group++) {
+            groupStarts[group + 1] = groupStarts[group] + groupSizes[group];
+        }
+        this.versionOrder = new int[groupStarts[groupCount]];
+        int[] positions = Arrays.copyOf(groupStarts, groupCount);
+        for (int row = 0; row < size; row++) {
+            if (rowGroups[row] >= 0) {
+                versionOrder[positions[rowGroups[row]]++] = row;
+            }
+        }
+        for (int group = 0; group < groupCount; group++) {
+            sortByVersion(groupStarts[group], groupStarts[group + 1]);
+        }
+    }
+
+    /**
+     * Build the table of the units of a repository
+     *
+     * @param repoUnits the units, in the order of the metadata
+     * @return UnitTable
+     */
+    public static UnitTable of(List<RepoUnit> repoUnits) {
+        return new UnitTable(repoUnits);
+    }
+
+    /**
+     * Get the table of a repository without units
+     *
+     * @return UnitTable
+     */
+    public static UnitTable empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Set the version, singleton and generation columns of a row from a parsed unit
+     *
+     * @param row             the row
+     * @param repoUnit        the unit
+     * @param foundQualifiers the interned qualifiers of the table so far
+     */
+    private void set(int row, RepoUnit repoUnit, Map<String, String> foundQualifiers) {
+        String version = repoUnit.getVersion();
+        long packed = PackedVersion.parse(version);
+        if (packed == PackedVersion.INVALID) {
+            versions[row] = PackedVersion.INVALID;
+            if (version != null) {
+                rawVersions.put(row, version);
+            }
+        } else {
+            versions[row] = packed;
+            segments[row] = (byte) PackedVersion.getSegmentCount(version);
+            String qualifier = PackedVersion.getQualifier(version);
+            qualifiers[row] = qualifier == null ? null : foundQualifiers.computeIfAbsent(qualifier, String::intern);
+        }
+        singletons.set(row, Boolean.parseBoolean(repoUnit.getSingleton()));
+        generations[row] = parseGeneration(repoUnit.getGeneration());
+    }
+
+    /**
+     * Parse a generation, which is a number that is not negative
+     *
+     * @param generation the generation as written
+     * @return int, -1 when there is no generation or it is not a number
+     */
+    private static int parseGeneration(String generation) {
+        if (generation == null || generation.isEmpty() || generation.length() > 9) {
+            return NO_GENERATION;
+        }
+        int number = 0;
+        for (int i = 0; i < generation.length(); i++) {
+            char character = generation.charAt(i);
+            if (character < '0' || character > '9') {
+                return NO_GENERATION;
+            }
+            number = number * 10 + (character - '0');
+        }
+        return number;
+    }
+
+    /**
+     * Sort the rows of a group by version, the selected unit of a version last. The groups are small, except
+     * for a unit that is released into the same repository over and over.
+     *
+     * @param start the start of the group in the version order
+     * @param end   the end of the group in the version order
+     */
+    private void sortByVersion(int start, int end) {
+        if (end - start <= INSERTION_SORT_SIZE) {
+            for (int i = start + 1; i < end; i++) {
+                int row = versionOrder[i];
+                int j = i - 1;
+                while (j >= start && compareRows(versionOrder[j], row) > 0) {
+                    versionOrder[j + 1] = versionOrder[j];
+                    j--;
+                }
+                versionOrder[j + 1] = row;
+            }
+            return;
+        }
+        Integer[] rows = new Integer[end - start];
+        for (int i = start; i < end; i++) {
+            rows[i - start] = versionOrder[i];
+        }
+        Arrays.sort(rows, this::compareRows);
+        for (int i = start; i < end; i++) {
+            versionOrder[i] = rows[i - start];
+        }
+    }
+
+    /**
+     * Compare two rows in version order. Of two rows with the same OSGi version, the row with the greater
+     * version string and then the later row comes first, so the selected unit of a version is last.
+     *
+     * @param left  the first row
+     * @param right the second row
+     * @return int
+     */
+    private int compareRows(int left, int right) {
+        int result = compareVersions(this, left, this, right);
+        if (result == 0 && left != right) {
+            result = versionText(right).compareTo(versionText(left));
+            if (result == 0) {
+                result = Integer.compare(right, left);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compare the versions of two rows the OSGi way. Versions in canonical form are compared on their packed
+     * numbers and qualifiers, any other version as a string.
+     *
+     * @param leftTable  the table of the first row
+     * @param left       the first row
+     * @param rightTable the table of the second row
+     * @param right      the second row
+     * @return int
+     */
+    static int compareVersions(UnitTable leftTable, int left, UnitTable rightTable, int right) {
+        if (leftTable.segments[left] == 0 || rightTable.segments[right] == 0) {
+            return OsgiVersion.compare(leftTable.getVersion(left), rightTable.getVersion(right));
+        }
+        int result = Long.compareUnsigned(leftTable.versions[left], rightTable.versions[right]);
+        return result != 0 ? result : qualifierText(leftTable.qualifiers[left]).compareTo(qualifierText(rightTable.qualifiers[right]));
+    }
+
+    /**
+     * Compare the version of a row with a version the OSGi way
+     *
+     * @param row     the row
+     * @param version the version
+     * @return int
+     */
+    private int compareVersion(int row, OsgiVersion version) {
+        if (segments[row] == 0) {
+            return OsgiVersion.parse(getVersion(row)).compareTo(version);
+        }
+        if (!version.isValid()) {
+            return 1;
+        }
+        long packed = versions[row];
+        int result = Integer.compare(PackedVersion.getMajor(packed), version.getMajor());
+        if (result == 0) {
+            result = Integer.compare(PackedVersion.getMinor(packed), version.getMinor());
+        }
+        if (result == 0) {
+            result = Integer.compare(PackedVersion.getMicro(packed), version.getMicro());
+        }
+        return result != 0 ? result : qualifierText(qualifiers[row]).compareTo(version.getQualifier());
+    }
+
+    /**
+     * Get the version string of a row for the order of equal versions
+     *
+     * @param row the row
+     * @return String, empty when the unit has no version
+     */
+    private String versionText(int row) {
+        return Objects.requireNonNullElse(getVersion(row), "");
+    }
+
+    /**
+     * Get a qualifier for comparing
+     *
+     * @param qualifier the qualifier, null when there is none
+     * @return String
+     */
+    private static String qualifierText(String qualifier) {
+        return qualifier == null ? "" : qualifier;
+    }
+
+    /**
+     * Find the slot of an id in the hash table: the slot holding the group of the id, or the empty slot the
+     * id goes to
+     *
+     * @param slots    the hash table
+     * @param groupIds the id of each group
+     * @param id       the unit id
+     * @return int
+     */
+    private static int findSlot(int[] slots, String[] groupIds, String id) {
+        int mask = slots.length - 1;
+        int hash = id.hashCode();
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (slots[slot] != NO_GROUP && !id.equals(groupIds[slots[slot] - 1])) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Get the group of an id
+     *
+     * @param unitId the unit id
+     * @return the group, -1 when there is no unit with the id
+     */
+    private int getGroup(String unitId) {
+        return unitId == null ? -1 : slots[findSlot(slots, groupIds, unitId)] - 1;
+    }
+
+    /**
+     * Get the number of units
+     *
+     * @return int
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Get the distinct ids of the table
+     *
+     * @return the ids, sorted
+     */
+    public List<String> getIds() {
+        return Collections.unmodifiableList(Arrays.asList(sortedIds));
+    }
+
+    /**
+     * Get the row of the latest version of a unit
+     *
+     * @param unitId the unit id
+     * @return the row, -1 when there is no such unit
+     */
+    public int latest(String unitId) {
+        int group = getGroup(unitId);
+        return group < 0 ? -1 : versionOrder[groupStarts[group + 1] - 1];
+    }
+
+    /**
+     * Get the row of a unit with the given version
+     *
+     * @param unitId  the unit id
+     * @param version the version
+     * @return the row, -1 when there is no such unit or it does not have the version
+     */
+    public int exact(String unitId, OsgiVersion version) {
+        int group = getGroup(unitId);
+        if (group < 0) {
+            return -1;
+        }
+        int position = lastUpTo(group, version, true);
+        return position >= 0 && compareVersion(versionOrder[position], version) == 0 ? versionOrder[position] : -1;
+    }
+
+    /**
+     * Get the row of the latest version of a unit in a range
+     *
+     * @param unitId the unit id
+     * @param range  the version range
+     * @return the row, -1 when there is no such unit or none of its versions is in the range
+     */
+    public int latestInRange(String unitId, OsgiVersionRange range) {
+        int group = getGroup(unitId);
+        if (group < 0) {
+            return -1;
+        }
+        int position = range.getCeiling() == null ? groupStarts[group + 1] - 1
+                : lastUpTo(group, range.getCeiling(), range.isCeilingIncluded());
+        if (position < 0) {
+            return -1;
+        }
+        int result = compareVersion(versionOrder[position], range.getFloor());
+        return result > 0 || (result == 0 && range.isFloorIncluded()) ? versionOrder[position] : -1;
+    }
+
+    /**
+     * Find the last position of a group whose version is below a version, or equal to it when included
+     *
+     * @param group    the group
+     * @param version  the version
+     * @param included true to include the version itself
+     * @return the position in the version order, -1 when there is none
+     */
+    private int lastUpTo(int group, OsgiVersion version, boolean included) {
+        int low = groupStarts[group];
+        int high = groupStarts[group + 1] - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int result = compareVersion(versionOrder[middle], version);
+            if (result < 0 || (result == 0 && included)) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Select the version of a unit. The latest version is selected when there is no policy, or when the
+     * requested version is empty or 0.0.0, which is any version in a target file.
+     *
+     * @param unitId    the unit id
+     * @param selection the selection policy, null for the latest version
+     * @param version   the requested version, the range for {@link UnitSelection#LATEST_IN_RANGE}
+     * @return the unit, empty when there is no unit that matches
+     * @throws IllegalArgumentException if the version range is not valid
+     */
+    public Optional<UnitView> select(String unitId, UnitSelection selection, String version) {
+        UnitSelection policy = selection == null || OsgiVersion.compare(version, ANY_VERSION) == 0 ? UnitSelection.LATEST : selection;
+        int row = switch (policy) {
+            case LATEST -> latest(unitId);
+            case LATEST_IN_RANGE -> latestInRange(unitId, OsgiVersionRange.parse(version));
+            case EXACT -> exact(unitId, OsgiVersion.parse(version));
+        };
+        return row < 0 ? Optional.empty() : Optional.of(new UnitView(this, row));
+    }
+
+    /**
+     * Get the ids that match a pattern
+     *
+     * @param pattern the unit id pattern
+     * @return the matching ids, sorted
+     */
+    public List<String> getMatchingIds(UnitIdPattern pattern) {
+        return pattern.getMatches(sortedIds);
+    }
+
+    /**
+     * Get the latest version of a unit
+     *
+     * @param unitId the unit id
+     * @return the unit, empty when there is no such unit
+     */
+    public Optional<UnitView> find(String unitId) {
+        int row = latest(unitId);
+        return row < 0 ? Optional.empty() : Optional.of(new UnitView(this, row));
+    }
+
+    /**
+     * Get the unit of a row
+     *
+     * @param row the row
+     * @return UnitView
+     */
+    public UnitView get(int row) {
+        return new UnitView(this, row);
+    }
+
+    /**
+     * Get the id of a row
+     *
+     * @param row the row
+     * @return String
+     */
+    public String getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * Get the version of a row as it is written in the metadata
+     *
+     * @param row the row
+     * @return String
+     */
+    public String getVersion(int row) {
+        return segments[row] == 0 ? rawVersions.get(row) : PackedVersion.format(versions[row], segments[row], qualifiers[row]);
+    }
+
+    /**
+     * Get the packed numbers of the version of a row
+     *
+     * @param row the row
+     * @return long, {@link PackedVersion#INVALID} when the version is not in canonical form
+     */
+    public long getPackedVersion(int row) {
+        return versions[row];
+    }
+
+    /**
+     * Get the qualifier of the version of a row
+     *
+     * @param row the row
+     * @return String, null when the version has no qualifier or is not in canonical form
+     */
+    public String getQualifier(int row) {
+        return qualifiers[row];
+    }
+
+    /**
+     * Check if the unit of a row is a singleton
+     *
+     * @param row the row
+     * @return boolean
+     */
+    public boolean isSingleton(int row) {
+        return singletons.get(row);
+    }
+
+    /**
+     * Get the generation of a row
+     *
+     * @param row the row
+     * @return int, -1 when the unit has no generation
+     */
+    public int getGeneration(int row) {
+        return generations[row];
+    }
+
+    /**
+     * A unit of a table. The view holds no data of its own, every field is read from the columns of the table.
+     *
+     * @param table the table
+     * @param row   the row of the unit
+     */
+    public record UnitView(UnitTable table, int row) {
+
+        /**
+         * Get the id of the unit
+         *
+         * @return String
+         */
+        public String getId() {
+            return table.getId(row);
+        }
+
+        /**
+         * Get the version of the unit as it is written in the metadata
+         *
+         * @return String
+         */
+        public String getVersion() {
+            return table.getVersion(row);
+        }
+
+        /**
+         * Check if the unit is a singleton
+         *
+         * @return boolean
+         */
+        public boolean isSingleton() {
+            return table.isSingleton(row);
+        }
+
+        /**
+         * Get the generation of the unit
+         *
+         * @return int, -1 when the unit has no generation
+         */
+        public int getGeneration() {
+            return table.getGeneration(row);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package in.adarshr.targetcloner.constants;
+
+/**
+ * Outcome of fetching the metadata of a repository
+ */
+public enum FetchStatus {
+    //Fetched on the first attempt
+    SUCCESS,
+    //Fetched after one or more retries
+    RETRIED,
+    //Not fetched, the repository has no units
+    FAILED
+}
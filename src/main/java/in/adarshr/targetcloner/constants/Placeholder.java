@@ -0,0 +1,43 @@
+package in.adarshr.targetcloner.constants;
+
+import lombok.Getter;
+
+import static in.adarshr.targetcloner.constants.TargetClonerConstants.*;
+
+@Getter
+public enum Placeholder {
+    //Group of the repository, in the url patterns
+    GROUP(PLACEHOLDER_GROUP),
+    //Artifact of the repository, in the url patterns
+    ARTIFACT(PLACEHOLDER_ARTIFACT),
+    //Version of the repository or of the new targets
+    VERSION(PLACEHOLDER_VERSION),
+    //Component of the target, in the target name and save formats
+    COMPONENT(PLACEHOLDER_COMPONENT);
+
+    private final String token;
+
+    /**
+     * Constructor
+     *
+     * @param token the placeholder as it is written in the input XML
+     */
+    Placeholder(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Get the placeholder of a token
+     *
+     * @param token the token, with its delimiters
+     * @return Placeholder, null when the token is not a placeholder
+     */
+    public static Placeholder fromToken(String token) {
+        for (Placeholder placeholder : values()) {
+            if (placeholder.token.equals(token)) {
+                return placeholder;
+            }
+        }
+        return null;
+    }
+}
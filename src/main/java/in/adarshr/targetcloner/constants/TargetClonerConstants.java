@@ -5,13 +5,22 @@ public final class TargetClonerConstants {
     public static final String JAXB_SCHEMA = "https://in.adarshr.targetcloner.data/TargetCloner.xsd";
     public static final String CONTENT_JAR = "content.jar";
     public static final String CONTENT_JAR_WITH_SEPARATOR = "/content.jar";
+    public static final String CONTENT_XML = "content.xml";
+    public static final String CONTENT_XML_XZ = "content.xml.xz";
+    public static final String COMPOSITE_CONTENT_JAR = "compositeContent.jar";
+    public static final String COMPOSITE_CONTENT_XML = "compositeContent.xml";
+    public static final String P2_INDEX = "p2.index";
+    public static final String P2_INDEX_METADATA_ORDER = "metadata.repository.factory.order";
+    public static final String P2_INDEX_STOP = "!";
     public static final String PLACEHOLDER_GROUP = "$GROUP$";
     public static final String PLACEHOLDER_ARTIFACT = "$ARTIFACT$";
     public static final String PLACEHOLDER_VERSION = "$VERSION$";
     public static final String PLACEHOLDER_COMPONENT = "$COMPONENT$";
     public static final String TARGET_FILE_SUFFIX = ".target";
+    public static final int MAX_TARGET_LOADER_THREADS = 8;
     public static final String OUTPUT_DIRECTORY = "output";
     public static final String USER_DIRECTORY = "user.dir";
+    public static final String UNIT_INDEX_DIRECTORY = "units";
     /**
      * Private constructor to prevent instantiation
      */
@@ -0,0 +1,13 @@
+package in.adarshr.targetcloner.constants;
+
+/**
+ * Outcome of writing a target file
+ */
+public enum WriteStatus {
+    //Written, the file was new or its content changed
+    WRITTEN,
+    //Not written, the file already has the same content
+    UNCHANGED,
+    //Not written, the target could not be marshalled or the file could not be written
+    FAILED
+}
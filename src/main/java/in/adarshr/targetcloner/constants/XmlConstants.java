@@ -6,10 +6,11 @@ public final class XmlConstants {
     public static final String XML_ATTRIBUTE_VERSION = "version";
     public static final String XML_ATTRIBUTE_ID = "id";
     public static final String XML_ELEMENT_UNIT = "unit";
-    public static final String XML_INSTRUCTION_MARKER = "?>";
-    public static final String PDE_VERSION_INSTRUCTION = "<?pde version=\"3.8\"?>";
-    public static final String XML_NAMESPACE_PREFIX = "ns2:";
-    public static final String XML_NAMESPACE_TARGET_CLONER = "xmlns:ns2=\"https://in.adarshr.targetcloner.data/TargetCloner.xsd\"";
+    public static final String XML_ELEMENT_UNITS = "units";
+    public static final String XML_ELEMENT_CHILD = "child";
+    public static final String XML_ATTRIBUTE_LOCATION = "location";
+    public static final String PDE_INSTRUCTION_TARGET = "pde";
+    public static final String PDE_INSTRUCTION_DATA = "version=\"3.8\"";
     /**
      * Private constructor to prevent instantiation
      */
@@ -1,10 +1,14 @@
 package in.adarshr.targetcloner.dto;
 
 import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.bo.Gav;
 import in.adarshr.targetcloner.bo.RepoData;
-import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.build.ResolutionIndex;
+import in.adarshr.targetcloner.build.UnitCatalog;
+import in.adarshr.targetcloner.build.UnitTable;
 import in.adarshr.targetcloner.data.Target;
 import in.adarshr.targetcloner.data.TargetDetails;
+import in.adarshr.targetcloner.template.TargetTemplates;
 import lombok.Data;
 
 import java.util.List;
@@ -16,14 +20,14 @@ import java.util.Set;
  */
 @Data
 public class TargetData {
-    private String targetName;
-    private String currentComponentName;
     private String version;
-    private String targetSaveFormat;
+    private TargetTemplates templates;
     private TargetDetails targetDetails;
-    private Map<String, DeliveryReport> deliveryReportMap;
+    private Map<Gav, DeliveryReport> deliveryReportMap;
     private List<Target> inputTargets;
-    private Map<RepoData, List<RepoUnit>> repoUnitsMap;
+    private Map<RepoData, UnitTable> repoUnitsMap;
     private Set<RepoData> repoDataUrlSet;
     private Map<String, Map<String, RepoData>> componentRepoDataMap;
+    private ResolutionIndex resolutionIndex;
+    private UnitCatalog unitCatalog;
 }
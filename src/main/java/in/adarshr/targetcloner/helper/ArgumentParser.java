@@ -4,6 +4,8 @@ import org.apache.commons.cli.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+
 /**
  * ArgumentParser class
  * Process the input arguments
@@ -11,6 +13,12 @@ import org.slf4j.LoggerFactory;
 public class ArgumentParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(ArgumentParser.class);
     private boolean isCompare = false;
+    private String cacheDirectory;
+    private int maxDownloads = DownloadScheduler.DEFAULT_MAX_DOWNLOADS;
+    private int maxDownloadsPerHost = DownloadScheduler.DEFAULT_MAX_DOWNLOADS_PER_HOST;
+    private Duration hedgeDelay;
+    private boolean isPipeline = false;
+    private boolean isForce = false;
 
     /**
      * Constructor
@@ -28,7 +36,13 @@ public class ArgumentParser {
      */
     private static Options getOptions() {
         Options options = new Options();
-        options.addOption("c", "compare", false, "Compare the files");
+        options.addOption("c", "compare", false, "Compare the files, all targets are built");
+        options.addOption("d", "cache-dir", true, "Directory to cache the repository metadata");
+        options.addOption(null, "max-downloads", true, "Maximum number of parallel downloads, default " + DownloadScheduler.DEFAULT_MAX_DOWNLOADS);
+        options.addOption(null, "hedge-after", true, "Send a second request when a download did not answer within the given milliseconds");
+        options.addOption(null, "max-downloads-per-host", true, "Maximum number of parallel downloads per host, default " + DownloadScheduler.DEFAULT_MAX_DOWNLOADS_PER_HOST);
+        options.addOption("p", "pipeline", false, "Build and write each target as soon as its repositories are parsed");
+        options.addOption("f", "force", false, "Build all targets, also the ones whose inputs did not change");
         options.addOption("h", "help", false, "Help");
         return options;
     }
@@ -48,11 +62,29 @@ public class ArgumentParser {
             if (cmd.hasOption("c")) {
                 setCompare();
             }
+            if (cmd.hasOption("d")) {
+                this.cacheDirectory = cmd.getOptionValue("d");
+            }
+            if (cmd.hasOption("max-downloads")) {
+                this.maxDownloads = parseLimit(cmd.getOptionValue("max-downloads"));
+            }
+            if (cmd.hasOption("max-downloads-per-host")) {
+                this.maxDownloadsPerHost = parseLimit(cmd.getOptionValue("max-downloads-per-host"));
+            }
+            if (cmd.hasOption("hedge-after")) {
+                this.hedgeDelay = Duration.ofMillis(parseLimit(cmd.getOptionValue("hedge-after")));
+            }
+            if (cmd.hasOption("p")) {
+                this.isPipeline = true;
+            }
+            if (cmd.hasOption("f")) {
+                this.isForce = true;
+            }
             if (cmd.hasOption("h")) {
                 createHelp(options);
                 System.exit(0);
             }
-        } catch (ParseException e) {
+        } catch (ParseException | NumberFormatException e) {
             LOGGER.error("!!! Invalid option !!!");
             createHelp(options);
             System.exit(0);
@@ -75,6 +107,75 @@ public class ArgumentParser {
         this.isCompare = true;
     }
 
+    /**
+     * Get cache directory
+     *
+     * @return String, null when not given
+     */
+    public String getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Get maximum number of parallel downloads
+     *
+     * @return int
+     */
+    public int getMaxDownloads() {
+        return maxDownloads;
+    }
+
+    /**
+     * Get maximum number of parallel downloads per host
+     *
+     * @return int
+     */
+    public int getMaxDownloadsPerHost() {
+        return maxDownloadsPerHost;
+    }
+
+    /**
+     * Get the delay after which a hedged request is sent
+     *
+     * @return Duration, null when hedging is disabled
+     */
+    public Duration getHedgeDelay() {
+        return hedgeDelay;
+    }
+
+    /**
+     * Get pipeline mode
+     *
+     * @return boolean, true when each target is built as soon as its repositories are parsed
+     */
+    public boolean isPipeline() {
+        return isPipeline;
+    }
+
+    /**
+     * Get force mode
+     *
+     * @return boolean, true when all targets are built regardless of the build manifest
+     */
+    public boolean isForce() {
+        return isForce;
+    }
+
+    /**
+     * Parse a download limit
+     *
+     * @param value option value
+     * @return int
+     * @throws NumberFormatException if the value is not a positive number
+     */
+    private static int parseLimit(String value) {
+        int limit = Integer.parseInt(value.trim());
+        if (limit < 1) {
+            throw new NumberFormatException("Limit must be at least 1: " + value);
+        }
+        return limit;
+    }
+
     /**
      * Create help
      *
@@ -1,27 +1,18 @@
 package in.adarshr.targetcloner.helper;
 
 import in.adarshr.targetcloner.bo.RepoData;
-import in.adarshr.targetcloner.constants.SeparatorConstants;
+import in.adarshr.targetcloner.bo.RepoFetchResult;
+import in.adarshr.targetcloner.build.UnitTable;
+import in.adarshr.targetcloner.source.RepositorySourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.URI;
-import java.net.URL;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarInputStream;
-import java.util.stream.Collectors;
-
-import static in.adarshr.targetcloner.constants.SeparatorConstants.EMPTY_STRING;
-import static in.adarshr.targetcloner.constants.SeparatorConstants.LINE_BREAK;
 
 /**
- * This class provides utility methods for downloading JARs and extracting XMLs from them.
+ * This class provides utility methods for downloading the repository metadata and extracting the units in it.
  */
 public class ConnectionHelper {
 
@@ -34,57 +25,55 @@ public class ConnectionHelper {
     }
 
     /**
-     * Downloads the JAR from the given URL and returns the content of the XML file inside the JAR.
+     * Resolves the metadata of each distinct repository and parses its units. The repositories are resolved
+     * on the scheduler and every request is limited by its global and per-host permits.
      *
-     * @param jarUrl the URL of the JAR
-     * @return the content of the XML file inside the JAR
-     * @throws IOException if an I/O error occurs
+     * @param distinctRepoData the set of distinct repositories
+     * @param wantedUnitIds    the ids of the units to keep per repository, a repository not in the map keeps all
+     * @param sourceFactory    the factory of the repository sources
+     * @param scheduler        the download scheduler
+     * @param unitIndex        the index of the parsed metadata, null to parse the metadata every time
+     * @return a map of the repository and the result with its units
      */
-    private static String downloadJar(String jarUrl) throws IOException {
-        URI uri = URI.create(jarUrl);
-        URL url = uri.toURL();
-        StringBuilder xmlContent = new StringBuilder();
-        try (
-                InputStream in = url.openStream();
-                JarInputStream jarStream = new JarInputStream(in);
-                BufferedReader reader = new BufferedReader(new InputStreamReader(jarStream))
-        ) {
-            JarEntry entry;
-            while ((entry = jarStream.getNextJarEntry()) != null) {
-                if (entry.getName().endsWith(SeparatorConstants.XML_FILE_EXTENSION)) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        xmlContent.append(line).append(LINE_BREAK);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            LOG.error(">>> Failed to open or read JAR from URL: {}, {}", jarUrl, e.getMessage());
-        }
-        return xmlContent.toString();
+    public static Map<RepoData, RepoFetchResult> downloadAndParseAll(Set<RepoData> distinctRepoData, Map<RepoData, Set<String>> wantedUnitIds,
+                                                                     RepositorySourceFactory sourceFactory, DownloadScheduler scheduler,
+                                                                     RepoUnitIndex unitIndex) {
+        RepositoryResolver repositoryResolver = new RepositoryResolver(sourceFactory, scheduler, unitIndex);
+        return scheduler.runAll(distinctRepoData, repo -> {
+            LOG.info(">>> Resolving repository: {}", repo.getLocation());
+            return repositoryResolver.resolve(repo.getLocation(), wantedUnitIds.get(repo));
+        });
     }
 
     /**
-     * Downloads the JAR from the URL of each distinct repository and returns a map of the repository and the
-     * content of the XML file inside the JAR.
+     * Get the units of each repository from the fetch results and log the outcome. A repository that could
+     * not be fetched is kept with no units.
      *
-     * @param distinctRepoData the set of distinct repositories
-     * @return a map of the repository and the content of the XML file inside the JAR
+     * @param fetchResults the fetch results
+     * @return a map of the repository and the table of its units
+     */
+    public static Map<RepoData, UnitTable> getRepoUnitsMap(Map<RepoData, RepoFetchResult> fetchResults) {
+        Map<RepoData, UnitTable> repoUnitsMap = new HashMap<>();
+        fetchResults.forEach((repo, result) -> {
+            logFetchResult(repo, result);
+            repoUnitsMap.put(repo, UnitTable.of(result.getRepoUnits()));
+        });
+        return repoUnitsMap;
+    }
+
+    /**
+     * Log the outcome of fetching a repository
+     *
+     * @param repo   the repository
+     * @param result the fetch result
      */
-    public static Map<RepoData, String> downloadAllJars(Set<RepoData> distinctRepoData) {
-        return distinctRepoData.parallelStream()
-                .collect(Collectors.toMap(
-                        repo -> repo,
-                        repo -> {
-                            try {
-                                LOG.info(">>> Downloading JAR from URL: {}", repo.getLocation());
-                                return downloadJar(repo.getLocation());
-                            } catch (IOException e) {
-                                LOG.error(">>> Failed to download JAR from URL: {}", repo.getLocation());
-                                return EMPTY_STRING;
-                            }
-                        },
-                        (value1, value2) -> value1 // Merge function for handling key collision
-                ));
+    public static void logFetchResult(RepoData repo, RepoFetchResult result) {
+        switch (result.getStatus()) {
+            case SUCCESS -> LOG.info(">>> {} fetched with {} units kept, {} skipped", repo,
+                    result.getRepoUnits().size(), result.getSkippedUnits());
+            case RETRIED -> LOG.warn(">>> {} fetched with {} units kept, {} skipped after {} retries", repo,
+                    result.getRepoUnits().size(), result.getSkippedUnits(), result.getRetries());
+            case FAILED -> LOG.error(">>> {} could not be fetched from {}: {}", repo, repo.getLocation(), result.getError());
+        }
     }
-}
\ No newline at end of file
+}
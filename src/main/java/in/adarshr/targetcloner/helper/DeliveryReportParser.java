@@ -0,0 +1,90 @@
+package in.adarshr.targetcloner.helper;
+
+import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.bo.Gav;
+import in.adarshr.targetcloner.bo.MalformedReportLine;
+import in.adarshr.targetcloner.bo.ReportParseResult;
+import in.adarshr.targetcloner.constants.SeparatorConstants;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class parses the delivery report. The report is read line by line, so it is never held in memory as a
+ * whole, and each line is split on the field delimiter with a scan instead of a regular expression. A line is
+ * status:group:artifact:version[:classifier[:extension]]. A line that does not have a group, an artifact and
+ * a version is reported as malformed and does not stop the others. Empty lines are skipped.
+ */
+public class DeliveryReportParser {
+
+    private static final int MAX_FIELDS = 6;
+    private static final int MIN_FIELDS = 4;
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private DeliveryReportParser() {
+    }
+
+    /**
+     * Parse the delivery report. When a group, artifact and version is in the report more than once, the last
+     * line wins.
+     *
+     * @param reader      the reader of the report
+     * @param linesToSkip the number of header lines to skip
+     * @return the entries of the report and the malformed lines
+     * @throws IOException if the report cannot be read
+     */
+    public static ReportParseResult parse(BufferedReader reader, int linesToSkip) throws IOException {
+        Map<Gav, DeliveryReport> deliveryReports = new HashMap<>();
+        List<MalformedReportLine> malformedLines = new ArrayList<>();
+        String[] fields = new String[MAX_FIELDS];
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber <= linesToSkip || line.isBlank()) {
+                continue;
+            }
+            int fieldCount = split(line, fields);
+            if (fieldCount < MIN_FIELDS) {
+                malformedLines.add(new MalformedReportLine(lineNumber, line, "Expected at least " + MIN_FIELDS + " fields, found " + fieldCount));
+            } else if (fields[1].isEmpty() || fields[2].isEmpty() || fields[3].isEmpty()) {
+                malformedLines.add(new MalformedReportLine(lineNumber, line, "Group, artifact and version must not be empty"));
+            } else {
+                DeliveryReport deliveryReport = new DeliveryReport(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], false);
+                deliveryReports.put(new Gav(fields[1], fields[2], fields[3]), deliveryReport);
+            }
+        }
+        return new ReportParseResult(deliveryReports, malformedLines);
+    }
+
+    /**
+     * Split a line into its trimmed fields. The fields that are not in the line are set to null, and the fields
+     * after the last one are ignored.
+     *
+     * @param line   the line
+     * @param fields the array the fields are put in
+     * @return the number of fields in the line
+     */
+    static int split(String line, String[] fields) {
+        int fieldCount = 0;
+        int start = 0;
+        while (fieldCount < fields.length && start <= line.length()) {
+            int end = line.indexOf(SeparatorConstants.FIELD_DELIMITER_SEMICOLON, start);
+            if (end < 0) {
+                end = line.length();
+            }
+            fields[fieldCount++] = line.substring(start, end).trim();
+            start = end + SeparatorConstants.FIELD_DELIMITER_SEMICOLON.length();
+        }
+        for (int i = fieldCount; i < fields.length; i++) {
+            fields[i] = null;
+        }
+        return fieldCount;
+    }
+}
@@ -0,0 +1,324 @@
+package in.adarshr.targetcloner.helper;
+
+import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.bo.Gav;
+import in.adarshr.targetcloner.bo.ReportChangeSet;
+import in.adarshr.targetcloner.data.Pattern;
+import in.adarshr.targetcloner.utils.TargetClonerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class keeps the delivery report entries of the last run and the repository each input location was
+ * correlated with, in a compact binary file in the output directory. The entries of this run are compared
+ * with it, and a location whose correlation cannot be changed by the added, removed and changed entries keeps
+ * the one of the last run, so only the affected locations are matched against the report again. The
+ * correlations are only kept while the repository url patterns stay the same.
+ */
+public class DeliveryReportSnapshot {
+
+    public static final String SNAPSHOT_FILE = "deliveryreport.snapshot";
+    private static final Logger LOG = LoggerFactory.getLogger(DeliveryReportSnapshot.class);
+    private static final int MAGIC = 0x54435253;
+    private static final int FORMAT_VERSION = 2;
+    private static final int NULL_STRING = -1;
+
+    private final Path outputDirectory;
+    private final String previousPatternsDigest;
+    private final Map<Gav, DeliveryReport> previousDeliveryReports;
+    private final Map<String, Correlation> previousCorrelations;
+    private String currentPatternsDigest;
+    private Map<Gav, DeliveryReport> currentDeliveryReports = Collections.emptyMap();
+    private final Map<String, Correlation> currentCorrelations = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param outputDirectory         the output directory
+     * @param previousPatternsDigest  the digest of the url patterns of the last run, null when there was none
+     * @param previousDeliveryReports the delivery report entries of the last run
+     * @param previousCorrelations    the correlations of the last run
+     */
+    private DeliveryReportSnapshot(Path outputDirectory, String previousPatternsDigest,
+                                   Map<Gav, DeliveryReport> previousDeliveryReports, Map<String, Correlation> previousCorrelations) {
+        this.outputDirectory = outputDirectory;
+        this.previousPatternsDigest = previousPatternsDigest;
+        this.previousDeliveryReports = previousDeliveryReports;
+        this.previousCorrelations = previousCorrelations;
+    }
+
+    /**
+     * Load the snapshot of the last run from the output directory. The snapshot is empty when there was no
+     * run or it cannot be read, so every location is correlated.
+     *
+     * @param outputDirectory the output directory
+     * @return DeliveryReportSnapshot
+     */
+    public static DeliveryReportSnapshot load(Path outputDirectory) {
+        Path snapshotFile = outputDirectory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshotFile)) {
+            try (DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile))))) {
+                return read(outputDirectory, in);
+            } catch (IOException e) {
+                LOG.warn(">>> Failed to read delivery report snapshot {}, all locations are correlated: {}", snapshotFile, e.getMessage());
+            }
+        }
+        return create(outputDirectory);
+    }
+
+    /**
+     * Create an empty snapshot, so every location is correlated
+     *
+     * @param outputDirectory the output directory
+     * @return DeliveryReportSnapshot
+     */
+    public static DeliveryReportSnapshot create(Path outputDirectory) {
+        return new DeliveryReportSnapshot(outputDirectory, null, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Compare the delivery report entries of this run with the last run. The entries and the url patterns
+     * are kept for the next snapshot.
+     *
+     * @param deliveryReports the delivery report entries of this run
+     * @param patterns        the repository url patterns of this run
+     * @return the entries that are added, removed and changed
+     */
+    public ReportChangeSet getChangeSet(Map<Gav, DeliveryReport> deliveryReports, List<Pattern> patterns) {
+        this.currentDeliveryReports = deliveryReports;
+        this.currentPatternsDigest = digestPatterns(patterns);
+        Set<Gav> added = new HashSet<>();
+        Set<Gav> changed = new HashSet<>();
+        deliveryReports.forEach((gav, deliveryReport) -> {
+            DeliveryReport previous = previousDeliveryReports.get(gav);
+            if (previous == null) {
+                added.add(gav);
+            } else if (!isSameEntry(previous, deliveryReport)) {
+                changed.add(gav);
+            }
+        });
+        Set<Gav> removed = new HashSet<>(previousDeliveryReports.keySet());
+        removed.removeAll(deliveryReports.keySet());
+        return new ReportChangeSet(added, removed, changed);
+    }
+
+    /**
+     * Get the correlation of a location in the last run. Needs {@link #getChangeSet} to be called first.
+     *
+     * @param locationUrl the repository location of an input location
+     * @return Correlation, null when the location was not correlated or the url patterns changed
+     */
+    public Correlation getPreviousCorrelation(String locationUrl) {
+        if (previousPatternsDigest == null || !previousPatternsDigest.equals(currentPatternsDigest)) {
+            return null;
+        }
+        return previousCorrelations.get(locationUrl);
+    }
+
+    /**
+     * Keep the correlation of a location for the next snapshot
+     *
+     * @param locationUrl the repository location of an input location
+     * @param correlation the correlation
+     */
+    public void putCorrelation(String locationUrl, Correlation correlation) {
+        currentCorrelations.put(locationUrl, correlation);
+    }
+
+    /**
+     * Save the snapshot with the entries and correlations of this run. The snapshot is written to a temporary
+     * file first and then moved in place, so an interrupted run never leaves a partial snapshot.
+     */
+    public void save() {
+        if (currentPatternsDigest == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(outputDirectory);
+            Path tempFile = Files.createTempFile(outputDirectory, SNAPSHOT_FILE, null);
+            try {
+                try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile))))) {
+                    write(out);
+                }
+                Files.move(tempFile, outputDirectory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            LOG.error(">>> Failed to write delivery report snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Write the entries and correlations of this run. Every string is written once, and referred to by its
+     * index after that, since the groups and versions repeat in most entries.
+     *
+     * @param out the stream
+     * @throws IOException if the snapshot cannot be written
+     */
+    private void write(DataOutputStream out) throws IOException {
+        Map<String, Integer> strings = new HashMap<>();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(currentPatternsDigest);
+        out.writeInt(currentDeliveryReports.size());
+        for (DeliveryReport deliveryReport : currentDeliveryReports.values()) {
+            writeString(out, deliveryReport.getStatus(), strings);
+            writeString(out, deliveryReport.getGroup(), strings);
+            writeString(out, deliveryReport.getArtifact(), strings);
+            writeString(out, deliveryReport.getVersion(), strings);
+            writeString(out, deliveryReport.getClassifier(), strings);
+            writeString(out, deliveryReport.getExtension(), strings);
+            out.writeBoolean(deliveryReport.isExternalEntry());
+        }
+        out.writeInt(currentCorrelations.size());
+        for (Map.Entry<String, Correlation> entry : currentCorrelations.entrySet()) {
+            Correlation correlation = entry.getValue();
+            writeString(out, entry.getKey(), strings);
+            out.writeBoolean(correlation.gav() != null);
+            if (correlation.gav() != null) {
+                writeString(out, correlation.gav().group(), strings);
+                writeString(out, correlation.gav().artifact(), strings);
+                writeString(out, correlation.gav().version(), strings);
+                writeString(out, correlation.newUrl(), strings);
+                out.writeInt(correlation.patternIndex());
+            }
+        }
+    }
+
+    /**
+     * Read a snapshot
+     *
+     * @param outputDirectory the output directory
+     * @param in              the stream
+     * @return DeliveryReportSnapshot
+     * @throws IOException if the snapshot cannot be read or is of another format
+     */
+    private static DeliveryReportSnapshot read(Path outputDirectory, DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unknown snapshot format");
+        }
+        List<String> strings = new ArrayList<>();
+        String patternsDigest = in.readUTF();
+        int entryCount = in.readInt();
+        Map<Gav, DeliveryReport> deliveryReports = new HashMap<>();
+        for (int i = 0; i < entryCount; i++) {
+            DeliveryReport deliveryReport = new DeliveryReport(readString(in, strings), readString(in, strings), readString(in, strings),
+                    readString(in, strings), readString(in, strings), readString(in, strings), in.readBoolean());
+            deliveryReports.put(new Gav(deliveryReport.getGroup(), deliveryReport.getArtifact(), deliveryReport.getVersion()), deliveryReport);
+        }
+        int correlationCount = in.readInt();
+        Map<String, Correlation> correlations = new HashMap<>();
+        for (int i = 0; i < correlationCount; i++) {
+            String locationUrl = readString(in, strings);
+            if (in.readBoolean()) {
+                Gav gav = new Gav(readString(in, strings), readString(in, strings), readString(in, strings));
+                correlations.put(locationUrl, new Correlation(gav, readString(in, strings), in.readInt()));
+            } else {
+                correlations.put(locationUrl, Correlation.NONE);
+            }
+        }
+        return new DeliveryReportSnapshot(outputDirectory, patternsDigest, deliveryReports, correlations);
+    }
+
+    /**
+     * Write a string, or its index when it was written before
+     *
+     * @param out     the stream
+     * @param value   the string, may be null
+     * @param strings the index of every string written so far
+     * @throws IOException if the string cannot be written
+     */
+    private static void writeString(DataOutputStream out, String value, Map<String, Integer> strings) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_STRING);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            out.writeInt(index);
+        } else {
+            out.writeInt(strings.size());
+            out.writeUTF(value);
+            strings.put(value, strings.size());
+        }
+    }
+
+    /**
+     * Read a string written by {@link #writeString}
+     *
+     * @param in      the stream
+     * @param strings the strings read so far
+     * @return String, may be null
+     * @throws IOException if the string cannot be read
+     */
+    private static String readString(DataInputStream in, List<String> strings) throws IOException {
+        int index = in.readInt();
+        if (index == NULL_STRING) {
+            return null;
+        }
+        if (index == strings.size()) {
+            strings.add(in.readUTF());
+        } else if (index < 0 || index > strings.size()) {
+            throw new IOException("Invalid string index " + index);
+        }
+        return strings.get(index);
+    }
+
+    /**
+     * Check if two entries with the same group, artifact and version have the same other fields
+     *
+     * @param previous the entry of the last run
+     * @param current  the entry of this run
+     * @return boolean
+     */
+    private static boolean isSameEntry(DeliveryReport previous, DeliveryReport current) {
+        return Objects.equals(previous.getStatus(), current.getStatus())
+                && Objects.equals(previous.getClassifier(), current.getClassifier())
+                && Objects.equals(previous.getExtension(), current.getExtension())
+                && previous.isExternalEntry() == current.isExternalEntry();
+    }
+
+    /**
+     * Digest the fields of the url patterns, which decide how the locations are correlated
+     *
+     * @param patterns the repository url patterns
+     * @return the SHA-256 of the fields as hex string
+     */
+    private static String digestPatterns(List<Pattern> patterns) {
+        MessageDigest digest = TargetClonerUtil.newSha256Digest();
+        for (Pattern pattern : patterns) {
+            for (Object field : Arrays.asList(pattern.getUrlPattern(), pattern.getGroupId(), pattern.getArtifact(),
+                    pattern.getVersion(), pattern.getComponent(), pattern.getCurrentGroupUrlPattern(), pattern.getFutureGroupUrlPattern(),
+                    pattern.getCurrentArtifactUrlPattern(), pattern.getFutureArtifactUrlPattern(),
+                    pattern.getCurrentVersionUrlPattern(), pattern.getFutureVersionUrlPattern(), pattern.isUseDeliveryReport())) {
+                digest.update(String.valueOf(field).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * The repository an input location is correlated with. The url pattern is kept by its position, which is
+     * the same as long as the url patterns are, and only then a correlation of the last run is used.
+     *
+     * @param gav          the delivery report entry of the repository, null when no entry matches the location
+     * @param newUrl       the url of the repository, null when no entry matches the location
+     * @param patternIndex the position of the url pattern that gave the url, -1 when no entry matches the location
+     */
+    public record Correlation(Gav gav, String newUrl, int patternIndex) {
+        public static final Correlation NONE = new Correlation(null, null, -1);
+    }
+}
@@ -0,0 +1,140 @@
+package in.adarshr.targetcloner.helper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * This class runs the repository downloads on its own executor instead of the common ForkJoinPool. Every
+ * task gets its own thread and the number of requests in flight is limited by a global and a per-host
+ * permit, so a slow host cannot take all the permits and a single host is never hit too hard.
+ */
+public class DownloadScheduler implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_DOWNLOADS = 16;
+    public static final int DEFAULT_MAX_DOWNLOADS_PER_HOST = 4;
+    private static final Logger LOG = LoggerFactory.getLogger(DownloadScheduler.class);
+    private static final String UNKNOWN_HOST = "";
+
+    private final ExecutorService executor;
+    private final Semaphore globalPermits;
+    private final int maxDownloadsPerHost;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param maxDownloads        maximum number of downloads in flight
+     * @param maxDownloadsPerHost maximum number of downloads in flight per host
+     */
+    public DownloadScheduler(int maxDownloads, int maxDownloadsPerHost) {
+        if (maxDownloads < 1 || maxDownloadsPerHost < 1) {
+            throw new IllegalArgumentException("Download limits must be at least 1");
+        }
+        this.globalPermits = new Semaphore(maxDownloads, true);
+        this.maxDownloadsPerHost = maxDownloadsPerHost;
+        this.executor = createExecutor();
+    }
+
+    /**
+     * Create the executor. Tasks spend nearly all their time blocked on I/O or on a permit, so each one gets
+     * its own thread and the permits do the limiting. With Java 21 this is a virtual thread per task executor.
+     *
+     * @return ExecutorService
+     */
+    private static ExecutorService createExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "download-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the executor of the scheduler
+     *
+     * @return Executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Run the task for every key on the executor and wait for all of them. The results are put in a
+     * concurrent map as soon as each task completes. A key whose task fails or returns null is left out.
+     *
+     * @param keys the keys
+     * @param task the task to run for a key
+     * @param <K>  the type of the keys
+     * @param <V>  the type of the results
+     * @return the map of key and result
+     */
+    public <K, V> Map<K, V> runAll(Collection<K> keys, Function<K, V> task) {
+        Map<K, V> results = new ConcurrentHashMap<>();
+        CompletableFuture<?>[] futures = keys.stream()
+                .map(key -> CompletableFuture.supplyAsync(() -> task.apply(key), executor)
+                        .whenComplete((value, exception) -> {
+                            if (exception != null) {
+                                LOG.error(">>> Task failed for {}: {}", key, exception.getMessage());
+                            } else if (value != null) {
+                                results.put(key, value);
+                            }
+                        }))
+                .toArray(CompletableFuture<?>[]::new);
+        CompletableFuture.allOf(futures).exceptionally(exception -> null).join();
+        return results;
+    }
+
+    /**
+     * Run the call while holding a permit of the host of the URL and a global permit. The host permit is
+     * taken first, so waiting for a busy host does not keep a global permit away from other hosts.
+     *
+     * @param url  the URL the call connects to
+     * @param call the call
+     * @param <T>  the type of the result
+     * @return the result of the call
+     * @throws Exception if the call fails, or the thread is interrupted while waiting for a permit
+     */
+    public <T> T withPermit(String url, Callable<T> call) throws Exception {
+        Semaphore hostPermit = hostPermits.computeIfAbsent(hostOf(url), host -> new Semaphore(maxDownloadsPerHost, true));
+        hostPermit.acquire();
+        try {
+            globalPermits.acquire();
+            try {
+                return call.call();
+            } finally {
+                globalPermits.release();
+            }
+        } finally {
+            hostPermit.release();
+        }
+    }
+
+    /**
+     * Get the host of a URL
+     *
+     * @param url the URL
+     * @return the host in lower case, empty when the URL has no host
+     */
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? UNKNOWN_HOST : host.toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN_HOST;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,317 @@
+package in.adarshr.targetcloner.helper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * This class is the single transport for all remote reads. It keeps one {@link HttpClient}, so connections
+ * are reused between requests, asks for gzip, applies connect and request timeouts, and retries failed
+ * requests with jittered exponential backoff. Optionally a second request is sent when the first one did
+ * not answer within the hedge delay, and whichever answers first is used, unless it failed. A response body
+ * that stops sending data fails after an idle timeout, since the request timeout ends with the headers.
+ */
+public class HttpTransport {
+
+    public static final int HTTP_OK = 200;
+    public static final int HTTP_NOT_MODIFIED = 304;
+    public static final int HTTP_NOT_FOUND = 404;
+    public static final int HTTP_GONE = 410;
+    private static final Logger LOG = LoggerFactory.getLogger(HttpTransport.class);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(20);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration BODY_IDLE_TIMEOUT = Duration.ofSeconds(60);
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 10_000;
+    private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(408, 429, 500, 502, 503, 504);
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String ENCODING_GZIP = "gzip";
+    private static final ScheduledExecutorService BODY_WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "http-body-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final HttpClient httpClient;
+    private final Duration hedgeDelay;
+    private final Duration bodyIdleTimeout;
+
+    /**
+     * Constructor
+     *
+     * @param hedgeDelay the time to wait before a hedged request is sent, null to disable hedging
+     */
+    public HttpTransport(Duration hedgeDelay) {
+        this(hedgeDelay, BODY_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param hedgeDelay      the time to wait before a hedged request is sent, null to disable hedging
+     * @param bodyIdleTimeout the longest time a read of a response body may wait for data
+     */
+    HttpTransport(Duration hedgeDelay, Duration bodyIdleTimeout) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.hedgeDelay = hedgeDelay;
+        this.bodyIdleTimeout = bodyIdleTimeout;
+    }
+
+    /**
+     * Send a GET request and read the response with the handler. Failures of the request are retried as in
+     * {@link #get(String, Map)}, and a body that times out while it is read is requested again. The response
+     * is closed when the handler returns.
+     *
+     * @param url     the URL
+     * @param headers extra request headers
+     * @param handler the handler of the response, called again for a response that is requested again
+     * @param <T>     the type of the result
+     * @return the result of the handler
+     * @throws IOException if the request or the handler fails, or the body still times out after the last attempt
+     */
+    public <T> T get(String url, Map<String, String> headers, ResponseHandler<T> handler) throws IOException {
+        int attempts = 0;
+        for (int attempt = 1; ; attempt++) {
+            Response response = get(url, headers);
+            attempts += response.attempts();
+            try (response) {
+                return handler.handle(new Response(response.statusCode(), response.headers(), response.body(), attempts));
+            } catch (IOException e) {
+                if (attempt == MAX_ATTEMPTS || !isBodyTimeout(e)) {
+                    throw e;
+                }
+                long backoff = backoffMillis(attempt);
+                LOG.warn(">>> Reading the body of {} failed: {}. Requesting it again in {} ms", url, e.getMessage(), backoff);
+                sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * Send a GET request. Connection failures and the status codes in {@link #RETRYABLE_STATUS_CODES} are
+     * retried. Any other status is returned to the caller, who must close the response.
+     *
+     * @param url     the URL
+     * @param headers extra request headers
+     * @return the response
+     * @throws IOException if the request still fails after the last attempt
+     */
+    public Response get(String url, Map<String, String> headers) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header(HEADER_ACCEPT_ENCODING, ENCODING_GZIP)
+                .GET();
+        headers.forEach(builder::header);
+        HttpRequest request = builder.build();
+
+        IOException lastException = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                HttpResponse<InputStream> response = send(request);
+                if (!RETRYABLE_STATUS_CODES.contains(response.statusCode()) || attempt == MAX_ATTEMPTS) {
+                    return new Response(response.statusCode(), response.headers(), decode(response, bodyIdleTimeout), attempt);
+                }
+                response.body().close();
+                lastException = new IOException("HTTP status " + response.statusCode() + " for " + url);
+            } catch (IOException e) {
+                lastException = e;
+            }
+            if (attempt < MAX_ATTEMPTS) {
+                long backoff = backoffMillis(attempt);
+                LOG.warn(">>> Attempt {} failed for {}: {}. Retrying in {} ms", attempt, url, lastException.getMessage(), backoff);
+                sleep(backoff);
+            }
+        }
+        throw lastException;
+    }
+
+    /**
+     * Send the request, hedged when a hedge delay is configured. A hedged request uses the first response
+     * that arrives and fails only when both requests fail.
+     *
+     * @param request the request
+     * @return the response
+     * @throws IOException if the request fails
+     */
+    private HttpResponse<InputStream> send(HttpRequest request) throws IOException {
+        CompletableFuture<HttpResponse<InputStream>> first = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        try {
+            if (hedgeDelay == null) {
+                return first.get();
+            }
+            try {
+                return first.get(hedgeDelay.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                LOG.info(">>> No response within {} ms, sending hedged request for {}", hedgeDelay.toMillis(), request.uri());
+            }
+            CompletableFuture<HttpResponse<InputStream>> second = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+            return firstResponse(first, second).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + request.uri(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Get the first response of two requests. A failed request is only reported when the other one failed
+     * too, and the response that arrives second is closed to release its connection.
+     *
+     * @param first  the first request
+     * @param second the hedged request
+     * @return the future of the first response
+     */
+    private static CompletableFuture<HttpResponse<InputStream>> firstResponse(CompletableFuture<HttpResponse<InputStream>> first,
+                                                                              CompletableFuture<HttpResponse<InputStream>> second) {
+        CompletableFuture<HttpResponse<InputStream>> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(2);
+        for (CompletableFuture<HttpResponse<InputStream>> future : List.of(first, second)) {
+            future.whenComplete((response, failure) -> {
+                if (failure == null && !winner.complete(response)) {
+                    closeQuietly(response);
+                }
+                if (pending.decrementAndGet() == 0 && failure != null) {
+                    winner.completeExceptionally(failure instanceof CompletionException ? failure.getCause() : failure);
+                }
+            });
+        }
+        return winner;
+    }
+
+    /**
+     * Get the body of the response, decompressed when the server sent it with gzip. The body fails when
+     * it waits longer than the idle timeout for data.
+     *
+     * @param response        the response
+     * @param bodyIdleTimeout the longest time a read may wait for data
+     * @return the body stream
+     * @throws IOException if the gzip header cannot be read
+     */
+    private static InputStream decode(HttpResponse<InputStream> response, Duration bodyIdleTimeout) throws IOException {
+        boolean isGzip = response.headers().firstValue(HEADER_CONTENT_ENCODING)
+                .map(ENCODING_GZIP::equalsIgnoreCase).orElse(false);
+        InputStream body = new IdleTimeoutInputStream(response.body(), bodyIdleTimeout, BODY_WATCHDOG);
+        try {
+            return isGzip ? new GZIPInputStream(body) : body;
+        } catch (IOException e) {
+            body.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Check whether a failure was caused by a response body that timed out. The parser of the body may
+     * have wrapped it.
+     *
+     * @param exception the failure
+     * @return boolean
+     */
+    private static boolean isBodyTimeout(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exponential backoff with jitter: a random time between half and all of the exponential delay
+     *
+     * @param attempt the attempt that failed, starting at 1
+     * @return the time to wait in milliseconds
+     */
+    private static long backoffMillis(int attempt) {
+        long delay = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << (attempt - 1));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Sleep for the given time
+     *
+     * @param millis the time in milliseconds
+     * @throws IOException if the thread is interrupted
+     */
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    /**
+     * Close the body of a response without throwing
+     *
+     * @param response the response
+     */
+    private static void closeQuietly(HttpResponse<InputStream> response) {
+        try {
+            response.body().close();
+        } catch (IOException e) {
+            LOG.debug(">>> Failed to close response body: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a response
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    /**
+     * The response of a GET request
+     *
+     * @param statusCode the HTTP status code
+     * @param headers    the response headers
+     * @param body       the response body, already decompressed
+     * @param attempts   the number of attempts it took
+     */
+    public record Response(int statusCode, HttpHeaders headers, InputStream body, int attempts) implements Closeable {
+
+        /**
+         * Get the first value of a header
+         *
+         * @param name the header name
+         * @return the value, null when the header is not present
+         */
+        public String header(String name) {
+            return headers.firstValue(name).orElse(null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package in.adarshr.targetcloner.helper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A response body that fails when a read waits longer than the idle timeout for the server. A watchdog
+ * closes the body, which releases the connection and ends the blocked read; an interrupt would not. Only
+ * the time spent waiting in a read counts, so a slow reader does not time out. The failure is a
+ * {@link HttpTimeoutException}, which {@link HttpTransport} retries.
+ */
+class IdleTimeoutInputStream extends FilterInputStream {
+
+    private final long idleTimeoutNanos;
+    private final ScheduledFuture<?> watchdog;
+    private boolean isReading;
+    private long readStart;
+    private boolean isTimedOut;
+
+    /**
+     * Constructor
+     *
+     * @param in          the response body
+     * @param idleTimeout the longest time a read may wait for data
+     * @param scheduler   the scheduler the watchdog runs on
+     */
+    IdleTimeoutInputStream(InputStream in, Duration idleTimeout, ScheduledExecutorService scheduler) {
+        super(in);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        long period = Math.max(1, idleTimeout.toMillis() / 4);
+        this.watchdog = scheduler.scheduleAtFixedRate(this::checkIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int read() throws IOException {
+        return guard(() -> super.read());
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return guard(() -> super.read(b, off, len));
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return guard(() -> super.skip(n));
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchdog.cancel(false);
+        super.close();
+    }
+
+    /**
+     * Run a read while the watchdog can see it
+     *
+     * @param read the read
+     * @param <T>  the type of the result
+     * @return the result of the read
+     * @throws IOException if the read fails or waited too long
+     */
+    private <T> T guard(Read<T> read) throws IOException {
+        synchronized (this) {
+            if (isTimedOut) {
+                throw timeout();
+            }
+            isReading = true;
+            readStart = System.nanoTime();
+        }
+        try {
+            return read.run();
+        } catch (IOException e) {
+            if (hasTimedOut()) {
+                throw timeout();
+            }
+            throw e;
+        } finally {
+            synchronized (this) {
+                isReading = false;
+            }
+        }
+    }
+
+    /**
+     * Close the body when a read waited longer than the idle timeout
+     */
+    private void checkIdle() {
+        synchronized (this) {
+            if (!isReading || isTimedOut || System.nanoTime() - readStart < idleTimeoutNanos) {
+                return;
+            }
+            isTimedOut = true;
+        }
+        closeQuietly();
+    }
+
+    /**
+     * Check whether the watchdog closed the body
+     *
+     * @return boolean
+     */
+    private synchronized boolean hasTimedOut() {
+        return isTimedOut;
+    }
+
+    /**
+     * Create the failure of a read that waited too long
+     *
+     * @return HttpTimeoutException
+     */
+    private HttpTimeoutException timeout() {
+        return new HttpTimeoutException("No data received for " + idleTimeoutNanos / 1_000_000 + " ms");
+    }
+
+    /**
+     * Close the body without throwing
+     */
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            // The connection is dropped anyway
+        }
+    }
+
+    /**
+     * A read of the body
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    private interface Read<T> {
+        T run() throws IOException;
+    }
+}
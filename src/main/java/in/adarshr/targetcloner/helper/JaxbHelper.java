@@ -1,19 +1,24 @@
 package in.adarshr.targetcloner.helper;
 
-import in.adarshr.targetcloner.constants.SeparatorConstants;
 import in.adarshr.targetcloner.constants.XmlConstants;
 import in.adarshr.targetcloner.filter.NameSpaceFilter;
+import in.adarshr.targetcloner.writer.TargetXmlStreamWriter;
 import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Marshaller;
 import jakarta.xml.bind.Unmarshaller;
+import jakarta.xml.bind.annotation.XmlRootElement;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 
 import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
@@ -22,16 +27,29 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static in.adarshr.targetcloner.constants.TargetClonerConstants.JAXB_PACKAGE;
 import static in.adarshr.targetcloner.constants.TargetClonerConstants.JAXB_SCHEMA;
 
 /**
- * This class provides utility methods for JAXB operations.
+ * This class provides utility methods for JAXB operations. A JAXB context is created once per class or
+ * package and kept for the life of the JVM, and so is a compiled XSD schema. Marshallers and unmarshallers
+ * are not thread safe, so they are pooled per context: a caller borrows one, uses it on its own thread and
+ * gives it back.
  */
 public class JaxbHelper {
 
     private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(JaxbHelper.class);
+    private static final Map<Object, JAXBContext> CONTEXTS = new ConcurrentHashMap<>();
+    private static final Map<JAXBContext, Queue<Marshaller>> MARSHALLERS = new ConcurrentHashMap<>();
+    private static final Map<JAXBContext, Queue<Unmarshaller>> UNMARSHALLERS = new ConcurrentHashMap<>();
+    private static final Map<Path, Schema> SCHEMAS = new ConcurrentHashMap<>();
 
     /**
      * Private constructor to prevent instantiation
@@ -49,30 +67,45 @@ public class JaxbHelper {
      * @throws JAXBException if an error occurs during marshalling
      */
     public static <T> String marshal(T object, Class<T> clazz) throws JAXBException {
-        JAXBContext jaxbContext = JAXBContext.newInstance(clazz);
-        Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
-        jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        StringWriter stringWriter = new StringWriter();
-        jaxbMarshaller.marshal(object, stringWriter);
-        return stringWriter.toString();
+        JAXBContext jaxbContext = getContext(clazz);
+        Marshaller jaxbMarshaller = borrowMarshaller(jaxbContext);
+        try {
+            StringWriter stringWriter = new StringWriter();
+            jaxbMarshaller.marshal(object, stringWriter);
+            return stringWriter.toString();
+        } finally {
+            releaseMarshaller(jaxbContext, jaxbMarshaller);
+        }
     }
 
     /**
-     * Marshals the given object to XML with the given instruction.
+     * Marshals the given object as a target file, with the PDE version instruction after the XML declaration.
+     * The XML is written straight to the writer, elements are written without namespace.
      *
      * @param object the object to marshal
-     * @param clazz  the class of the object
+     * @param clazz  the class of the object, annotated with its root element
+     * @param writer the writer of the file, encoding UTF-8
      * @param <T>    the type of the object
-     * @return the XML string
-     * @throws JAXBException if an error occurs during marshalling
+     * @throws JAXBException      if an error occurs during marshalling
+     * @throws XMLStreamException if the file cannot be written
      */
-    public static <T> String marshalWithInstruction(T object, Class<T> clazz) throws JAXBException {
-        String xml = marshal(object, clazz);
-        int insertIndex = xml.indexOf(XmlConstants.XML_INSTRUCTION_MARKER) + 2;
-        String xmlString = xml.substring(0, insertIndex) + SeparatorConstants.LINE_BREAK + XmlConstants.PDE_VERSION_INSTRUCTION + xml.substring(insertIndex);
-        xmlString = xmlString.replaceAll(XmlConstants.XML_NAMESPACE_PREFIX, SeparatorConstants.EMPTY_STRING);
-        xmlString = xmlString.replaceAll(XmlConstants.XML_NAMESPACE_TARGET_CLONER, SeparatorConstants.EMPTY_STRING);
-        return xmlString;
+    public static <T> void marshalWithInstruction(T object, Class<T> clazz, Writer writer) throws JAXBException, XMLStreamException {
+        XMLStreamWriter xmlWriter = new TargetXmlStreamWriter(writer);
+        xmlWriter.writeStartDocument();
+        xmlWriter.writeProcessingInstruction(XmlConstants.PDE_INSTRUCTION_TARGET, XmlConstants.PDE_INSTRUCTION_DATA);
+        // The root element is marshalled without namespace, so no prefix has to be removed afterwards
+        QName rootName = new QName(clazz.getAnnotation(XmlRootElement.class).name());
+        JAXBContext jaxbContext = getContext(clazz);
+        Marshaller jaxbMarshaller = borrowMarshaller(jaxbContext);
+        try {
+            jaxbMarshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+            jaxbMarshaller.marshal(new JAXBElement<>(rootName, clazz, object), xmlWriter);
+        } finally {
+            jaxbMarshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.FALSE);
+            releaseMarshaller(jaxbContext, jaxbMarshaller);
+        }
+        xmlWriter.writeEndDocument();
+        xmlWriter.flush();
     }
 
     /**
@@ -85,15 +118,36 @@ public class JaxbHelper {
      */
     public static <T> T unmarshall(File xmlFile, Class<T> clazz) {
         try {
-            JAXBContext jaxbContext = JAXBContext.newInstance(clazz);
-            Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-            return clazz.cast(jaxbUnmarshaller.unmarshal(xmlFile));
+            return unmarshallOrThrow(xmlFile, clazz);
         } catch (JAXBException e) {
             LOG.error(">>> Failed to unmarshal input XML file: {}", e.getMessage());
             return null;
         }
     }
 
+    /**
+     * Unmarshal the given XML file to an object, leaving the error to the caller.
+     *
+     * @param xmlFile the XML file
+     * @param clazz   the class of the object
+     * @param <T>     the type of the object
+     * @return the unmarshalled object
+     * @throws JAXBException if the file cannot be read or its root element is not the given class
+     */
+    public static <T> T unmarshallOrThrow(File xmlFile, Class<T> clazz) throws JAXBException {
+        JAXBContext jaxbContext = getContext(clazz);
+        Unmarshaller jaxbUnmarshaller = borrowUnmarshaller(jaxbContext);
+        try {
+            Object object = jaxbUnmarshaller.unmarshal(xmlFile);
+            if (!clazz.isInstance(object)) {
+                throw new JAXBException("Root element of " + xmlFile + " is not a " + clazz.getSimpleName());
+            }
+            return clazz.cast(object);
+        } finally {
+            releaseUnmarshaller(jaxbContext, jaxbUnmarshaller);
+        }
+    }
+
     /**
      * Unmarshal and validates the given XML file against the given XSD file to an object.
      *
@@ -107,12 +161,15 @@ public class JaxbHelper {
      */
     public static <T> T unmarshallAndValidate(File xmlFile, File xsdFile, Class<T> clazz)
             throws JAXBException, SAXException {
-        SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        Schema schema = sf.newSchema(xsdFile);
-        JAXBContext jc = JAXBContext.newInstance(clazz);
-        Unmarshaller unmarshaller = jc.createUnmarshaller();
-        unmarshaller.setSchema(schema);
-        return unmarshaller.unmarshal(new StreamSource(xmlFile), clazz).getValue();
+        Schema schema = getSchema(xsdFile);
+        JAXBContext jc = getContext(clazz);
+        Unmarshaller unmarshaller = borrowUnmarshaller(jc);
+        try {
+            unmarshaller.setSchema(schema);
+            return unmarshaller.unmarshal(new StreamSource(xmlFile), clazz).getValue();
+        } finally {
+            releaseUnmarshaller(jc, unmarshaller);
+        }
     }
 
     /**
@@ -126,8 +183,8 @@ public class JaxbHelper {
     public static <T> T unmarshallWithoutNamespace(File xmlFile, Class<T> clazz) {
         try {
             //Prepare JAXB objects
-            JAXBContext jc = JAXBContext.newInstance(JAXB_PACKAGE);
-            Unmarshaller u = jc.createUnmarshaller();
+            JAXBContext jc = getContext(JAXB_PACKAGE);
+            Unmarshaller u = borrowUnmarshaller(jc);
             //Create an XMLReader to use with our filter
             XMLReader reader = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
             //Create the filter (to add namespace) and set the xmlReader as its parent.
@@ -138,10 +195,119 @@ public class JaxbHelper {
             //Create a SAXSource specifying the filter
             SAXSource source = new SAXSource(inFilter, is);
             //Do unmarshalling
-            return (T) u.unmarshal(source);
+            try {
+                return (T) u.unmarshal(source);
+            } finally {
+                releaseUnmarshaller(jc, u);
+            }
         } catch (JAXBException | IOException | SAXException | ParserConfigurationException e) {
             LOG.error(">>> Using alternate method since in.adarshr.targetcloner.helper.JaxbHelper.unmarshallWithoutNamespace failed to unmarshal input XML file: {}", e.getMessage());
             return unmarshall(xmlFile, clazz);
         }
     }
+
+    /**
+     * Get the JAXB context of a class. The context is created on first use and reused afterwards.
+     *
+     * @param clazz the class
+     * @return JAXBContext
+     * @throws JAXBException if the context cannot be created
+     */
+    public static JAXBContext getContext(Class<?> clazz) throws JAXBException {
+        JAXBContext context = CONTEXTS.get(clazz);
+        return context != null ? context : cacheContext(clazz, JAXBContext.newInstance(clazz));
+    }
+
+    /**
+     * Get the JAXB context of a package. The context is created on first use and reused afterwards.
+     *
+     * @param contextPath the package
+     * @return JAXBContext
+     * @throws JAXBException if the context cannot be created
+     */
+    public static JAXBContext getContext(String contextPath) throws JAXBException {
+        JAXBContext context = CONTEXTS.get(contextPath);
+        return context != null ? context : cacheContext(contextPath, JAXBContext.newInstance(contextPath));
+    }
+
+    /**
+     * Keep a new context, unless another thread created one for the same key first
+     *
+     * @param key     the class or package
+     * @param context the new context
+     * @return the context to use
+     */
+    private static JAXBContext cacheContext(Object key, JAXBContext context) {
+        JAXBContext existing = CONTEXTS.putIfAbsent(key, context);
+        return existing != null ? existing : context;
+    }
+
+    /**
+     * Get the compiled schema of an XSD file. The file is compiled on first use and reused afterwards, a
+     * compiled schema is thread safe.
+     *
+     * @param xsdFile the XSD file
+     * @return Schema
+     * @throws SAXException if the file cannot be compiled
+     */
+    public static Schema getSchema(File xsdFile) throws SAXException {
+        Path key = xsdFile.toPath().toAbsolutePath().normalize();
+        Schema schema = SCHEMAS.get(key);
+        if (schema == null) {
+            schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(xsdFile);
+            Schema existing = SCHEMAS.putIfAbsent(key, schema);
+            schema = existing != null ? existing : schema;
+        }
+        return schema;
+    }
+
+    /**
+     * Borrow a marshaller of the context from the pool, or create one when the pool is empty
+     *
+     * @param context the JAXB context
+     * @return Marshaller
+     * @throws JAXBException if a marshaller cannot be created
+     */
+    private static Marshaller borrowMarshaller(JAXBContext context) throws JAXBException {
+        Marshaller marshaller = MARSHALLERS.computeIfAbsent(context, key -> new ConcurrentLinkedQueue<>()).poll();
+        if (marshaller == null) {
+            marshaller = context.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        }
+        return marshaller;
+    }
+
+    /**
+     * Give a marshaller back to the pool
+     *
+     * @param context    the JAXB context
+     * @param marshaller the marshaller
+     */
+    private static void releaseMarshaller(JAXBContext context, Marshaller marshaller) {
+        MARSHALLERS.get(context).offer(marshaller);
+    }
+
+    /**
+     * Borrow an unmarshaller of the context from the pool, or create one when the pool is empty
+     *
+     * @param context the JAXB context
+     * @return Unmarshaller
+     * @throws JAXBException if an unmarshaller cannot be created
+     */
+    private static Unmarshaller borrowUnmarshaller(JAXBContext context) throws JAXBException {
+        Unmarshaller unmarshaller = UNMARSHALLERS.computeIfAbsent(context, key -> new ConcurrentLinkedQueue<>()).poll();
+        return unmarshaller != null ? unmarshaller : context.createUnmarshaller();
+    }
+
+    /**
+     * Give an unmarshaller back to the pool. The schema is removed, so the next borrower does not validate
+     * unless it asks to.
+     *
+     * @param context      the JAXB context
+     * @param unmarshaller the unmarshaller
+     */
+    private static void releaseUnmarshaller(JAXBContext context, Unmarshaller unmarshaller) {
+        unmarshaller.setSchema(null);
+        UNMARSHALLERS.get(context).offer(unmarshaller);
+    }
 }
@@ -0,0 +1,240 @@
+package in.adarshr.targetcloner.helper;
+
+import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.source.LocalFileInputStream;
+import in.adarshr.targetcloner.source.RepositorySource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * This class keeps the units parsed from the metadata of a repository in a binary index file, named by the
+ * SHA-256 of the metadata. Metadata that was parsed before, in an earlier run or for another repository with
+ * the same content, is loaded from its index instead of parsed again. All units are indexed, and the unit
+ * filter is applied when the index is loaded. Only metadata with a local copy is indexed, see
+ * {@link LocalFileInputStream}, since the index has to be found before the metadata is read.
+ * <p>
+ * The index is read through a memory-mapped file and has a fixed-width layout, all numbers big endian:
+ * <pre>
+ * int magic, int format version, int unit count, int string count
+ * int[string count + 1]  offset of each string in the string data, and the end of the string data
+ * int[unit count * 4]    string index of the id, version, singleton and generation of each unit, -1 for null
+ * byte[]                 string data, UTF-8
+ * </pre>
+ * An index of another format version is not read, so the metadata is parsed and indexed again.
+ */
+public class RepoUnitIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RepoUnitIndex.class);
+    private static final String INDEX_FILE_SUFFIX = ".units";
+    private static final int MAGIC = 0x54435549;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+    private static final int FIELDS_PER_UNIT = 4;
+    private static final int NULL_STRING = -1;
+
+    private final Path indexDirectory;
+
+    /**
+     * Constructor
+     *
+     * @param indexDirectory the directory to keep the index files in, created if it does not exist
+     * @throws IOException if the directory cannot be created
+     */
+    public RepoUnitIndex(Path indexDirectory) throws IOException {
+        this.indexDirectory = Files.createDirectories(indexDirectory);
+    }
+
+    /**
+     * Get the units of a metadata file. Metadata with a local copy is looked up by its digest, which is known
+     * without reading the stream, and only parsed and indexed when it has no index yet. Other metadata is
+     * parsed as it is read, its digest would only be known after the whole stream was read.
+     *
+     * @param metadataStream the metadata as it is stored in the repository
+     * @param parser         the parser of all the units of the metadata
+     * @param unitFilter     the filter of the unit ids to return
+     * @return the units accepted by the filter, in the order of the metadata
+     * @throws IOException if the metadata cannot be read or parsed
+     */
+    public List<RepoUnit> getUnits(InputStream metadataStream, RepositorySource.StreamReader<List<RepoUnit>> parser,
+                                   Predicate<String> unitFilter) throws IOException {
+        if (!(metadataStream instanceof LocalFileInputStream localStream)) {
+            return filter(parser.read(metadataStream), unitFilter);
+        }
+        Path indexFile = indexDirectory.resolve(localStream.getDigest() + INDEX_FILE_SUFFIX);
+        List<RepoUnit> repoUnits = read(indexFile, unitFilter);
+        if (repoUnits != null) {
+            LOG.info(">>> Loaded {} units from index: {}", repoUnits.size(), indexFile.getFileName());
+            return repoUnits;
+        }
+        List<RepoUnit> allUnits = parser.read(metadataStream);
+        write(indexFile, allUnits);
+        return filter(allUnits, unitFilter);
+    }
+
+    /**
+     * Get the units accepted by the filter
+     *
+     * @param allUnits   all units of the metadata
+     * @param unitFilter the filter of the unit ids
+     * @return List of unit
+     */
+    private static List<RepoUnit> filter(List<RepoUnit> allUnits, Predicate<String> unitFilter) {
+        List<RepoUnit> repoUnits = new ArrayList<>();
+        for (RepoUnit repoUnit : allUnits) {
+            if (unitFilter.test(repoUnit.getId())) {
+                repoUnits.add(repoUnit);
+            }
+        }
+        return repoUnits;
+    }
+
+    /**
+     * Read the units of an index file. Every string is decoded once, so the units share their equal strings.
+     *
+     * @param indexFile  the index file
+     * @param unitFilter the filter of the unit ids to return
+     * @return the units accepted by the filter, null when there is no index or it cannot be read
+     */
+    List<RepoUnit> read(Path indexFile, Predicate<String> unitFilter) {
+        if (!Files.isRegularFile(indexFile)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                LOG.info(">>> Index {} is of another format, it is built again", indexFile.getFileName());
+                return null;
+            }
+            int unitCount = buffer.getInt(8);
+            int stringCount = buffer.getInt(12);
+            long offsetsStart = HEADER_SIZE;
+            long unitsStart = offsetsStart + (stringCount + 1L) * Integer.BYTES;
+            long stringsStart = unitsStart + (long) unitCount * FIELDS_PER_UNIT * Integer.BYTES;
+            if (unitCount < 0 || stringCount < 0 || stringsStart > buffer.capacity()
+                    || stringsStart + buffer.getInt((int) unitsStart - Integer.BYTES) != buffer.capacity()) {
+                LOG.warn(">>> Index {} is truncated, it is built again", indexFile.getFileName());
+                return null;
+            }
+            String[] strings = new String[stringCount];
+            List<RepoUnit> repoUnits = new ArrayList<>();
+            for (int unit = 0; unit < unitCount; unit++) {
+                int fields = (int) unitsStart + unit * FIELDS_PER_UNIT * Integer.BYTES;
+                String id = getString(buffer, buffer.getInt(fields), strings, (int) stringsStart);
+                if (!unitFilter.test(id)) {
+                    continue;
+                }
+                RepoUnit repoUnit = new RepoUnit();
+                repoUnit.setId(id);
+                repoUnit.setVersion(getString(buffer, buffer.getInt(fields + Integer.BYTES), strings, (int) stringsStart));
+                repoUnit.setSingleton(getString(buffer, buffer.getInt(fields + 2 * Integer.BYTES), strings, (int) stringsStart));
+                repoUnit.setGeneration(getString(buffer, buffer.getInt(fields + 3 * Integer.BYTES), strings, (int) stringsStart));
+                repoUnits.add(repoUnit);
+            }
+            return repoUnits;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn(">>> Failed to read index {}, it is built again: {}", indexFile.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write the index of the units. The index is written to a temporary file first and then moved in place,
+     * so a reader never sees a partial index. An index that cannot be written is logged and left out.
+     *
+     * @param indexFile the index file
+     * @param repoUnits all units of the metadata
+     */
+    void write(Path indexFile, List<RepoUnit> repoUnits) {
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] fields = new int[repoUnits.size() * FIELDS_PER_UNIT];
+        for (int unit = 0; unit < repoUnits.size(); unit++) {
+            RepoUnit repoUnit = repoUnits.get(unit);
+            fields[unit * FIELDS_PER_UNIT] = getStringIndex(repoUnit.getId(), stringIndexes, strings);
+            fields[unit * FIELDS_PER_UNIT + 1] = getStringIndex(repoUnit.getVersion(), stringIndexes, strings);
+            fields[unit * FIELDS_PER_UNIT + 2] = getStringIndex(repoUnit.getSingleton(), stringIndexes, strings);
+            fields[unit * FIELDS_PER_UNIT + 3] = getStringIndex(repoUnit.getGeneration(), stringIndexes, strings);
+        }
+        try {
+            Path tempFile = Files.createTempFile(indexDirectory, indexFile.getFileName().toString(), null);
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeInt(repoUnits.size());
+                    out.writeInt(strings.size());
+                    int offset = 0;
+                    for (byte[] string : strings) {
+                        out.writeInt(offset);
+                        offset += string.length;
+                    }
+                    out.writeInt(offset);
+                    for (int field : fields) {
+                        out.writeInt(field);
+                    }
+                    for (byte[] string : strings) {
+                        out.write(string);
+                    }
+                }
+                Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            LOG.warn(">>> Failed to write index {}: {}", indexFile.getFileName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Get a string of the index, decoding it the first time it is used
+     *
+     * @param buffer       the index
+     * @param index        the index of the string, -1 for null
+     * @param strings      the strings decoded so far
+     * @param stringsStart the position of the string data
+     * @return String
+     */
+    private static String getString(ByteBuffer buffer, int index, String[] strings, int stringsStart) {
+        if (index == NULL_STRING) {
+            return null;
+        }
+        if (strings[index] == null) {
+            int start = buffer.getInt(HEADER_SIZE + index * Integer.BYTES);
+            int end = buffer.getInt(HEADER_SIZE + (index + 1) * Integer.BYTES);
+            byte[] bytes = new byte[end - start];
+            buffer.get(stringsStart + start, bytes);
+            strings[index] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings[index];
+    }
+
+    /**
+     * Get the index of a string in the string table, adding it when it is new
+     *
+     * @param value         the string, may be null
+     * @param stringIndexes the index of every string in the table
+     * @param strings       the UTF-8 bytes of the strings in the table
+     * @return the index, -1 for null
+     */
+    private static int getStringIndex(String value, Map<String, Integer> stringIndexes, List<byte[]> strings) {
+        if (value == null) {
+            return NULL_STRING;
+        }
+        return stringIndexes.computeIfAbsent(value, key -> {
+            strings.add(key.getBytes(StandardCharsets.UTF_8));
+            return strings.size() - 1;
+        });
+    }
+}
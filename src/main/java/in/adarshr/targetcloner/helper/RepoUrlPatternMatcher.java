@@ -0,0 +1,154 @@
+package in.adarshr.targetcloner.helper;
+
+import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.data.Pattern;
+import in.adarshr.targetcloner.utils.AhoCorasick;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+
+/**
+ * This class matches the repository locations of the input targets to the delivery report entries. An entry
+ * matches a location for a pattern when the location contains the group and the artifact of the entry, both
+ * with the current url pattern replaced by the future one. The tokens of every entry and pattern are computed
+ * once and compiled into an Aho-Corasick automaton, so a location finds all the tokens it contains in a single
+ * pass instead of checking every entry and pattern.
+ */
+public class RepoUrlPatternMatcher {
+
+    private static final int[] NO_PAIRS = new int[0];
+
+    private final List<Pattern> patterns;
+    private final List<DeliveryReport> deliveryReports;
+    private final AhoCorasick automaton;
+    // Token of the group and the artifact of every entry and pattern, at index entry * patterns + pattern
+    private final int[] groupTokens;
+    private final int[] artifactTokens;
+    // The entry and pattern pairs that have the token as group token
+    private final int[][] pairsByGroupToken;
+
+    /**
+     * Compile the patterns for the delivery report entries
+     *
+     * @param patterns        the repository url patterns
+     * @param deliveryReports the delivery report entries, in the order they are matched in
+     */
+    public RepoUrlPatternMatcher(List<Pattern> patterns, Collection<DeliveryReport> deliveryReports) {
+        this.patterns = List.copyOf(patterns);
+        this.deliveryReports = new ArrayList<>(deliveryReports);
+        int pairCount = this.deliveryReports.size() * this.patterns.size();
+        this.groupTokens = new int[pairCount];
+        this.artifactTokens = new int[pairCount];
+        Arrays.fill(groupTokens, -1);
+        Arrays.fill(artifactTokens, -1);
+
+        Map<String, Integer> tokenIds = new HashMap<>();
+        List<String> tokens = new ArrayList<>();
+        Map<Integer, List<Integer>> pairs = new HashMap<>();
+        for (int entry = 0; entry < this.deliveryReports.size(); entry++) {
+            DeliveryReport deliveryReport = this.deliveryReports.get(entry);
+            if (deliveryReport == null || deliveryReport.getGroup() == null || deliveryReport.getArtifact() == null) {
+                continue;
+            }
+            for (int pattern = 0; pattern < this.patterns.size(); pattern++) {
+                Pattern repoUrlPattern = this.patterns.get(pattern);
+                int pair = entry * this.patterns.size() + pattern;
+                groupTokens[pair] = getTokenId(formatUrlPatternData(deliveryReport.getGroup(),
+                        repoUrlPattern.getCurrentGroupUrlPattern(), repoUrlPattern.getFutureGroupUrlPattern()), tokenIds, tokens);
+                artifactTokens[pair] = getTokenId(formatUrlPatternData(deliveryReport.getArtifact(),
+                        repoUrlPattern.getCurrentArtifactUrlPattern(), repoUrlPattern.getFutureArtifactUrlPattern()), tokenIds, tokens);
+                pairs.computeIfAbsent(groupTokens[pair], token -> new ArrayList<>()).add(pair);
+            }
+        }
+        this.automaton = new AhoCorasick(tokens);
+        this.pairsByGroupToken = new int[tokens.size()][];
+        for (int token = 0; token < tokens.size(); token++) {
+            List<Integer> tokenPairs = pairs.get(token);
+            pairsByGroupToken[token] = tokenPairs == null ? NO_PAIRS : tokenPairs.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Find the delivery report entries that match a location. An entry matches when, for the first pattern whose
+     * group and artifact the location contains and that accepts the entry, the entry is from the report and the
+     * pattern uses the report, or the entry is made from the pattern and has its version.
+     *
+     * @param locationUrl the repository location of an input location
+     * @return the matching entries, in the order of the entries
+     */
+    public List<DeliveryReport> findMatches(String locationUrl) {
+        if (locationUrl == null) {
+            return Collections.emptyList();
+        }
+        BitSet foundTokens = automaton.findAll(locationUrl);
+        BitSet candidates = new BitSet(deliveryReports.size());
+        for (int token = foundTokens.nextSetBit(0); token >= 0; token = foundTokens.nextSetBit(token + 1)) {
+            for (int pair : pairsByGroupToken[token]) {
+                if (foundTokens.get(artifactTokens[pair])) {
+                    candidates.set(pair / patterns.size());
+                }
+            }
+        }
+        List<DeliveryReport> matches = new ArrayList<>();
+        for (int entry = candidates.nextSetBit(0); entry >= 0; entry = candidates.nextSetBit(entry + 1)) {
+            if (isAccepted(entry, foundTokens)) {
+                matches.add(deliveryReports.get(entry));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Check if a pattern whose tokens are in the location accepts the entry
+     *
+     * @param entry       the index of the entry
+     * @param foundTokens the tokens in the location
+     * @return boolean
+     */
+    private boolean isAccepted(int entry, BitSet foundTokens) {
+        DeliveryReport deliveryReport = deliveryReports.get(entry);
+        for (int pattern = 0; pattern < patterns.size(); pattern++) {
+            int pair = entry * patterns.size() + pattern;
+            if (foundTokens.get(groupTokens[pair]) && foundTokens.get(artifactTokens[pair])) {
+                Pattern repoUrlPattern = patterns.get(pattern);
+                boolean condA = !repoUrlPattern.isUseDeliveryReport() && deliveryReport.isExternalEntry()
+                        && deliveryReport.getVersion().equals(repoUrlPattern.getVersion());
+                boolean condB = repoUrlPattern.isUseDeliveryReport() && !deliveryReport.isExternalEntry();
+                if (condA || condB) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the id of a token, adding it when it is new
+     *
+     * @param token    the token
+     * @param tokenIds the ids of the tokens
+     * @param tokens   the tokens by id
+     * @return int
+     */
+    private static int getTokenId(String token, Map<String, Integer> tokenIds, List<String> tokens) {
+        return tokenIds.computeIfAbsent(token, key -> {
+            tokens.add(key);
+            return tokens.size() - 1;
+        });
+    }
+
+    /**
+     * Format the delivery report data with the pattern, the current url pattern is replaced by the future one
+     *
+     * @param deliveryData  Delivery data
+     * @param currentFormat Current format
+     * @param futureFormat  Future format
+     * @return String
+     */
+    static String formatUrlPatternData(String deliveryData, String currentFormat, String futureFormat) {
+        if (deliveryData != null) {
+            return deliveryData.replace(currentFormat, futureFormat).trim();
+        }
+        return StringUtils.EMPTY;
+    }
+}
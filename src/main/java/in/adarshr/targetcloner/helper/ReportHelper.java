@@ -1,27 +1,38 @@
 package in.adarshr.targetcloner.helper;
 
 import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.bo.Gav;
 import in.adarshr.targetcloner.bo.RepoData;
 import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.bo.ReportChangeSet;
+import in.adarshr.targetcloner.bo.ReportParseResult;
+import in.adarshr.targetcloner.constants.Placeholder;
 import in.adarshr.targetcloner.constants.ReportSource;
 import in.adarshr.targetcloner.constants.SeparatorConstants;
 import in.adarshr.targetcloner.data.*;
 import in.adarshr.targetcloner.dto.TargetData;
+import in.adarshr.targetcloner.template.PlaceholderTemplate;
+import in.adarshr.targetcloner.template.TargetTemplates;
 import in.adarshr.targetcloner.utils.TargetClonerUtil;
+import in.adarshr.targetcloner.utils.UnitIdPattern;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
-import java.net.URI;
-import java.net.URL;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
-
-import static in.adarshr.targetcloner.constants.TargetClonerConstants.*;
+import java.util.function.Function;
 
 public class ReportHelper {
     private static final Logger LOG = LoggerFactory.getLogger(ReportHelper.class);
+    private static final Comparator<Gav> GAV_ORDER = Comparator.comparing(Gav::group, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Gav::artifact, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Gav::version, Comparator.nullsFirst(Comparator.naturalOrder()));
 
     /**
      * Private constructor
@@ -30,22 +41,22 @@ public class ReportHelper {
     }
 
     /**
-     * Get jar urls
+     * Get the repositories to query. The location of each repository is its base url ending with a separator,
+     * the metadata file to read is chosen when the repository is resolved.
      *
      * @param targetData TargetData
+     * @param snapshot   the delivery report snapshot of the last run, the correlations of this run are put in it
      * @return Set
      */
-    public static Set<RepoData> getSelectedReposForJarQueryUrls(TargetData targetData) {
-        Map<String, Map<String, RepoData>> componentRepoMap = createRepoDataMap(targetData);
+    public static Set<RepoData> getSelectedReposForJarQueryUrls(TargetData targetData, DeliveryReportSnapshot snapshot) {
+        Map<String, Map<String, RepoData>> componentRepoMap = createRepoDataMap(targetData, snapshot);
         targetData.setComponentRepoDataMap(componentRepoMap);
         Set<RepoData> jarUrls = new HashSet<>();
         componentRepoMap.forEach((key, value) -> {
             if (value != null && !value.isEmpty()) {
                 value.forEach((k, v) -> {
-                    if (v != null && v.getLocation() != null && v.getLocation().endsWith(SeparatorConstants.LOCATION_SEPARATOR)) {
-                        v.setLocation(v.getLocation() + CONTENT_JAR);
-                    } else if (v != null && v.getLocation() != null && !v.getLocation().endsWith(SeparatorConstants.LOCATION_SEPARATOR)) {
-                        v.setLocation(v.getLocation() + CONTENT_JAR_WITH_SEPARATOR);
+                    if (v != null && v.getLocation() != null && !v.getLocation().endsWith(SeparatorConstants.LOCATION_SEPARATOR)) {
+                        v.setLocation(v.getLocation() + SeparatorConstants.LOCATION_SEPARATOR);
                     }
                     jarUrls.add(v);
                 });
@@ -55,17 +66,47 @@ public class ReportHelper {
         return jarUrls;
     }
 
+    /**
+     * Get the ids of the units each repository has to provide, so the others are not created when its
+     * metadata is parsed. These are the units of every input location that maps to the repository, plus the
+     * plugins of all include bundles, which are looked up in all repositories. An id with wildcards is kept
+     * as it is, it keeps every unit it matches, see {@link UnitIdPattern#filterOf(Set)}.
+     *
+     * @param targetData TargetData
+     * @return Map of repository and unit ids
+     */
+    public static Map<RepoData, Set<String>> getWantedUnitIds(TargetData targetData) {
+        Set<String> pluginIds = new HashSet<>();
+        for (Target inputTarget : targetData.getInputTargets()) {
+            if (inputTarget.getIncludeBundles() != null) {
+                inputTarget.getIncludeBundles().getPlugin().stream()
+                        .map(Plugin::getId).filter(Objects::nonNull).forEach(pluginIds::add);
+            }
+        }
+        // Equal repositories of different targets are fetched once, so their units are merged
+        Map<RepoData, Set<String>> wantedUnitIds = new HashMap<>();
+        targetData.getComponentRepoDataMap().values().forEach(repoDataMap -> repoDataMap.values().forEach(repoData -> {
+            Set<String> unitIds = wantedUnitIds.computeIfAbsent(repoData, key -> new HashSet<>(pluginIds));
+            repoData.getRepoUnits().stream().map(RepoUnit::getId).filter(Objects::nonNull).forEach(unitIds::add);
+        }));
+        return wantedUnitIds;
+    }
+
     /**
      * Create repo data map. Get delivery report for location. This method just creates a map with URL both old and new as key and
      * RepoData as value. This is used to get the RepoData for the old url when creating the
      * output targets. Just to make life easier. Target name is the key for the outer map and new url is
-     * the key for the inner map
+     * the key for the inner map. The unit selection of a repository is the one of the url pattern its location
+     * was correlated with.
      *
      * @param targetData TargetData
+     * @param snapshot   the delivery report snapshot of the last run
      * @return Map
      */
-    private static Map<String, Map<String, RepoData>> createRepoDataMap(TargetData targetData) {
-        Map<String, Map<String, DeliveryReport>> mapOfDeliveryReportForInputTargets = createDeliveryReportForInputTargets(targetData);
+    private static Map<String, Map<String, RepoData>> createRepoDataMap(TargetData targetData, DeliveryReportSnapshot snapshot) {
+        Map<String, DeliveryReportSnapshot.Correlation> correlations = correlateInputLocations(targetData, snapshot);
+        List<Pattern> patterns = targetData.getTargetDetails().getRepoUrlPatterns().getPattern();
+        Map<Gav, DeliveryReport> deliveryReportMap = targetData.getDeliveryReportMap();
         Map<String, Map<String, RepoData>> compoenentRepoDataMap = new HashMap<>();
         List<Target> inputTargets = targetData.getInputTargets();
         for (Target inputTarget : inputTargets) {
@@ -73,15 +114,13 @@ public class ReportHelper {
             List<Location> inputLocations = inputTarget.getLocations().getLocation();
             RepoData repoData;
             for (Location inputLocation : inputLocations) {
-                Map<String, DeliveryReport> newUrlDeliveryReportMap =
-                        mapOfDeliveryReportForInputTargets.get(inputLocation.getRepository().getLocation());
-                if (newUrlDeliveryReportMap != null) {
-                    for (Map.Entry<String, DeliveryReport> entry : newUrlDeliveryReportMap.entrySet()) {
-                        DeliveryReport deliveryReport = entry.getValue();
-                        if (deliveryReport != null) {
-                            repoData = createRepoData(deliveryReport, inputLocation, entry.getKey());
-                            repoDataMap.put(inputLocation.getRepository().getLocation(), repoData); //input url as key
-                        }
+                DeliveryReportSnapshot.Correlation correlation = correlations.get(inputLocation.getRepository().getLocation());
+                if (correlation != null && correlation.gav() != null) {
+                    DeliveryReport deliveryReport = deliveryReportMap.get(correlation.gav());
+                    if (deliveryReport != null) {
+                        repoData = createRepoData(deliveryReport, inputLocation, correlation.newUrl());
+                        repoData.setUnitSelection(patterns.get(correlation.patternIndex()).getUnitSelection());
+                        repoDataMap.put(inputLocation.getRepository().getLocation(), repoData); //input url as key
                     }
                 }
             }
@@ -91,126 +130,153 @@ public class ReportHelper {
     }
 
     /**
-     * Get delivery report for location. This method just creates a map with URL both old and new as key and
-     * delivery report as value. This is used to get the delivery report for the old url when creating the
-     * output targets. Just to make life easier. Old/Existing url is the key for the outer map and new url is
-     * the key for the inner map.
+     * Correlate the locations of the input targets with the delivery report: the entry, the new url and the
+     * url pattern that gave it. A location keeps the correlation of the last run when it was not correlated
+     * with a removed or changed entry, and no added or changed entry matches it.
      *
      * @param targetData TargetData
-     * @return DeliveryReport
+     * @param snapshot   the delivery report snapshot of the last run
+     * @return Map of the repository location of an input location and its correlation
      */
-    private static Map<String, Map<String, DeliveryReport>> createDeliveryReportForInputTargets(TargetData targetData) {
+    private static Map<String, DeliveryReportSnapshot.Correlation> correlateInputLocations(TargetData targetData, DeliveryReportSnapshot snapshot) {
         List<Target> inputTargets = targetData.getInputTargets();
-        Map<String, DeliveryReport> deliveryReportMap = targetData.getDeliveryReportMap();
-        Map<String, Map<String, DeliveryReport>> targetDeliveryReportMap = new HashMap<>();
+        List<Pattern> patterns = targetData.getTargetDetails().getRepoUrlPatterns().getPattern();
+        Map<Gav, DeliveryReport> deliveryReportMap = targetData.getDeliveryReportMap();
+        ReportChangeSet changeSet = snapshot.getChangeSet(deliveryReportMap, patterns);
+        LOG.info(">>> Delivery report changes since the last run: {} added, {} removed, {} changed",
+                changeSet.added().size(), changeSet.removed().size(), changeSet.changed().size());
+        List<DeliveryReport> changedEntries = new ArrayList<>();
+        deliveryReportMap.forEach((gav, deliveryReport) -> {
+            if (changeSet.isAddedOrChanged(gav)) {
+                changedEntries.add(deliveryReport);
+            }
+        });
+        RepoUrlPatternMatcher changedMatcher = new RepoUrlPatternMatcher(patterns, changedEntries);
+        // Matching all entries is only needed for the locations that have to be correlated again
+        RepoUrlPatternMatcher matcher = null;
+        Map<String, DeliveryReportSnapshot.Correlation> correlations = new HashMap<>();
+        Set<String> affectedComponents = new TreeSet<>();
         for (Target inputTarget : inputTargets) {
             List<Location> inputLocations = inputTarget.getLocations().getLocation();
             for (Location inputLocation : inputLocations) {
                 String inputLocationUrl = inputLocation.getRepository().getLocation();
-                for (Map.Entry<String, DeliveryReport> entry : deliveryReportMap.entrySet()) {
-                    DeliveryReport deliveryReport = entry.getValue();
-                    boolean isFound = setDeliveryReportForRelatedRepositoryUrl(targetData, deliveryReport, inputLocationUrl, targetDeliveryReportMap);
-                    if (isFound) {
-                        break;
+                if (inputLocationUrl == null || correlations.containsKey(inputLocationUrl)) {
+                    continue;
+                }
+                DeliveryReportSnapshot.Correlation correlation = snapshot.getPreviousCorrelation(inputLocationUrl);
+                boolean isAffected = correlation == null
+                        || (correlation.gav() != null && changeSet.isRemovedOrChanged(correlation.gav()))
+                        || !changedMatcher.findMatches(inputLocationUrl).isEmpty();
+                if (isAffected) {
+                    if (matcher == null) {
+                        matcher = new RepoUrlPatternMatcher(patterns, getEntriesInOrder(deliveryReportMap));
                     }
+                    correlation = correlateLocation(inputLocationUrl, matcher, targetData);
+                    affectedComponents.add(inputTarget.getName());
                 }
+                correlations.put(inputLocationUrl, correlation);
+                snapshot.putCorrelation(inputLocationUrl, correlation);
             }
         }
-        return targetDeliveryReportMap;
+        LOG.info(">>> Repo correlation recomputed for {} components: {}", affectedComponents.size(), affectedComponents);
+        return correlations;
     }
 
     /**
-     * Set delivery report on location
+     * Get the delivery report entries in the order they are matched in: by group, artifact and version. The
+     * order does not depend on the map, so the entry a location is correlated with only changes when the
+     * entries that match it change.
      *
-     * @param targetData              TargetData
-     * @param deliveryReport          DeliveryReport
-     * @param inputLocationUrl        String
-     * @param targetDeliveryReportMap Map
+     * @param deliveryReportMap the delivery report entries
+     * @return List
+     */
+    private static List<DeliveryReport> getEntriesInOrder(Map<Gav, DeliveryReport> deliveryReportMap) {
+        List<Gav> keys = new ArrayList<>(deliveryReportMap.keySet());
+        keys.sort(GAV_ORDER);
+        List<DeliveryReport> entries = new ArrayList<>(keys.size());
+        keys.forEach(key -> entries.add(deliveryReportMap.get(key)));
+        return entries;
+    }
+
+    /**
+     * Correlate a location with the first matching entry that gives a new url for it
+     *
+     * @param inputLocationUrl the repository location of the input location
+     * @param matcher          the matcher of all entries
+     * @param targetData       TargetData
+     * @return the correlation, {@link DeliveryReportSnapshot.Correlation#NONE} when no entry gives a new url
      */
-    private static boolean setDeliveryReportForRelatedRepositoryUrl(TargetData targetData, DeliveryReport deliveryReport, String inputLocationUrl,
-                                                                 Map<String, Map<String, DeliveryReport>> targetDeliveryReportMap) {
-        boolean isFound = false;
-        deliveryReport = getDeliveryReportForLocation(inputLocationUrl, deliveryReport, targetData);
-        if (deliveryReport != null) {
-            String newLocationUrl = getNewUrlForLocation(inputLocationUrl, deliveryReport, targetData);
-            if (StringUtils.isNotEmpty(inputLocationUrl) && StringUtils.isNotEmpty(newLocationUrl)) {
-                Map<String, DeliveryReport> targetDeliveryReport = new HashMap<>();
-                targetDeliveryReport.put(newLocationUrl, deliveryReport);
-                targetDeliveryReportMap.put(inputLocationUrl, targetDeliveryReport);
-                isFound = true;
+    private static DeliveryReportSnapshot.Correlation correlateLocation(String inputLocationUrl, RepoUrlPatternMatcher matcher, TargetData targetData) {
+        for (DeliveryReport deliveryReport : matcher.findMatches(inputLocationUrl)) {
+            UrlMatch urlMatch = getNewUrlForLocation(inputLocationUrl, deliveryReport, targetData);
+            if (StringUtils.isNotEmpty(inputLocationUrl) && urlMatch != null && StringUtils.isNotEmpty(urlMatch.newUrl())) {
+                Gav gav = new Gav(deliveryReport.getGroup(), deliveryReport.getArtifact(), deliveryReport.getVersion());
+                return new DeliveryReportSnapshot.Correlation(gav, urlMatch.newUrl(), urlMatch.patternIndex());
             }
         }
-        return isFound;
+        return DeliveryReportSnapshot.Correlation.NONE;
     }
 
     /**
-     * Retrieves the delivery report for the location based on pattern matching
+     * Create the new url for the location from the first pattern that gives one. The part of the url pattern
+     * before the version has to be in the location, the whole url pattern when it has no version.
      *
-     * @param inputLocationUrl String
+     * @param inputLocationUrl the repository location of the input location
+     * @param deliveryReport   DeliveryReport
      * @param targetData       TargetData
-     * @return DeliveryReport
+     * @return the new url and the position of its pattern, null when no pattern gives a new url
      */
-    private static DeliveryReport getDeliveryReportForLocation(String inputLocationUrl, DeliveryReport deliveryReport, TargetData targetData) {
+    private static UrlMatch getNewUrlForLocation(String inputLocationUrl, DeliveryReport deliveryReport, TargetData targetData) {
         List<Pattern> patterns = targetData.getTargetDetails().getRepoUrlPatterns().getPattern();
-        if (deliveryReport != null && deliveryReport.getGroup() != null && deliveryReport.getArtifact() != null) {
-            for (Pattern pattern : patterns) {
-                String group = formatUrlPatternData(deliveryReport.getGroup(), pattern.getCurrentGroupUrlPattern(), pattern.getFutureGroupUrlPattern());
-                String artifact = formatUrlPatternData(deliveryReport.getArtifact(), pattern.getCurrentArtifactUrlPattern(), pattern.getFutureArtifactUrlPattern());
-                if ((StringUtils.contains(inputLocationUrl, group) && StringUtils.contains(inputLocationUrl, artifact))){
-                    boolean condA = !pattern.isUseDeliveryReport() && deliveryReport.isExternalEntry() && deliveryReport.getVersion().equals(pattern.getVersion());
-                    boolean condB = pattern.isUseDeliveryReport() && !deliveryReport.isExternalEntry();
-                    if(condA || condB){
-                        return deliveryReport;
-                    }
-                }
+        for (int patternIndex = 0; patternIndex < patterns.size(); patternIndex++) {
+            String newUrl = getNewUrlForPattern(inputLocationUrl, deliveryReport, patterns.get(patternIndex), getTemplates(targetData));
+            if (newUrl != null) {
+                return new UrlMatch(patternIndex, newUrl);
             }
         }
-
         return null;
     }
 
     /**
-     * Create the new url for the location from the pattern
+     * Create the new url for the location from a pattern
      *
-     * @param deliveryReport DeliveryReport
-     * @param targetData     TargetData
-     * @return String
+     * @param inputLocationUrl the repository location of the input location
+     * @param deliveryReport   DeliveryReport
+     * @param pattern          the pattern
+     * @param templates        the formats of the input XML
+     * @return String, null when the pattern does not give a new url for the location
      */
-    private static String getNewUrlForLocation(String inputLocationUrl, DeliveryReport deliveryReport, TargetData targetData) {
-        List<Pattern> patterns = targetData.getTargetDetails().getRepoUrlPatterns().getPattern();
-        String newUrl = null;
-        for (Pattern pattern : patterns) {
-            String group = formatUrlPatternData(deliveryReport.getGroup(), pattern.getCurrentGroupUrlPattern(), pattern.getFutureGroupUrlPattern());
-            String artifact = formatUrlPatternData(deliveryReport.getArtifact(), pattern.getCurrentArtifactUrlPattern(), pattern.getFutureArtifactUrlPattern());
-            String version = formatUrlPatternData(deliveryReport.getVersion(), pattern.getCurrentVersionUrlPattern(), pattern.getFutureVersionUrlPattern());
-            if (inputLocationUrl.contains(group) && inputLocationUrl.contains(artifact)) {
-                newUrl =  pattern.getUrlPattern().replace(PLACEHOLDER_GROUP, group)
-                        .replace(PLACEHOLDER_ARTIFACT, artifact);
-                String partialNewUrl = newUrl.substring(0, newUrl.indexOf(PLACEHOLDER_VERSION));
-                if(inputLocationUrl.contains(partialNewUrl)) {
-                    newUrl = newUrl.replace(PLACEHOLDER_VERSION, version);
-                    break;
-                }else{
-                    newUrl = null;
-                }
+    private static String getNewUrlForPattern(String inputLocationUrl, DeliveryReport deliveryReport, Pattern pattern, TargetTemplates templates) {
+        String group = RepoUrlPatternMatcher.formatUrlPatternData(deliveryReport.getGroup(), pattern.getCurrentGroupUrlPattern(), pattern.getFutureGroupUrlPattern());
+        String artifact = RepoUrlPatternMatcher.formatUrlPatternData(deliveryReport.getArtifact(), pattern.getCurrentArtifactUrlPattern(), pattern.getFutureArtifactUrlPattern());
+        String version = RepoUrlPatternMatcher.formatUrlPatternData(deliveryReport.getVersion(), pattern.getCurrentVersionUrlPattern(), pattern.getFutureVersionUrlPattern());
+        if (inputLocationUrl.contains(group) && inputLocationUrl.contains(artifact)) {
+            PlaceholderTemplate urlPattern = templates.getUrlPattern(pattern);
+            Function<Placeholder, String> values = placeholder -> switch (placeholder) {
+                case GROUP -> group;
+                case ARTIFACT -> artifact;
+                case VERSION -> version;
+                default -> null;
+            };
+            String partialNewUrl = urlPattern.renderUntil(Placeholder.VERSION, values);
+            if (inputLocationUrl.contains(partialNewUrl)) {
+                return urlPattern.render(values);
             }
         }
-        return newUrl;
+        return null;
     }
 
     /**
-     * Format the input p data
+     * Get the formats of the input XML, parsing them when it was not done yet
      *
-     * @param deliveryData  Delivery data
-     * @param currentFormat Current format
-     * @param futureFormat  Future format
-     * @return String
+     * @param targetData TargetData
+     * @return TargetTemplates
      */
-    private static String formatUrlPatternData(String deliveryData, String currentFormat, String futureFormat) {
-        if (deliveryData != null) {
-            return deliveryData.replace(currentFormat, futureFormat).trim();
+    private static TargetTemplates getTemplates(TargetData targetData) {
+        if (targetData.getTemplates() == null) {
+            targetData.setTemplates(TargetTemplates.compile(targetData.getTargetDetails()));
         }
-        return StringUtils.EMPTY;
+        return targetData.getTemplates();
     }
 
     /**
@@ -220,15 +286,14 @@ public class ReportHelper {
      * @param targetData        TargetData
      * @param deliveryReportMap DeliveryReport map
      */
-    private static Map<String, DeliveryReport> updateDeliveryReportForNonReportCase(TargetData targetData, Map<String, DeliveryReport> deliveryReportMap) {
+    private static Map<Gav, DeliveryReport> updateDeliveryReportForNonReportCase(TargetData targetData, Map<Gav, DeliveryReport> deliveryReportMap) {
         int initialSize = deliveryReportMap.size();
         List<Pattern> patterns = targetData.getTargetDetails().getRepoUrlPatterns().getPattern();
         for (Pattern pattern : patterns) {
             if (Boolean.FALSE.equals(pattern.isUseDeliveryReport())) {
                 DeliveryReport deliveryReport =
                         new DeliveryReport(null, pattern.getGroupId(), pattern.getArtifact(), pattern.getVersion(), null, null, true);
-                deliveryReportMap.put(TargetClonerUtil.deliveryReportKey(
-                        deliveryReport.getGroup(), deliveryReport.getArtifact(), deliveryReport.getVersion()), deliveryReport);
+                deliveryReportMap.put(new Gav(deliveryReport.getGroup(), deliveryReport.getArtifact(), deliveryReport.getVersion()), deliveryReport);
             }
         }
         int finalSize = deliveryReportMap.size();
@@ -274,90 +339,95 @@ public class ReportHelper {
     }
 
     /**
-     * Get report data from the delivery report file
+     * Get report data from the delivery report file. The report is parsed while it is read, and the lines that
+     * cannot be parsed are logged and left out.
      *
      * @param reportFileLocation Report file location
      * @param linesToSkip        Lines to skip
+     * @param sourceType         Source type
+     * @param httpTransport      Transport to read URLs with
+     * @param repositoryCache    Cache to keep the report of a URL in, null to read it from the URL every time
      * @return Map of DeliveryReport
      */
-    public static Map<String, DeliveryReport> getDeliveryReport(String reportFileLocation, int linesToSkip, int sourceType) {
-        Map<String, DeliveryReport> deliveryReportMap = new HashMap<>();
+    public static Map<Gav, DeliveryReport> getDeliveryReport(String reportFileLocation, int linesToSkip, int sourceType,
+                                                             HttpTransport httpTransport, RepositoryCache repositoryCache) {
         try {
-            String reportFile;
-            if (sourceType == ReportSource.URL.getValue()) {
-                reportFile = readFileFromUrl(reportFileLocation, linesToSkip);
+            ReportParseResult parseResult;
+            if (sourceType == ReportSource.URL.getValue() && repositoryCache != null) {
+                parseResult = parseReportFromDirectory(repositoryCache.fetch(reportFileLocation).path().toString(), linesToSkip);
+            } else if (sourceType == ReportSource.URL.getValue()) {
+                parseResult = parseReportFromUrl(reportFileLocation, linesToSkip, httpTransport);
             } else {
-                reportFile = readFileFromDirectory(reportFileLocation, linesToSkip);
+                parseResult = parseReportFromDirectory(reportFileLocation, linesToSkip);
             }
-            if (reportFile == null) {
+            parseResult.getMalformedLines().forEach(malformedLine -> LOG.warn("!!! Malformed delivery report line {}: {} ({}) !!!",
+                    malformedLine.getLineNumber(), malformedLine.getLine(), malformedLine.getError()));
+            if (parseResult.getDeliveryReports().isEmpty()) {
                 LOG.error("!!! Report file is null/empty or cannot be read. !!!");
-                return Collections.emptyMap();
-            } else {
-                for (String line : reportFile.split(SeparatorConstants.LINE_BREAK)) {
-                    DeliveryReport deliveryReport = DeliveryReport.fromDelimitedString(line, SeparatorConstants.FIELD_DELIMITER_SEMICOLON);
-                    deliveryReportMap.put(TargetClonerUtil.deliveryReportKey(deliveryReport.getGroup(),
-                            deliveryReport.getArtifact(), deliveryReport.getVersion()), deliveryReport);
-                }
             }
-            return deliveryReportMap;
+            return parseResult.getDeliveryReports();
         } catch (IOException e) {
             LOG.error(">>> Failed to read report file: ", e);
-            return Collections.emptyMap();
+            return new HashMap<>();
         }
     }
 
     /**
-     * Read file from directory. For Local testing
+     * Parse the report from a file. For Local testing
      *
      * @param fileName    File name
      * @param linesToSkip Lines to skip
-     * @return String
+     * @return ReportParseResult
      * @throws IOException Throws IOException
      */
-    private static String readFileFromDirectory(String fileName, final int linesToSkip) throws IOException {
-        File file = new File(fileName);
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            return reader.lines().skip(linesToSkip).collect(Collectors.joining(SeparatorConstants.LINE_BREAK));
+    private static ReportParseResult parseReportFromDirectory(String fileName, final int linesToSkip) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+            return DeliveryReportParser.parse(reader, linesToSkip);
         }
     }
 
     /**
-     * Read file from URL. For production
+     * Parse the report from a URL. For production
      *
-     * @param fileUrl     File URL
-     * @param linesToSkip Lines to skip
-     * @return String
+     * @param fileUrl       File URL
+     * @param linesToSkip   Lines to skip
+     * @param httpTransport Transport to read the URL with
+     * @return ReportParseResult
      * @throws IOException Throws IOException
      */
-    private static String readFileFromUrl(String fileUrl, final int linesToSkip) throws IOException {
-        URI uri = URI.create(fileUrl);
-        URL url = uri.toURL();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream()))) {
-            return reader.lines().skip(linesToSkip).collect(Collectors.joining(SeparatorConstants.LINE_BREAK));
-        }
+    private static ReportParseResult parseReportFromUrl(String fileUrl, final int linesToSkip, HttpTransport httpTransport) throws IOException {
+        return httpTransport.get(fileUrl, Collections.emptyMap(), response -> {
+            if (response.statusCode() != HttpTransport.HTTP_OK) {
+                throw new IOException("HTTP status " + response.statusCode() + " for " + fileUrl);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+            return DeliveryReportParser.parse(reader, linesToSkip);
+        });
     }
 
     /**
      * Get report data
      *
-     * @param targetData TargetData
+     * @param targetData    TargetData
+     * @param httpTransport   Transport to read the report URL with
+     * @param repositoryCache Cache to keep the report of a URL in, revalidated with the server on every run. Null
+     *                        to read it from the URL every time
      * @return Map of DeliveryReport with groupId+artifactId+version as key
      */
-    public static Map<String, DeliveryReport> getDeliveryReport(TargetData targetData) {
-        Map<String, DeliveryReport> deliveryReportMap;
+    public static Map<Gav, DeliveryReport> getDeliveryReport(TargetData targetData, HttpTransport httpTransport, RepositoryCache repositoryCache) {
+        Map<Gav, DeliveryReport> deliveryReportMap;
         TargetDetails targetDetails = targetData.getTargetDetails();
         if (TargetClonerUtil.isUrl(targetDetails.getReportLocation())) {
             if (LOG.isInfoEnabled()) {
                 LOG.info("!!! Delivery Report Data from URL. !!!");
             }
-            String reportLocation = targetDetails.getReportLocation();
-            String deliveryReportUrl = createDeliveryReportUrl(reportLocation, targetDetails.getVersion());
-            deliveryReportMap = getDeliveryReport(deliveryReportUrl, 2, ReportSource.URL.getValue());
+            String deliveryReportUrl = createDeliveryReportUrl(getTemplates(targetData).getReportLocation(), targetDetails.getVersion());
+            deliveryReportMap = getDeliveryReport(deliveryReportUrl, 2, ReportSource.URL.getValue(), httpTransport, repositoryCache);
         } else {
             if (LOG.isInfoEnabled()) {
                 LOG.info("!!! Delivery Report Data from File. !!!");
             }
-            deliveryReportMap = getDeliveryReport(targetDetails.getReportLocation(), 2, ReportSource.FILE.getValue());
+            deliveryReportMap = getDeliveryReport(targetDetails.getReportLocation(), 2, ReportSource.FILE.getValue(), httpTransport, repositoryCache);
         }
         return updateDeliveryReportForNonReportCase(targetData, deliveryReportMap);
     }
@@ -370,12 +440,33 @@ public class ReportHelper {
      * @return String
      */
     public static String createDeliveryReportUrl(String reportLocation, String version) {
-        if (reportLocation != null && reportLocation.contains(PLACEHOLDER_VERSION)) {
-            reportLocation = reportLocation.replace(PLACEHOLDER_VERSION, version);
-        }
+        PlaceholderTemplate template = reportLocation == null ? null
+                : PlaceholderTemplate.compile(reportLocation, EnumSet.of(Placeholder.VERSION));
+        return createDeliveryReportUrl(template, version);
+    }
+
+    /**
+     * Create delivery report URL
+     *
+     * @param reportLocation Report location
+     * @param version        Version
+     * @return String
+     */
+    private static String createDeliveryReportUrl(PlaceholderTemplate reportLocation, String version) {
+        String deliveryReportUrl = reportLocation == null ? null
+                : reportLocation.render(placeholder -> placeholder == Placeholder.VERSION ? version : null);
         if (LOG.isInfoEnabled()) {
-            LOG.info("*** Delivery Report URL: {} ***", reportLocation);
+            LOG.info("*** Delivery Report URL: {} ***", deliveryReportUrl);
         }
-        return reportLocation;
+        return deliveryReportUrl;
+    }
+
+    /**
+     * The new url of a location and the url pattern that gave it
+     *
+     * @param patternIndex the position of the url pattern in the target details
+     * @param newUrl       the new url
+     */
+    private record UrlMatch(int patternIndex, String newUrl) {
     }
-}
\ No newline at end of file
+}
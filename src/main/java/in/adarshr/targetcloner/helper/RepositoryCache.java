@@ -0,0 +1,236 @@
+package in.adarshr.targetcloner.helper;
+
+import in.adarshr.targetcloner.utils.TargetClonerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * This class keeps the downloaded repository files in a local directory between runs. Every file is stored
+ * with its ETag and Last-Modified header, and is revalidated with a conditional GET, so a file that did
+ * not change on the server costs a 304 instead of a full download. The SHA-256 of a file is taken while it
+ * is downloaded and kept with the validators, so it is known without reading the file again.
+ */
+public class RepositoryCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RepositoryCache.class);
+    private static final String DATA_FILE_SUFFIX = ".bin";
+    private static final String META_FILE_SUFFIX = ".properties";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String META_URL = "url";
+    private static final String META_DIGEST = "sha256";
+    private static final String META_LENGTH = "length";
+
+    private final Path cacheDirectory;
+    private final HttpTransport httpTransport;
+
+    /**
+     * Constructor
+     *
+     * @param cacheDirectory the directory to keep the files in, created if it does not exist
+     * @param httpTransport  the transport to download with
+     * @throws IOException if the directory cannot be created
+     */
+    public RepositoryCache(Path cacheDirectory, HttpTransport httpTransport) throws IOException {
+        this.cacheDirectory = Files.createDirectories(cacheDirectory);
+        this.httpTransport = httpTransport;
+    }
+
+    /**
+     * Get the cache directory
+     *
+     * @return Path
+     */
+    public Path getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Returns the local copy of the file at the given URL. The file is downloaded when it is not cached yet,
+     * and revalidated with the server otherwise. When the server cannot be reached, the cached copy is used.
+     *
+     * @param fileUrl the URL of the file
+     * @return the local copy
+     * @throws FileNotFoundException if the server does not have the file
+     * @throws IOException           if the file is not cached and cannot be downloaded
+     */
+    public CachedFile fetch(String fileUrl) throws IOException {
+        String key = cacheKey(fileUrl);
+        Path dataFile = cacheDirectory.resolve(key + DATA_FILE_SUFFIX);
+        Path metaFile = cacheDirectory.resolve(key + META_FILE_SUFFIX);
+        Properties meta = readMeta(dataFile, metaFile);
+
+        Map<String, String> headers = new HashMap<>();
+        if (meta.getProperty(HEADER_ETAG) != null) {
+            headers.put(HEADER_IF_NONE_MATCH, meta.getProperty(HEADER_ETAG));
+        }
+        if (meta.getProperty(HEADER_LAST_MODIFIED) != null) {
+            headers.put(HEADER_IF_MODIFIED_SINCE, meta.getProperty(HEADER_LAST_MODIFIED));
+        }
+        try {
+            return httpTransport.get(fileUrl, headers, response -> {
+                if (response.statusCode() == HttpTransport.HTTP_NOT_MODIFIED && Files.exists(dataFile)) {
+                    LOG.info(">>> Not modified, using cached copy of: {}", fileUrl);
+                    return new CachedFile(dataFile, response.attempts(), meta.getProperty(META_DIGEST));
+                }
+                if (response.statusCode() == HttpTransport.HTTP_NOT_FOUND || response.statusCode() == HttpTransport.HTTP_GONE) {
+                    throw new FileNotFoundException(fileUrl);
+                }
+                if (response.statusCode() != HttpTransport.HTTP_OK) {
+                    throw new IOException("Unexpected HTTP status " + response.statusCode() + " for " + fileUrl);
+                }
+                String digest = store(response, fileUrl, dataFile, metaFile);
+                LOG.info(">>> Downloaded and cached: {}", fileUrl);
+                return new CachedFile(dataFile, response.attempts(), digest);
+            });
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            if (Files.exists(dataFile)) {
+                LOG.warn(">>> Failed to revalidate {}, using cached copy: {}", fileUrl, e.getMessage());
+                return new CachedFile(dataFile, 0, meta.getProperty(META_DIGEST));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Store the response body, its digest and its validators. The body and the meta file are written to
+     * temporary files first and then moved in place, so an interrupted download never leaves a partial file
+     * in the cache. The old meta file is removed before the body is replaced, so it is never read with the
+     * new body.
+     *
+     * @param response the 200 response
+     * @param fileUrl  the URL of the file
+     * @param dataFile the data file
+     * @param metaFile the meta file
+     * @return the SHA-256 of the body as hex string
+     * @throws IOException if the file cannot be written
+     */
+    private String store(HttpTransport.Response response, String fileUrl, Path dataFile, Path metaFile) throws IOException {
+        Path tempFile = Files.createTempFile(cacheDirectory, dataFile.getFileName().toString(), null);
+        MessageDigest messageDigest = TargetClonerUtil.newSha256Digest();
+        long length;
+        try {
+            length = Files.copy(new DigestInputStream(response.body(), messageDigest), tempFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(metaFile);
+            Files.move(tempFile, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        String digest = HexFormat.of().formatHex(messageDigest.digest());
+        Properties meta = new Properties();
+        meta.setProperty(META_URL, fileUrl);
+        meta.setProperty(META_DIGEST, digest);
+        meta.setProperty(META_LENGTH, Long.toString(length));
+        String etag = response.header(HEADER_ETAG);
+        if (etag != null) {
+            meta.setProperty(HEADER_ETAG, etag);
+        }
+        String lastModified = response.header(HEADER_LAST_MODIFIED);
+        if (lastModified != null) {
+            meta.setProperty(HEADER_LAST_MODIFIED, lastModified);
+        }
+        Path tempMetaFile = Files.createTempFile(cacheDirectory, metaFile.getFileName().toString(), null);
+        try {
+            try (OutputStream out = Files.newOutputStream(tempMetaFile)) {
+                meta.store(out, null);
+            }
+            Files.move(tempMetaFile, metaFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempMetaFile);
+        }
+        return digest;
+    }
+
+    /**
+     * Read the validators and the digest of a cached file. Empty when the file is not cached, or the meta file
+     * does not belong to the data file, which is then downloaded again.
+     *
+     * @param dataFile the data file
+     * @param metaFile the meta file
+     * @return Properties
+     */
+    private static Properties readMeta(Path dataFile, Path metaFile) {
+        Properties meta = new Properties();
+        if (Files.exists(dataFile) && Files.exists(metaFile)) {
+            try (InputStream in = Files.newInputStream(metaFile)) {
+                meta.load(in);
+                if (!Long.toString(Files.size(dataFile)).equals(meta.getProperty(META_LENGTH))) {
+                    LOG.warn(">>> Cache metadata {} does not match its data file, it is ignored", metaFile);
+                    meta.clear();
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                LOG.warn(">>> Failed to read cache metadata {}: {}", metaFile, e.getMessage());
+                meta.clear();
+            }
+        }
+        return meta;
+    }
+
+    /**
+     * Create the cache key of a URL. The URL is normalized first, so that the same repository written
+     * differently is cached once.
+     *
+     * @param fileUrl the URL
+     * @return the SHA-256 of the normalized URL as hex string
+     */
+    static String cacheKey(String fileUrl) {
+        return HexFormat.of().formatHex(TargetClonerUtil.newSha256Digest().digest(normalizeUrl(fileUrl).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Normalize a URL: lower case scheme and host, no default port, no dot segments and no duplicate or
+     * trailing separators.
+     *
+     * @param fileUrl the URL
+     * @return String
+     */
+    static String normalizeUrl(String fileUrl) {
+        URI uri = URI.create(fileUrl.trim()).normalize();
+        String scheme = uri.getScheme() == null ? null : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (scheme == null || uri.getHost() == null) {
+            return uri.toString();
+        }
+        int port = uri.getPort();
+        if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) {
+            port = -1;
+        }
+        String path = uri.getRawPath() == null ? "" : uri.getRawPath().replaceAll("/{2,}", "/");
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT) + (port == -1 ? "" : ":" + port) + path
+                + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+    }
+
+    /**
+     * A file in the cache
+     *
+     * @param path     the path of the local copy
+     * @param attempts the number of requests it took to revalidate or download it, 0 when the server could not
+     *                 be reached and the cached copy was used as it is
+     * @param digest   the SHA-256 of the file as hex string, null when it was cached without one
+     */
+    public record CachedFile(Path path, int attempts, String digest) {
+    }
+}
@@ -0,0 +1,240 @@
+package in.adarshr.targetcloner.helper;
+
+import in.adarshr.targetcloner.bo.RepoFetchResult;
+import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.source.RepositorySource;
+import in.adarshr.targetcloner.source.RepositorySourceFactory;
+import in.adarshr.targetcloner.utils.UnitIdPattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tukaani.xz.XZInputStream;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static in.adarshr.targetcloner.constants.TargetClonerConstants.*;
+
+/**
+ * This class resolves the units of a p2 repository, read from the source its location maps to. The
+ * metadata formats the repository publishes are read from its p2.index, and the smallest one is fetched:
+ * content.xml.xz before content.jar before content.xml. A metadata file that cannot be read is skipped for
+ * the next one, and the repository only fails when none can be read. The children of a composite
+ * repository are resolved concurrently and their units are merged in the order of the children.
+ */
+public class RepositoryResolver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RepositoryResolver.class);
+    // Order used by p2 when a repository has no p2.index
+    private static final List<String> DEFAULT_METADATA_ORDER = List.of(CONTENT_XML_XZ, CONTENT_XML, COMPOSITE_CONTENT_XML);
+
+    private final RepositorySourceFactory sourceFactory;
+    private final DownloadScheduler scheduler;
+    private final RepoUnitIndex unitIndex;
+
+    /**
+     * Constructor
+     *
+     * @param sourceFactory the factory of the repository sources
+     * @param scheduler     the scheduler that runs the composite children
+     */
+    public RepositoryResolver(RepositorySourceFactory sourceFactory, DownloadScheduler scheduler) {
+        this(sourceFactory, scheduler, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param sourceFactory the factory of the repository sources
+     * @param scheduler     the scheduler that runs the composite children
+     * @param unitIndex     the index of the parsed metadata, null to parse the metadata every time
+     */
+    public RepositoryResolver(RepositorySourceFactory sourceFactory, DownloadScheduler scheduler, RepoUnitIndex unitIndex) {
+        this.sourceFactory = sourceFactory;
+        this.scheduler = scheduler;
+        this.unitIndex = unitIndex;
+    }
+
+    /**
+     * Resolve the units of the repository at the given location. Only the units with a wanted id are created,
+     * the others are counted as skipped.
+     *
+     * @param location      the location of the repository
+     * @param wantedUnitIds the ids of the units to keep, which may have wildcards, null to keep all units
+     * @return the result with the units of the repository
+     */
+    public RepoFetchResult resolve(String location, Set<String> wantedUnitIds) {
+        AtomicInteger retries = new AtomicInteger();
+        AtomicInteger skippedUnits = new AtomicInteger();
+        Predicate<String> wantedUnitFilter = wantedUnitIds == null ? null : UnitIdPattern.filterOf(wantedUnitIds);
+        Predicate<String> unitFilter = wantedUnitFilter == null ? id -> true : id -> {
+            if (wantedUnitFilter.test(id)) {
+                return true;
+            }
+            skippedUnits.incrementAndGet();
+            return false;
+        };
+        try {
+            List<RepoUnit> repoUnits = resolveUnits(location, ConcurrentHashMap.newKeySet(), unitFilter, retries);
+            return RepoFetchResult.success(repoUnits, retries.get(), skippedUnits.get());
+        } catch (IOException e) {
+            LOG.error(">>> Failed to resolve repository: {}, {}", location, e.getMessage());
+            return RepoFetchResult.failed(e.getMessage());
+        }
+    }
+
+    /**
+     * Resolve the units of a repository, simple or composite
+     *
+     * @param location   the location of the repository
+     * @param visited    the repositories already resolved for the same root, to stop on cycles
+     * @param unitFilter the filter of the unit ids to create
+     * @param retries    the counter of retried requests
+     * @return the units
+     * @throws IOException if none of the metadata files of the repository can be read
+     */
+    private List<RepoUnit> resolveUnits(String location, Set<String> visited, Predicate<String> unitFilter,
+                                        AtomicInteger retries) throws IOException {
+        try (RepositorySource source = sourceFactory.create(location)) {
+            if (!visited.add(RepositoryCache.normalizeUrl(source.getLocation()))) {
+                LOG.warn(">>> Repository {} is already part of this composite, skipped", location);
+                return new ArrayList<>();
+            }
+            IOException failure = null;
+            try {
+                for (String fileName : getMetadataFiles(source)) {
+                    List<RepoUnit> repoUnits;
+                    try {
+                        repoUnits = readMetadata(source, fileName, visited, unitFilter, retries);
+                    } catch (InterruptedIOException e) {
+                        throw e;
+                    } catch (IOException e) {
+                        // A server may answer a missing file with another status than 404, try the next format
+                        LOG.warn(">>> Failed to read {}{}, trying the next metadata format: {}", source.getLocation(), fileName, e.getMessage());
+                        failure = failure == null ? e : failure;
+                        continue;
+                    }
+                    if (repoUnits != null) {
+                        LOG.info(">>> Resolved {} units from: {}{}", repoUnits.size(), source.getLocation(), fileName);
+                        return repoUnits;
+                    }
+                }
+            } finally {
+                retries.addAndGet(source.getRetries());
+            }
+            if (failure != null) {
+                throw new IOException("No repository metadata could be read at " + source.getLocation() + ": " + failure.getMessage(), failure);
+            }
+            throw new FileNotFoundException("No repository metadata found at " + source.getLocation());
+        }
+    }
+
+    /**
+     * Read the units of a metadata file of a repository
+     *
+     * @param source     the source of the repository
+     * @param fileName   the name of the metadata file
+     * @param visited    the repositories already resolved for the same root
+     * @param unitFilter the filter of the unit ids to create
+     * @param retries    the counter of retried requests
+     * @return the units, null when the repository has no such file
+     * @throws IOException if the file exists but cannot be read
+     */
+    private List<RepoUnit> readMetadata(RepositorySource source, String fileName, Set<String> visited, Predicate<String> unitFilter,
+                                        AtomicInteger retries) throws IOException {
+        return switch (fileName) {
+            case CONTENT_XML_XZ -> source.read(fileName, in -> XMLHelper.parseXml(in, XZInputStream::new, unitFilter, unitIndex));
+            case CONTENT_JAR -> source.readJarEntry(fileName, CONTENT_XML, in -> XMLHelper.parseXml(in, xml -> xml, unitFilter, unitIndex));
+            case CONTENT_XML -> source.read(fileName, in -> XMLHelper.parseXml(in, xml -> xml, unitFilter, unitIndex));
+            case COMPOSITE_CONTENT_JAR -> resolveChildren(source,
+                    source.readJarEntry(fileName, COMPOSITE_CONTENT_XML, XMLHelper::parseCompositeChildren), visited, unitFilter, retries);
+            case COMPOSITE_CONTENT_XML -> resolveChildren(source,
+                    source.read(fileName, XMLHelper::parseCompositeChildren), visited, unitFilter, retries);
+            default -> null;
+        };
+    }
+
+    /**
+     * Get the metadata files to try, in order. They come from the p2.index of the repository when it has
+     * one. A compressed or jarred file is tried before the plain XML it stands for. The p2.index is optional,
+     * so one that cannot be read is taken as no index.
+     *
+     * @param source the source of the repository
+     * @return the file names
+     * @throws InterruptedIOException if the thread is interrupted while reading the p2.index
+     */
+    private List<String> getMetadataFiles(RepositorySource source) throws InterruptedIOException {
+        Properties p2Index;
+        try {
+            p2Index = source.read(P2_INDEX, in -> {
+                Properties properties = new Properties();
+                properties.load(in);
+                return properties;
+            });
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn(">>> Failed to read {}{}, the default metadata order is used: {}", source.getLocation(), P2_INDEX, e.getMessage());
+            p2Index = null;
+        }
+        List<String> factoryOrder = DEFAULT_METADATA_ORDER;
+        if (p2Index != null && p2Index.getProperty(P2_INDEX_METADATA_ORDER) != null) {
+            factoryOrder = Arrays.stream(p2Index.getProperty(P2_INDEX_METADATA_ORDER).split(","))
+                    .map(String::trim).toList();
+        }
+        List<String> metadataFiles = new ArrayList<>();
+        for (String factory : factoryOrder) {
+            switch (factory) {
+                case P2_INDEX_STOP -> {
+                    return metadataFiles;
+                }
+                case CONTENT_XML_XZ -> metadataFiles.add(CONTENT_XML_XZ);
+                case CONTENT_XML -> metadataFiles.addAll(List.of(CONTENT_JAR, CONTENT_XML));
+                case COMPOSITE_CONTENT_XML -> metadataFiles.addAll(List.of(COMPOSITE_CONTENT_JAR, COMPOSITE_CONTENT_XML));
+                default -> LOG.debug(">>> Unsupported metadata format {} in p2.index of {}", factory, source.getLocation());
+            }
+        }
+        return metadataFiles;
+    }
+
+    /**
+     * Resolve the children of a composite repository concurrently and merge their units in the order of the
+     * children. A child that cannot be resolved is logged and left out.
+     *
+     * @param source         the source of the composite repository
+     * @param childLocations the child locations, null when the composite file was not found
+     * @param visited        the repositories already resolved for the same root
+     * @param unitFilter     the filter of the unit ids to create
+     * @param retries        the counter of retried requests
+     * @return the merged units, null when the composite file was not found
+     */
+    private List<RepoUnit> resolveChildren(RepositorySource source, List<String> childLocations, Set<String> visited,
+                                           Predicate<String> unitFilter, AtomicInteger retries) {
+        if (childLocations == null) {
+            return null;
+        }
+        LOG.info(">>> Composite repository {} has {} children", source.getLocation(), childLocations.size());
+        List<CompletableFuture<List<RepoUnit>>> children = childLocations.stream()
+                .map(source::resolve)
+                .map(child -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return resolveUnits(child, visited, unitFilter, retries);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, scheduler.getExecutor()).exceptionally(exception -> {
+                    LOG.error(">>> Failed to resolve child repository {}: {}", child, exception.getMessage());
+                    return Collections.emptyList();
+                }))
+                .toList();
+        List<RepoUnit> repoUnits = new ArrayList<>();
+        children.forEach(child -> repoUnits.addAll(child.join()));
+        return repoUnits;
+    }
+}
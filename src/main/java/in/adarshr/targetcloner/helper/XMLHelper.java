@@ -1,31 +1,29 @@
 package in.adarshr.targetcloner.helper;
 
-import in.adarshr.targetcloner.bo.RepoData;
 import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.bo.WriteResult;
+import in.adarshr.targetcloner.constants.SeparatorConstants;
 import in.adarshr.targetcloner.constants.TargetClonerConstants;
 import in.adarshr.targetcloner.constants.XmlConstants;
 import in.adarshr.targetcloner.data.Target;
+import in.adarshr.targetcloner.source.RepositorySource;
+import in.adarshr.targetcloner.writer.TargetFileWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
-import java.io.StringReader;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 /**
  * This class contains the methods to parse the jar XML and other XML related operations
@@ -33,6 +31,8 @@ import java.util.stream.Collectors;
 public class XMLHelper {
 
     private static final Logger LOG = LoggerFactory.getLogger(XMLHelper.class);
+    // Created once, a configured factory is safe to create readers from on any thread
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
 
     /**
      * Private constructor to prevent instantiation
@@ -41,140 +41,213 @@ public class XMLHelper {
     }
 
     /**
-     * Parse content.xml to get the list of units
+     * Parse content.xml from a stream to get the list of units. The stream is read with StAX and a unit is
+     * created as soon as its start element is seen, so only the unit list is kept in memory and not the
+     * document. Only the unit elements directly under the units element are read.
      *
-     * @param xml XML stream
+     * @param xmlStream XML stream
      * @return List of unit
+     * @throws IOException if the XML cannot be read or parsed
      */
-    public static List<RepoUnit> parseXml(String xml) {
-        if (xml == null || xml.isBlank()) {
-            LOG.error("XML is null or empty");
-            return new ArrayList<>();
+    public static List<RepoUnit> parseXml(InputStream xmlStream) throws IOException {
+        return parseXml(xmlStream, id -> true);
+    }
+
+    /**
+     * Parse content.xml from a stream to get the units whose id is accepted by the filter. No unit is
+     * created for the other ids. A document that cannot be parsed gives no units, not the units before the
+     * error.
+     *
+     * @param xmlStream  XML stream
+     * @param unitFilter the filter of the unit ids
+     * @return List of unit
+     * @throws IOException if the XML cannot be read or parsed
+     */
+    public static List<RepoUnit> parseXml(InputStream xmlStream, Predicate<String> unitFilter) throws IOException {
+        List<RepoUnit> repoUnitList;
+        try {
+            repoUnitList = parseUnits(xmlStream, unitFilter);
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse XML stream: " + e.getMessage(), e);
+        }
+        // Keep the order of the DOM parser, which walked the units from the last to the first
+        Collections.reverse(repoUnitList);
+        return repoUnitList;
+    }
+
+    /**
+     * Parse the metadata of a repository to get the units whose id is accepted by the filter. With a unit
+     * index, the units are loaded from the index of the metadata when it has one, and all units are parsed
+     * and indexed otherwise. A metadata file that cannot be parsed is not indexed.
+     *
+     * @param metadataStream the metadata as it is stored in the repository
+     * @param decoder        the decoder of the metadata to the content.xml stream
+     * @param unitFilter     the filter of the unit ids
+     * @param unitIndex      the unit index, null to always parse the metadata
+     * @return List of unit
+     * @throws IOException if the metadata cannot be read or parsed
+     */
+    public static List<RepoUnit> parseXml(InputStream metadataStream, RepositorySource.StreamReader<InputStream> decoder,
+                                          Predicate<String> unitFilter, RepoUnitIndex unitIndex) throws IOException {
+        if (unitIndex == null) {
+            return parseXml(decoder.read(metadataStream), unitFilter);
         }
+        return unitIndex.getUnits(metadataStream, in -> parseXml(decoder.read(in)), unitFilter);
+    }
+
+    /**
+     * Parse the units of content.xml whose id is accepted by the filter, in the order of the document
+     *
+     * @param xmlStream  XML stream
+     * @param unitFilter the filter of the unit ids
+     * @return List of unit
+     * @throws XMLStreamException if the XML cannot be parsed
+     */
+    private static List<RepoUnit> parseUnits(InputStream xmlStream, Predicate<String> unitFilter) throws XMLStreamException {
         List<RepoUnit> repoUnitList = new ArrayList<>();
+        XMLStreamReader reader = null;
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            // These settings help protect against XXE attacks
-            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new InputSource(new StringReader(xml)));
-            doc.getDocumentElement().normalize();
-            // Normalize the XML structure
-            doc.getDocumentElement().normalize();
-            // Here we choose to get NodeList of all "unit" elements directly
-            NodeList nodeList = doc.getElementsByTagName(XmlConstants.XML_ELEMENT_UNIT);
-            //Iterate through all "unit" elements
-            int nodeListLength = nodeList.getLength();
-            while (nodeListLength-- > 0) {
-                Element element = (Element) nodeList.item(nodeListLength);
-                // Getting attributes of 'repoUnit' element
-                RepoUnit repoUnit = getUnit(element);
-                repoUnitList.add(repoUnit);
+            reader = INPUT_FACTORY.createXMLStreamReader(xmlStream);
+            int depth = 0;
+            int unitsDepth = -1;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String localName = reader.getLocalName();
+                    if (unitsDepth < 0 && XmlConstants.XML_ELEMENT_UNITS.equals(localName)) {
+                        unitsDepth = depth;
+                    } else if (unitsDepth > 0 && depth == unitsDepth + 1 && XmlConstants.XML_ELEMENT_UNIT.equals(localName)
+                            && unitFilter.test(getAttribute(reader, XmlConstants.XML_ATTRIBUTE_ID))) {
+                        repoUnitList.add(getUnit(reader));
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == unitsDepth) {
+                        unitsDepth = -1;
+                    }
+                    depth--;
+                }
             }
-        } catch (ParserConfigurationException | SAXException | IOException e) {
-            LOG.error(">>> Failed to parse XML: {}. XML Content: {}", e.getMessage(), xml);
+        } finally {
+            closeQuietly(reader);
         }
         return repoUnitList;
     }
 
     /**
-     * Get unit from element
+     * Parse compositeContent.xml from a stream to get the locations of the child repositories
      *
-     * @param element Element
-     * @return RepoUnit
+     * @param xmlStream XML stream
+     * @return List of child locations, as written in the file
+     * @throws IOException if the XML cannot be read or parsed
      */
-    private static RepoUnit getUnit(Element element) {
-        String id = element.getAttribute(XmlConstants.XML_ATTRIBUTE_ID);
-        String version = element.getAttribute(XmlConstants.XML_ATTRIBUTE_VERSION);
-        String singleton = element.getAttribute(XmlConstants.XML_ATTRIBUTE_SINGLETON);
-        String generation = element.getAttribute(XmlConstants.XML_ATTRIBUTE_GENERATION);
-
-        RepoUnit repoUnit = new RepoUnit();
-        repoUnit.setId(id);
-        repoUnit.setVersion(version);
-        repoUnit.setSingleton(singleton);
-        repoUnit.setGeneration(generation);
+    public static List<String> parseCompositeChildren(InputStream xmlStream) throws IOException {
+        List<String> childLocations = new ArrayList<>();
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(xmlStream);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                        && XmlConstants.XML_ELEMENT_CHILD.equals(reader.getLocalName())) {
+                    String location = reader.getAttributeValue(null, XmlConstants.XML_ATTRIBUTE_LOCATION);
+                    if (location != null && !location.isBlank()) {
+                        childLocations.add(location.trim());
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse composite XML stream: " + e.getMessage(), e);
+        } finally {
+            closeQuietly(reader);
+        }
+        return childLocations;
+    }
 
-        return repoUnit;
+    /**
+     * Create the factory of the stream readers. The readers do not resolve DTDs or external entities.
+     *
+     * @return XMLInputFactory
+     */
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // These settings help protect against XXE attacks
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
     }
 
     /**
-     * Parse all XML
+     * Get unit from the current start element of the reader
      *
-     * @param xmlInputStreamMap Map of XML input stream
-     * @return Map of RepoData and List of RepoUnit
+     * @param reader XMLStreamReader positioned on a unit element
+     * @return RepoUnit
      */
-    public static Map<RepoData, List<RepoUnit>> parseAllXml(Map<RepoData, String> xmlInputStreamMap) {
-        return xmlInputStreamMap.entrySet().stream()
-                .filter(entry -> entry.getValue() != null)
-                .parallel()  // the thread-safety of parseXml needs to be guaranteed
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> parseXml(entry.getValue())));
+    private static RepoUnit getUnit(XMLStreamReader reader) {
+        RepoUnit repoUnit = new RepoUnit();
+        // Missing attributes are kept as empty string, same as DOM
+        repoUnit.setId(SeparatorConstants.EMPTY_STRING);
+        repoUnit.setVersion(SeparatorConstants.EMPTY_STRING);
+        repoUnit.setSingleton(SeparatorConstants.EMPTY_STRING);
+        repoUnit.setGeneration(SeparatorConstants.EMPTY_STRING);
+        // One pass over the attributes instead of a lookup per attribute
+        for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+            switch (reader.getAttributeLocalName(i)) {
+                case XmlConstants.XML_ATTRIBUTE_ID -> repoUnit.setId(reader.getAttributeValue(i));
+                case XmlConstants.XML_ATTRIBUTE_VERSION -> repoUnit.setVersion(reader.getAttributeValue(i));
+                case XmlConstants.XML_ATTRIBUTE_SINGLETON -> repoUnit.setSingleton(reader.getAttributeValue(i));
+                case XmlConstants.XML_ATTRIBUTE_GENERATION -> repoUnit.setGeneration(reader.getAttributeValue(i));
+                default -> {
+                    // Other attributes are not needed
+                }
+            }
+        }
+        return repoUnit;
     }
 
     /**
-     * Create XML file
+     * Get attribute value of the current element. Missing attributes are returned as empty string, same as DOM.
      *
-     * @param target Target
+     * @param reader        XMLStreamReader
+     * @param attributeName Attribute name
      * @return String
      */
-    public static String createXmlFile(Target target) {
-        String xml = null;
-        try {
-            xml = JaxbHelper.marshalWithInstruction(target, Target.class);
-        } catch (Exception e) {
-            LOG.error(">>> Failed to create XML file: {}", e.getMessage());
-        }
-        return xml;
+    private static String getAttribute(XMLStreamReader reader, String attributeName) {
+        String value = reader.getAttributeValue(null, attributeName);
+        return value == null ? SeparatorConstants.EMPTY_STRING : value;
     }
 
     /**
-     * Create XML files
+     * Close the stream reader without throwing
      *
-     * @param stringTargetMap Map of target name and target
+     * @param reader XMLStreamReader
      */
-    public static void saveFilesToDisk(Map<String, Target> stringTargetMap) {
-        Map<String, Boolean> fileSaveStatus = stringTargetMap.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> saveToFile(createXmlFile(entry.getValue()), entry.getKey())));
-        if (LOG.isInfoEnabled()) {
-            fileSaveStatus.forEach((key, value) -> {
-                if (Boolean.TRUE.equals(value)) {
-                    LOG.info(">>> Target created successfully: {}", key);
-                } else {
-                    LOG.error(">>> Failed to create target: {}", key);
-                }
-            });
+    private static void closeQuietly(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                LOG.warn(">>> Failed to close XML stream reader: {}", e.getMessage());
+            }
         }
     }
 
     /**
-     * Save the content to a file
+     * Create XML files. The files are written concurrently to the output directory in the working directory,
+     * and a file that already has the same content is left as it is.
      *
-     * @param content  Content
-     * @param fileName File name
-     * @return boolean
+     * @param stringTargetMap Map of target name and target
+     * @return Map of file name and the result of writing it
      */
-    private static boolean saveToFile(String content, String fileName) {
-        // Get the current working directory
-        String currentWorkingDir = System.getProperty(TargetClonerConstants.USER_DIRECTORY);
-        String fileSep = FileSystems.getDefault().getSeparator();
-        // Define the path to the file
-        String fileLocation = currentWorkingDir + fileSep + TargetClonerConstants.OUTPUT_DIRECTORY + fileSep + fileName;
-        // Make sure to create the directory if it doesn't exit
-        Path currentOutputPath = Paths.get(currentWorkingDir + fileSep + TargetClonerConstants.OUTPUT_DIRECTORY + fileSep);
-        try {
-            if (!Files.exists(currentOutputPath)) {
-                Files.createDirectories(currentOutputPath);
-            } else {
-                Files.write(Paths.get(fileLocation), content.getBytes());
-                LOG.info(">>> File created successfully in: {}", fileLocation);
+    public static Map<String, WriteResult> saveFilesToDisk(Map<String, Target> stringTargetMap) {
+        Path outputDirectory = Paths.get(System.getProperty(TargetClonerConstants.USER_DIRECTORY), TargetClonerConstants.OUTPUT_DIRECTORY);
+        Map<String, WriteResult> fileSaveStatus = new TargetFileWriter(outputDirectory).writeAll(stringTargetMap);
+        fileSaveStatus.forEach((key, value) -> {
+            switch (value.getStatus()) {
+                case WRITTEN -> LOG.info(">>> Target created successfully: {}, {} bytes", key, value.getBytesWritten());
+                case UNCHANGED -> LOG.info(">>> Target unchanged, not written: {}", key);
+                case FAILED -> LOG.error(">>> Failed to create target: {}, {}", key, value.getError());
             }
-        } catch (IOException e) {
-            LOG.error(">>> Failed to create directory: {}", e.getMessage());
-            return false;
-        }
-        return true;
+        });
+        return fileSaveStatus;
     }
 }
@@ -0,0 +1,67 @@
+package in.adarshr.targetcloner.source;
+
+import in.adarshr.targetcloner.constants.SeparatorConstants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A repository packed in a local zip or JAR archive, like the archived repositories Eclipse publishes. The
+ * archive is opened once and every file is looked up in its central directory, nothing is extracted.
+ */
+public class ArchiveRepositorySource implements RepositorySource {
+
+    private static final String JAR_URL_PREFIX = "jar:";
+    private static final String JAR_URL_SEPARATOR = "!/";
+
+    private final Path archive;
+    private final String prefix;
+    private final ZipFile zipFile;
+
+    /**
+     * Constructor
+     *
+     * @param archive the archive
+     * @param prefix  the folder of the repository in the archive, empty or ending with a separator
+     * @throws IOException if the archive cannot be opened
+     */
+    public ArchiveRepositorySource(Path archive, String prefix) throws IOException {
+        this.archive = archive;
+        this.prefix = prefix;
+        this.zipFile = new ZipFile(archive.toFile());
+    }
+
+    @Override
+    public String getLocation() {
+        return JAR_URL_PREFIX + archive.toUri() + JAR_URL_SEPARATOR + prefix;
+    }
+
+    @Override
+    public <T> T read(String fileName, StreamReader<T> reader) throws IOException {
+        ZipEntry entry = zipFile.getEntry(prefix + fileName);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            return reader.read(in);
+        }
+    }
+
+    @Override
+    public String resolve(String childLocation) {
+        if (childLocation.contains(":")) {
+            return childLocation;
+        }
+        String child = childLocation.endsWith(SeparatorConstants.LOCATION_SEPARATOR)
+                ? childLocation : childLocation + SeparatorConstants.LOCATION_SEPARATOR;
+        return JAR_URL_PREFIX + archive.toUri() + JAR_URL_SEPARATOR + prefix + child;
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipFile.close();
+    }
+}
@@ -0,0 +1,49 @@
+package in.adarshr.targetcloner.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A repository in a local directory, for example a mirror. JARs are opened with random access, so only the
+ * wanted entry is read.
+ */
+public class DirectoryRepositorySource implements RepositorySource {
+
+    private final Path directory;
+
+    /**
+     * Constructor
+     *
+     * @param directory the directory of the repository
+     */
+    public DirectoryRepositorySource(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String getLocation() {
+        return directory.toUri().toString();
+    }
+
+    @Override
+    public <T> T read(String fileName, StreamReader<T> reader) throws IOException {
+        Path file = directory.resolve(fileName);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (InputStream in = new LocalFileInputStream(Files.newInputStream(file), file, null)) {
+            return reader.read(in);
+        }
+    }
+
+    @Override
+    public <T> T readJarEntry(String jarName, String entryName, StreamReader<T> reader) throws IOException {
+        Path jarFile = directory.resolve(jarName);
+        if (!Files.isRegularFile(jarFile)) {
+            return null;
+        }
+        return RepositorySource.readZipEntry(jarFile, entryName, in -> reader.read(new LocalFileInputStream(in, jarFile, null)));
+    }
+}
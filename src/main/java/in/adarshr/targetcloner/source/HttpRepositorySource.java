@@ -0,0 +1,130 @@
+package in.adarshr.targetcloner.source;
+
+import in.adarshr.targetcloner.helper.DownloadScheduler;
+import in.adarshr.targetcloner.helper.HttpTransport;
+import in.adarshr.targetcloner.helper.RepositoryCache;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A repository on an HTTP server. Every request holds a permit of the download scheduler. When a cache is
+ * configured the files are read from their cached copy, which also gives random access to cached JARs and
+ * the digest of a file without reading it.
+ */
+public class HttpRepositorySource implements RepositorySource {
+
+    private final String location;
+    private final RepositoryCache cache;
+    private final HttpTransport httpTransport;
+    private final DownloadScheduler scheduler;
+    private final AtomicInteger retries = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param location      the location of the repository, ending with a separator
+     * @param cache         the repository cache, null when caching is disabled
+     * @param httpTransport the transport to download with
+     * @param scheduler     the scheduler that limits the requests in flight
+     */
+    public HttpRepositorySource(String location, RepositoryCache cache, HttpTransport httpTransport, DownloadScheduler scheduler) {
+        this.location = location;
+        this.cache = cache;
+        this.httpTransport = httpTransport;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public String getLocation() {
+        return location;
+    }
+
+    @Override
+    public <T> T read(String fileName, StreamReader<T> reader) throws IOException {
+        String fileUrl = location + fileName;
+        return withPermit(fileUrl, () -> {
+            if (cache != null) {
+                RepositoryCache.CachedFile cachedFile = cache.fetch(fileUrl);
+                retries.addAndGet(Math.max(0, cachedFile.attempts() - 1));
+                try (InputStream in = new LocalFileInputStream(Files.newInputStream(cachedFile.path()), cachedFile.path(), cachedFile.digest())) {
+                    return reader.read(in);
+                }
+            }
+            AtomicInteger attempts = new AtomicInteger();
+            try {
+                return httpTransport.get(fileUrl, Collections.emptyMap(), response -> {
+                    attempts.set(response.attempts());
+                    if (response.statusCode() == HttpTransport.HTTP_NOT_FOUND || response.statusCode() == HttpTransport.HTTP_GONE) {
+                        throw new FileNotFoundException(fileUrl);
+                    }
+                    if (response.statusCode() != HttpTransport.HTTP_OK) {
+                        throw new IOException("HTTP status " + response.statusCode() + " for " + fileUrl);
+                    }
+                    return reader.read(response.body());
+                });
+            } finally {
+                retries.addAndGet(Math.max(0, attempts.get() - 1));
+            }
+        });
+    }
+
+    @Override
+    public <T> T readJarEntry(String jarName, String entryName, StreamReader<T> reader) throws IOException {
+        if (cache == null) {
+            return RepositorySource.super.readJarEntry(jarName, entryName, reader);
+        }
+        String fileUrl = location + jarName;
+        RepositoryCache.CachedFile cachedFile = withPermit(fileUrl, () -> cache.fetch(fileUrl));
+        if (cachedFile == null) {
+            return null;
+        }
+        retries.addAndGet(Math.max(0, cachedFile.attempts() - 1));
+        return RepositorySource.readZipEntry(cachedFile.path(), entryName,
+                in -> reader.read(new LocalFileInputStream(in, cachedFile.path(), cachedFile.digest())));
+    }
+
+    @Override
+    public int getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Run a request while holding a download permit
+     *
+     * @param fileUrl the URL of the request
+     * @param request the request
+     * @param <T>     the type of the result
+     * @return the result, null when the file does not exist
+     * @throws IOException if the request fails
+     */
+    private <T> T withPermit(String fileUrl, PermitCall<T> request) throws IOException {
+        try {
+            return scheduler.withPermit(fileUrl, request::call);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + fileUrl);
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * A request that may fail with an I/O error
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    private interface PermitCall<T> {
+        T call() throws IOException;
+    }
+}
@@ -0,0 +1,56 @@
+package in.adarshr.targetcloner.source;
+
+import in.adarshr.targetcloner.utils.TargetClonerUtil;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * A stream of a repository file that has a local copy, a file of a directory or a cached download. The
+ * SHA-256 of the file can be taken without reading the stream, so a reader can look up what it got from
+ * the same content before and only read the stream when it has to. For an entry of a local JAR the digest
+ * is the one of the JAR.
+ */
+public class LocalFileInputStream extends FilterInputStream {
+
+    private final Path file;
+    private String digest;
+
+    /**
+     * Constructor
+     *
+     * @param in     the stream of the file, or of an entry of it
+     * @param file   the local file
+     * @param digest the SHA-256 of the file as hex string, null when it is not known yet
+     */
+    public LocalFileInputStream(InputStream in, Path file, String digest) {
+        super(in);
+        this.file = file;
+        this.digest = digest;
+    }
+
+    /**
+     * Get the SHA-256 of the local file as hex string. It is taken from the file the first time, when it
+     * was not known.
+     *
+     * @return String
+     * @throws IOException if the file cannot be read
+     */
+    public String getDigest() throws IOException {
+        if (digest == null) {
+            MessageDigest messageDigest = TargetClonerUtil.newSha256Digest();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), messageDigest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            digest = HexFormat.of().formatHex(messageDigest.digest());
+        }
+        return digest;
+    }
+}
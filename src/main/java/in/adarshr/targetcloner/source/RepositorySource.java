@@ -0,0 +1,132 @@
+package in.adarshr.targetcloner.source;
+
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A place the files of a p2 repository can be read from. The implementation is chosen by the scheme of the
+ * repository location, see {@link RepositorySourceFactory}.
+ */
+public interface RepositorySource extends Closeable {
+
+    /**
+     * Get the location of the repository, ending with a separator
+     *
+     * @return String
+     */
+    String getLocation();
+
+    /**
+     * Read a file of the repository
+     *
+     * @param fileName the name of the file, relative to the repository
+     * @param reader   the reader of the file content
+     * @param <T>      the type of the content
+     * @return the content, null when the repository has no such file
+     * @throws IOException if the file exists but cannot be read
+     */
+    <T> T read(String fileName, StreamReader<T> reader) throws IOException;
+
+    /**
+     * Read an entry of a JAR file of the repository. By default the JAR is streamed until the entry is found,
+     * sources with random access to the JAR go straight to the entry.
+     *
+     * @param jarName   the name of the JAR file, relative to the repository
+     * @param entryName the name of the entry in the JAR
+     * @param reader    the reader of the entry content
+     * @param <T>       the type of the content
+     * @return the content, null when the repository has no such JAR
+     * @throws IOException if the JAR cannot be read or has no such entry
+     */
+    default <T> T readJarEntry(String jarName, String entryName, StreamReader<T> reader) throws IOException {
+        return read(jarName, in -> readJarEntry(in, entryName, reader));
+    }
+
+    /**
+     * Resolve the location of a child repository against this repository
+     *
+     * @param childLocation the child location, absolute or relative
+     * @return the absolute child location
+     */
+    default String resolve(String childLocation) {
+        return URI.create(getLocation()).resolve(childLocation).toString();
+    }
+
+    /**
+     * Get the number of requests that had to be retried while reading from this source
+     *
+     * @return int
+     */
+    default int getRetries() {
+        return 0;
+    }
+
+    @Override
+    default void close() throws IOException {
+        // Nothing to release by default
+    }
+
+    /**
+     * Read an entry of a JAR stream. The entry is streamed to the reader, the JAR is not extracted.
+     *
+     * @param in        the JAR stream
+     * @param entryName the name of the entry
+     * @param reader    the reader of the entry
+     * @param <T>       the type of the content
+     * @return the content of the entry
+     * @throws IOException if the JAR cannot be read or has no such entry
+     */
+    static <T> T readJarEntry(InputStream in, String entryName, StreamReader<T> reader) throws IOException {
+        JarInputStream jarStream = new JarInputStream(in);
+        JarEntry entry;
+        while ((entry = jarStream.getNextJarEntry()) != null) {
+            if (entry.getName().equals(entryName)) {
+                // The parser closes its input at the end of the document, keep the jar stream open
+                return reader.read(CloseShieldInputStream.wrap(jarStream));
+            }
+        }
+        throw new IOException("No " + entryName + " in JAR");
+    }
+
+    /**
+     * Read an entry of a JAR or zip file on disk. The central directory is used to jump straight to the
+     * entry, no other entry is read.
+     *
+     * @param zipFile   the JAR or zip file
+     * @param entryName the name of the entry
+     * @param reader    the reader of the entry
+     * @param <T>       the type of the content
+     * @return the content of the entry
+     * @throws IOException if the file cannot be read or has no such entry
+     */
+    static <T> T readZipEntry(Path zipFile, String entryName, StreamReader<T> reader) throws IOException {
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            ZipEntry entry = zip.getEntry(entryName);
+            if (entry == null) {
+                throw new IOException("No " + entryName + " in " + zipFile);
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                return reader.read(in);
+            }
+        }
+    }
+
+    /**
+     * Reads the content of a stream
+     *
+     * @param <T> the type of the content
+     */
+    @FunctionalInterface
+    interface StreamReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+}
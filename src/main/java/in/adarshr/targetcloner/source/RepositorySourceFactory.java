@@ -0,0 +1,140 @@
+package in.adarshr.targetcloner.source;
+
+import in.adarshr.targetcloner.constants.SeparatorConstants;
+import in.adarshr.targetcloner.data.Mirror;
+import in.adarshr.targetcloner.helper.DownloadScheduler;
+import in.adarshr.targetcloner.helper.HttpTransport;
+import in.adarshr.targetcloner.helper.RepositoryCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class creates the source of a repository location. The mirror rules are applied first, then the
+ * source is chosen by scheme: http and https are read from the server, file urls and plain paths from a
+ * local directory or archive, and jar urls ({@code jar:file:/repo.zip!/}) from a local archive.
+ */
+public class RepositorySourceFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RepositorySourceFactory.class);
+    private static final String SCHEME_HTTP = "http";
+    private static final String SCHEME_HTTPS = "https";
+    private static final String SCHEME_FILE = "file";
+    private static final String SCHEME_JAR = "jar";
+    private static final String JAR_URL_SEPARATOR = "!/";
+
+    private final List<Mirror> mirrors;
+    private final RepositoryCache cache;
+    private final HttpTransport httpTransport;
+    private final DownloadScheduler scheduler;
+
+    /**
+     * Constructor
+     *
+     * @param mirrors       the mirror rules, the first matching rule is used
+     * @param cache         the repository cache for http sources, null when caching is disabled
+     * @param httpTransport the transport for http sources
+     * @param scheduler     the scheduler that limits the requests in flight of http sources
+     */
+    public RepositorySourceFactory(List<Mirror> mirrors, RepositoryCache cache, HttpTransport httpTransport, DownloadScheduler scheduler) {
+        this.mirrors = mirrors;
+        this.cache = cache;
+        this.httpTransport = httpTransport;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Create the source of a repository location
+     *
+     * @param location the location of the repository
+     * @return the source
+     * @throws FileNotFoundException if a local location does not exist
+     * @throws IOException           if a local archive cannot be opened
+     */
+    public RepositorySource create(String location) throws IOException {
+        String mirroredLocation = applyMirrors(location.trim());
+        String scheme = getScheme(mirroredLocation);
+        if (SCHEME_HTTP.equals(scheme) || SCHEME_HTTPS.equals(scheme)) {
+            return new HttpRepositorySource(withSeparator(mirroredLocation), cache, httpTransport, scheduler);
+        }
+        if (SCHEME_JAR.equals(scheme)) {
+            int separatorIndex = mirroredLocation.indexOf(JAR_URL_SEPARATOR);
+            String archiveLocation = separatorIndex < 0 ? mirroredLocation.substring(SCHEME_JAR.length() + 1)
+                    : mirroredLocation.substring(SCHEME_JAR.length() + 1, separatorIndex);
+            String prefix = separatorIndex < 0 ? SeparatorConstants.EMPTY_STRING
+                    : mirroredLocation.substring(separatorIndex + JAR_URL_SEPARATOR.length());
+            return new ArchiveRepositorySource(toPath(archiveLocation), prefix.isEmpty() ? prefix : withSeparator(prefix));
+        }
+        Path path = toPath(mirroredLocation);
+        if (Files.isDirectory(path)) {
+            return new DirectoryRepositorySource(path);
+        }
+        if (Files.isRegularFile(path)) {
+            return new ArchiveRepositorySource(path, SeparatorConstants.EMPTY_STRING);
+        }
+        throw new FileNotFoundException("No repository at " + mirroredLocation);
+    }
+
+    /**
+     * Rewrite a location with the first mirror rule whose 'from' it starts with
+     *
+     * @param location the location
+     * @return the mirrored location, or the location itself when no rule matches
+     */
+    private String applyMirrors(String location) {
+        if (mirrors != null) {
+            for (Mirror mirror : mirrors) {
+                if (mirror.getFrom() != null && mirror.getTo() != null && location.startsWith(mirror.getFrom())) {
+                    String mirroredLocation = mirror.getTo() + location.substring(mirror.getFrom().length());
+                    LOG.debug(">>> Mirror {} used for {}", mirroredLocation, location);
+                    return mirroredLocation;
+                }
+            }
+        }
+        return location;
+    }
+
+    /**
+     * Get the scheme of a location in lower case
+     *
+     * @param location the location
+     * @return the scheme, null for a plain path
+     */
+    private static String getScheme(String location) {
+        int colonIndex = location.indexOf(':');
+        // A single letter before the colon is a Windows drive, not a scheme
+        if (colonIndex <= 1) {
+            return null;
+        }
+        String scheme = location.substring(0, colonIndex).toLowerCase(Locale.ROOT);
+        return scheme.chars().allMatch(c -> Character.isLetterOrDigit(c) || c == '+' || c == '-' || c == '.') ? scheme : null;
+    }
+
+    /**
+     * Get the local path of a file url or plain path
+     *
+     * @param location the location
+     * @return Path
+     */
+    private static Path toPath(String location) {
+        return SCHEME_FILE.equals(getScheme(location)) ? Paths.get(URI.create(location)) : Paths.get(location);
+    }
+
+    /**
+     * Make sure a location ends with a separator, so files can be appended to it
+     *
+     * @param location the location
+     * @return String
+     */
+    private static String withSeparator(String location) {
+        return location.endsWith(SeparatorConstants.LOCATION_SEPARATOR) ? location : location + SeparatorConstants.LOCATION_SEPARATOR;
+    }
+}
@@ -0,0 +1,184 @@
+package in.adarshr.targetcloner.template;
+
+import in.adarshr.targetcloner.constants.Placeholder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A format of the input XML with placeholders, such as a url pattern or the target save format. The format is
+ * parsed once into its literal parts and placeholders, so rendering it is a single pass that appends the parts
+ * to one builder of the final size, instead of a replace and a copy of the whole string per placeholder.
+ * A placeholder is an upper case name between two '$', any other '$' is a literal.
+ */
+public final class PlaceholderTemplate {
+
+    private static final char DELIMITER = '$';
+
+    private final String template;
+    // The literal before each placeholder, and the literal after the last one
+    private final String[] literals;
+    private final Placeholder[] placeholders;
+    // The length of the literals up to and including the literal at each index
+    private final int[] literalLengths;
+
+    /**
+     * Constructor
+     *
+     * @param template     the format
+     * @param literals     the literals, one more than the placeholders
+     * @param placeholders the placeholders
+     */
+    private PlaceholderTemplate(String template, List<String> literals, List<Placeholder> placeholders) {
+        this.template = template;
+        this.literals = literals.toArray(new String[0]);
+        this.placeholders = placeholders.toArray(new Placeholder[0]);
+        this.literalLengths = new int[this.literals.length];
+        int length = 0;
+        for (int i = 0; i < this.literals.length; i++) {
+            length += this.literals[i].length();
+            literalLengths[i] = length;
+        }
+    }
+
+    /**
+     * Parse a format
+     *
+     * @param template     the format
+     * @param placeholders the placeholders the format may use
+     * @return PlaceholderTemplate
+     * @throws IllegalArgumentException if the format uses a placeholder that is unknown or not allowed in it
+     */
+    public static PlaceholderTemplate compile(String template, Set<Placeholder> placeholders) {
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> foundPlaceholders = new ArrayList<>();
+        int literalStart = 0;
+        int start = template.indexOf(DELIMITER);
+        while (start >= 0) {
+            int end = template.indexOf(DELIMITER, start + 1);
+            if (end < 0) {
+                break;
+            }
+            if (!isPlaceholderName(template, start + 1, end)) {
+                // The closing '$' may open the next placeholder
+                start = end;
+                continue;
+            }
+            String token = template.substring(start, end + 1);
+            Placeholder placeholder = Placeholder.fromToken(token);
+            if (placeholder == null || !placeholders.contains(placeholder)) {
+                throw new IllegalArgumentException("Unknown placeholder " + token + " in " + template + ", expected one of "
+                        + placeholders.stream().map(Placeholder::getToken).toList());
+            }
+            literals.add(template.substring(literalStart, start));
+            foundPlaceholders.add(placeholder);
+            literalStart = end + 1;
+            start = template.indexOf(DELIMITER, literalStart);
+        }
+        literals.add(template.substring(literalStart));
+        return new PlaceholderTemplate(template, literals, foundPlaceholders);
+    }
+
+    /**
+     * Render the format
+     *
+     * @param values the value of each placeholder. A placeholder without a value is kept as it is
+     * @return String
+     */
+    public String render(Function<Placeholder, String> values) {
+        return render(placeholders.length, values);
+    }
+
+    /**
+     * Render the format up to the first use of a placeholder. This is the part of the rendered format that
+     * does not depend on the value of that placeholder.
+     *
+     * @param placeholder the placeholder to stop at
+     * @param values      the value of each placeholder. A placeholder without a value is kept as it is
+     * @return String, the whole rendered format when the placeholder is not used
+     */
+    public String renderUntil(Placeholder placeholder, Function<Placeholder, String> values) {
+        for (int i = 0; i < placeholders.length; i++) {
+            if (placeholders[i] == placeholder) {
+                return render(i, values);
+            }
+        }
+        return render(values);
+    }
+
+    /**
+     * Check if the format uses a placeholder
+     *
+     * @param placeholder the placeholder
+     * @return boolean
+     */
+    public boolean contains(Placeholder placeholder) {
+        for (Placeholder used : placeholders) {
+            if (used == placeholder) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Render the first placeholders of the format and the literals around them
+     *
+     * @param count  the number of placeholders to render
+     * @param values the value of each placeholder
+     * @return String
+     */
+    private String render(int count, Function<Placeholder, String> values) {
+        String[] renderedValues = new String[count];
+        int length = literalLengths[count];
+        for (int i = 0; i < count; i++) {
+            String value = values.apply(placeholders[i]);
+            renderedValues[i] = value != null ? value : placeholders[i].getToken();
+            length += renderedValues[i].length();
+        }
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < count; i++) {
+            builder.append(literals[i]).append(renderedValues[i]);
+        }
+        return builder.append(literals[count]).toString();
+    }
+
+    /**
+     * Check if the characters between two delimiters are a placeholder name: upper case letters, digits and
+     * underscores, starting with a letter
+     *
+     * @param template the format
+     * @param start    the first character of the name
+     * @param end      the index after the last character of the name
+     * @return boolean
+     */
+    private static boolean isPlaceholderName(String template, int start, int end) {
+        if (start == end || !isUpperCase(template.charAt(start))) {
+            return false;
+        }
+        for (int i = start + 1; i < end; i++) {
+            char character = template.charAt(i);
+            if (!isUpperCase(character) && !(character >= '0' && character <= '9') && character != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if a character is an upper case ASCII letter
+     *
+     * @param character the character
+     * @return boolean
+     */
+    private static boolean isUpperCase(char character) {
+        return character >= 'A' && character <= 'Z';
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -0,0 +1,128 @@
+package in.adarshr.targetcloner.template;
+
+import in.adarshr.targetcloner.constants.Placeholder;
+import in.adarshr.targetcloner.data.Pattern;
+import in.adarshr.targetcloner.data.TargetDetails;
+
+import java.util.*;
+
+import static in.adarshr.targetcloner.constants.SeparatorConstants.FIELD_DELIMITER_UNDERSCORE;
+import static in.adarshr.targetcloner.constants.TargetClonerConstants.PLACEHOLDER_COMPONENT;
+import static in.adarshr.targetcloner.constants.TargetClonerConstants.PLACEHOLDER_VERSION;
+
+/**
+ * The formats of the input XML, each parsed once when the input XML is loaded. All the formats are checked
+ * together, so every unknown placeholder is reported at once and not when the format is first used.
+ */
+public final class TargetTemplates {
+
+    public static final String DEFAULT_TARGET_FORMAT = PLACEHOLDER_COMPONENT + FIELD_DELIMITER_UNDERSCORE + PLACEHOLDER_VERSION;
+    private static final Set<Placeholder> URL_PLACEHOLDERS = EnumSet.of(Placeholder.GROUP, Placeholder.ARTIFACT, Placeholder.VERSION);
+    private static final Set<Placeholder> REPORT_PLACEHOLDERS = EnumSet.of(Placeholder.VERSION);
+    private static final Set<Placeholder> TARGET_PLACEHOLDERS = EnumSet.of(Placeholder.COMPONENT, Placeholder.VERSION);
+
+    private final PlaceholderTemplate reportLocation;
+    private final PlaceholderTemplate targetNameFormat;
+    private final PlaceholderTemplate targetSaveFormat;
+    private final Map<Pattern, PlaceholderTemplate> urlPatterns;
+
+    /**
+     * Constructor
+     *
+     * @param reportLocation   the report location, null when there is none
+     * @param targetNameFormat the format of the target names
+     * @param targetSaveFormat the format of the target file names
+     * @param urlPatterns      the url pattern of each pattern
+     */
+    private TargetTemplates(PlaceholderTemplate reportLocation, PlaceholderTemplate targetNameFormat,
+                            PlaceholderTemplate targetSaveFormat, Map<Pattern, PlaceholderTemplate> urlPatterns) {
+        this.reportLocation = reportLocation;
+        this.targetNameFormat = targetNameFormat;
+        this.targetSaveFormat = targetSaveFormat;
+        this.urlPatterns = urlPatterns;
+    }
+
+    /**
+     * Parse the formats of the input XML. The target name and save formats are component and version
+     * separated by an underscore when they are not set.
+     *
+     * @param targetDetails the input XML
+     * @return TargetTemplates
+     * @throws IllegalArgumentException if a format uses a placeholder that is unknown or not allowed in it, the
+     *                                  message lists all of them
+     */
+    public static TargetTemplates compile(TargetDetails targetDetails) {
+        List<String> errors = new ArrayList<>();
+        PlaceholderTemplate reportLocation = targetDetails.getReportLocation() == null ? null
+                : compile(targetDetails.getReportLocation(), REPORT_PLACEHOLDERS, errors);
+        PlaceholderTemplate targetNameFormat = compile(Objects.requireNonNullElse(targetDetails.getTargetNameFormat(), DEFAULT_TARGET_FORMAT),
+                TARGET_PLACEHOLDERS, errors);
+        PlaceholderTemplate targetSaveFormat = compile(Objects.requireNonNullElse(targetDetails.getTargetSaveFormat(), DEFAULT_TARGET_FORMAT),
+                TARGET_PLACEHOLDERS, errors);
+        // The patterns are the generated JAXB classes, which do not override equals
+        Map<Pattern, PlaceholderTemplate> urlPatterns = new IdentityHashMap<>();
+        if (targetDetails.getRepoUrlPatterns() != null) {
+            for (Pattern pattern : targetDetails.getRepoUrlPatterns().getPattern()) {
+                urlPatterns.put(pattern, compile(pattern.getUrlPattern(), URL_PLACEHOLDERS, errors));
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", errors));
+        }
+        return new TargetTemplates(reportLocation, targetNameFormat, targetSaveFormat, urlPatterns);
+    }
+
+    /**
+     * Parse a format, keeping the error when it cannot be parsed
+     *
+     * @param template     the format
+     * @param placeholders the placeholders the format may use
+     * @param errors       the errors
+     * @return PlaceholderTemplate, null when the format cannot be parsed
+     */
+    private static PlaceholderTemplate compile(String template, Set<Placeholder> placeholders, List<String> errors) {
+        try {
+            return PlaceholderTemplate.compile(template, placeholders);
+        } catch (IllegalArgumentException e) {
+            errors.add(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get the report location
+     *
+     * @return PlaceholderTemplate, null when there is no report location
+     */
+    public PlaceholderTemplate getReportLocation() {
+        return reportLocation;
+    }
+
+    /**
+     * Get the format of the target names
+     *
+     * @return PlaceholderTemplate
+     */
+    public PlaceholderTemplate getTargetNameFormat() {
+        return targetNameFormat;
+    }
+
+    /**
+     * Get the format of the target file names, without the suffix
+     *
+     * @return PlaceholderTemplate
+     */
+    public PlaceholderTemplate getTargetSaveFormat() {
+        return targetSaveFormat;
+    }
+
+    /**
+     * Get the url pattern of a pattern
+     *
+     * @param pattern the pattern of the input XML the templates were compiled from
+     * @return PlaceholderTemplate
+     */
+    public PlaceholderTemplate getUrlPattern(Pattern pattern) {
+        return urlPatterns.get(pattern);
+    }
+}
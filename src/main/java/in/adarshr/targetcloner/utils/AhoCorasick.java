@@ -0,0 +1,131 @@
+package in.adarshr.targetcloner.utils;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton over a fixed set of keywords. The automaton is built once, and then finds all the
+ * keywords that occur in a text in a single pass over the text, however many keywords there are. The automaton
+ * cannot be changed after it is built and can be used from any thread.
+ */
+public final class AhoCorasick {
+
+    private static final int ROOT = 0;
+
+    // Transitions of each node, the characters sorted so a transition is a binary search
+    private final char[][] transitionChars;
+    private final int[][] transitionTargets;
+    private final int[] failure;
+    // The keywords that end in a node, including the ones that end in its failure nodes
+    private final int[][] outputs;
+    private final int keywordCount;
+    private final BitSet emptyKeywords = new BitSet();
+
+    /**
+     * Build the automaton
+     *
+     * @param keywords the keywords, a keyword is found by its index in the list
+     */
+    public AhoCorasick(List<String> keywords) {
+        this.keywordCount = keywords.size();
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> nodeKeywords = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        nodeKeywords.add(new ArrayList<>());
+        for (int keyword = 0; keyword < keywords.size(); keyword++) {
+            String text = keywords.get(keyword);
+            if (text.isEmpty()) {
+                // An empty keyword occurs in every text
+                emptyKeywords.set(keyword);
+                continue;
+            }
+            int node = ROOT;
+            for (int i = 0; i < text.length(); i++) {
+                Integer next = trie.get(node).get(text.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    nodeKeywords.add(new ArrayList<>());
+                    trie.get(node).put(text.charAt(i), next);
+                }
+                node = next;
+            }
+            nodeKeywords.get(node).add(keyword);
+        }
+
+        int nodeCount = trie.size();
+        this.transitionChars = new char[nodeCount][];
+        this.transitionTargets = new int[nodeCount][];
+        for (int node = 0; node < nodeCount; node++) {
+            Map<Character, Integer> transitions = trie.get(node);
+            transitionChars[node] = new char[transitions.size()];
+            transitionTargets[node] = new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                transitionChars[node][i] = transition.getKey();
+                transitionTargets[node][i++] = transition.getValue();
+            }
+        }
+
+        // Breadth first, so the failure node of a node is done before the node
+        this.failure = new int[nodeCount];
+        this.outputs = new int[nodeCount][];
+        outputs[ROOT] = new int[0];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : transitionTargets[ROOT]) {
+            failure[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            List<Integer> nodeOutputs = new ArrayList<>(nodeKeywords.get(node));
+            for (int output : outputs[failure[node]]) {
+                nodeOutputs.add(output);
+            }
+            outputs[node] = nodeOutputs.stream().mapToInt(Integer::intValue).toArray();
+            for (int i = 0; i < transitionChars[node].length; i++) {
+                int child = transitionTargets[node][i];
+                failure[child] = next(failure[node], transitionChars[node][i]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Find the keywords that occur in the text
+     *
+     * @param text the text
+     * @return the indexes of the keywords found
+     */
+    public BitSet findAll(String text) {
+        BitSet found = new BitSet(keywordCount);
+        found.or(emptyKeywords);
+        int node = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            node = next(node, text.charAt(i));
+            for (int output : outputs[node]) {
+                found.set(output);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Get the next node for a character, following the failure nodes when the node has no transition for it
+     *
+     * @param node      the current node
+     * @param character the character
+     * @return the next node
+     */
+    private int next(int node, char character) {
+        while (true) {
+            int i = Arrays.binarySearch(transitionChars[node], character);
+            if (i >= 0) {
+                return transitionTargets[node][i];
+            }
+            if (node == ROOT) {
+                return ROOT;
+            }
+            node = failure[node];
+        }
+    }
+}
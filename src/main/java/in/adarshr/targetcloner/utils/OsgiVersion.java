@@ -0,0 +1,302 @@
+package in.adarshr.targetcloner.utils;
+
+import java.util.Comparator;
+
+/**
+ * This class is an OSGi version: major.minor.micro.qualifier, where the missing parts are 0 and an empty
+ * qualifier. Versions are ordered the OSGi way, the numbers numerically and the qualifier as a string.
+ * A version that is not a valid OSGi version is kept as it is and sorts below every valid version.
+ * <p>
+ * Version strings are compared without parsing them into objects: the numbers are read in place and packed
+ * into a long, see {@link PackedVersion}, and the qualifiers are compared where they are in the strings.
+ * Only a version whose numbers do not fit, or that is not valid, is parsed.
+ */
+public final class OsgiVersion implements Comparable<OsgiVersion> {
+
+    /**
+     * Compares version strings the OSGi way
+     */
+    public static final Comparator<String> COMPARATOR = OsgiVersion::compare;
+
+    private static final char SEPARATOR = '.';
+    private static final int MAX_DIGITS = 9;
+
+    private final int major;
+    private final int minor;
+    private final int micro;
+    private final String qualifier;
+    private final String text;
+    private final boolean valid;
+
+    /**
+     * Constructor
+     *
+     * @param major     the major number
+     * @param minor     the minor number
+     * @param micro     the micro number
+     * @param qualifier the qualifier, empty when there is none
+     * @param text      the version as written
+     * @param valid     false when the text is not a valid OSGi version
+     */
+    private OsgiVersion(int major, int minor, int micro, String qualifier, String text, boolean valid) {
+        this.major = major;
+        this.minor = minor;
+        this.micro = micro;
+        this.qualifier = qualifier;
+        this.text = text;
+        this.valid = valid;
+    }
+
+    /**
+     * Parse a version
+     *
+     * @param version the version, null is the empty version
+     * @return OsgiVersion
+     */
+    public static OsgiVersion parse(String version) {
+        String text = version == null ? "" : version.trim();
+        if (text.isEmpty()) {
+            return new OsgiVersion(0, 0, 0, "", text, true);
+        }
+        String[] parts = text.split("\\.", 4);
+        try {
+            int major = parseNumber(parts[0]);
+            int minor = parts.length > 1 ? parseNumber(parts[1]) : 0;
+            int micro = parts.length > 2 ? parseNumber(parts[2]) : 0;
+            String qualifier = parts.length > 3 ? parts[3] : "";
+            return new OsgiVersion(major, minor, micro, qualifier, text, true);
+        } catch (NumberFormatException e) {
+            return new OsgiVersion(0, 0, 0, "", text, false);
+        }
+    }
+
+    /**
+     * Compare two version strings the OSGi way. Nothing is allocated unless a version does not pack.
+     *
+     * @param left  the first version, null is the empty version
+     * @param right the second version, null is the empty version
+     * @return a negative number, zero or a positive number as the first version is lower, equal or higher
+     */
+    public static int compare(String left, String right) {
+        long leftPacked = packNumbers(left);
+        long rightPacked = packNumbers(right);
+        if (leftPacked == PackedVersion.INVALID || rightPacked == PackedVersion.INVALID) {
+            return parse(left).compareTo(parse(right));
+        }
+        int result = Long.compareUnsigned(leftPacked, rightPacked);
+        return result != 0 ? result : compareQualifiers(left, right);
+    }
+
+    /**
+     * Read the numbers of a version in place, the same way {@link #parse(String)} does
+     *
+     * @param version the version, null is the empty version
+     * @return the packed numbers, {@link PackedVersion#INVALID} when the version is not valid or its numbers
+     * do not fit
+     */
+    private static long packNumbers(String version) {
+        if (version == null) {
+            return 0L;
+        }
+        int end = trimmedEnd(version);
+        int index = trimmedStart(version, end);
+        if (index == end) {
+            return 0L;
+        }
+        long major = 0;
+        long minor = 0;
+        long micro = 0;
+        for (int segment = 0; segment < 3; segment++) {
+            int start = index;
+            long number = 0;
+            while (index < end && version.charAt(index) != SEPARATOR) {
+                char character = version.charAt(index);
+                if (character < '0' || character > '9' || index - start == MAX_DIGITS) {
+                    return PackedVersion.INVALID;
+                }
+                number = number * 10 + (character - '0');
+                index++;
+            }
+            if (index == start) {
+                return PackedVersion.INVALID;
+            }
+            switch (segment) {
+                case 0 -> major = number;
+                case 1 -> minor = number;
+                default -> micro = number;
+            }
+            if (index == end) {
+                break;
+            }
+            // Skip the separator, the rest after the third one is the qualifier
+            index++;
+        }
+        if (major > PackedVersion.MAX_MAJOR || minor > PackedVersion.MAX_MINOR) {
+            return PackedVersion.INVALID;
+        }
+        return PackedVersion.pack((int) major, (int) minor, (int) micro);
+    }
+
+    /**
+     * Compare the qualifiers of two versions as strings, where they are in the versions
+     *
+     * @param left  the first version
+     * @param right the second version
+     * @return a negative number, zero or a positive number as the first qualifier is lower, equal or higher
+     */
+    private static int compareQualifiers(String left, String right) {
+        int leftEnd = left == null ? 0 : trimmedEnd(left);
+        int rightEnd = right == null ? 0 : trimmedEnd(right);
+        int leftIndex = left == null ? 0 : qualifierStart(left, leftEnd);
+        int rightIndex = right == null ? 0 : qualifierStart(right, rightEnd);
+        while (leftIndex < leftEnd && rightIndex < rightEnd) {
+            int result = Character.compare(left.charAt(leftIndex++), right.charAt(rightIndex++));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(leftEnd - leftIndex, rightEnd - rightIndex);
+    }
+
+    /**
+     * Get the start of the qualifier of a version
+     *
+     * @param version the version
+     * @param end     the end of the version without trailing whitespace
+     * @return the index after the third separator, the end when the version has no qualifier
+     */
+    private static int qualifierStart(String version, int end) {
+        int index = trimmedStart(version, end);
+        for (int separators = 0; separators < 3; separators++) {
+            while (index < end && version.charAt(index) != SEPARATOR) {
+                index++;
+            }
+            if (index == end) {
+                return end;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Get the end of a version without trailing whitespace, as {@link String#trim()} removes it
+     *
+     * @param version the version
+     * @return int
+     */
+    private static int trimmedEnd(String version) {
+        int end = version.length();
+        while (end > 0 && version.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Get the start of a version without leading whitespace, as {@link String#trim()} removes it
+     *
+     * @param version the version
+     * @param end     the end of the version without trailing whitespace
+     * @return int
+     */
+    private static int trimmedStart(String version, int end) {
+        int start = 0;
+        while (start < end && version.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Parse a number of a version, which must not be negative
+     *
+     * @param part the part of the version
+     * @return int
+     */
+    private static int parseNumber(String part) {
+        int number = Integer.parseInt(part);
+        if (number < 0 || part.startsWith("+")) {
+            throw new NumberFormatException(part);
+        }
+        return number;
+    }
+
+    /**
+     * Get the major number
+     *
+     * @return int
+     */
+    public int getMajor() {
+        return major;
+    }
+
+    /**
+     * Get the minor number
+     *
+     * @return int
+     */
+    public int getMinor() {
+        return minor;
+    }
+
+    /**
+     * Get the micro number
+     *
+     * @return int
+     */
+    public int getMicro() {
+        return micro;
+    }
+
+    /**
+     * Get the qualifier
+     *
+     * @return String, empty when there is none
+     */
+    public String getQualifier() {
+        return qualifier;
+    }
+
+    /**
+     * Check if the version is a valid OSGi version
+     *
+     * @return boolean
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    @Override
+    public int compareTo(OsgiVersion other) {
+        if (valid != other.valid) {
+            return valid ? 1 : -1;
+        }
+        if (!valid) {
+            return text.compareTo(other.text);
+        }
+        int result = Integer.compare(major, other.major);
+        if (result == 0) {
+            result = Integer.compare(minor, other.minor);
+        }
+        if (result == 0) {
+            result = Integer.compare(micro, other.micro);
+        }
+        return result == 0 ? qualifier.compareTo(other.qualifier) : result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof OsgiVersion other && compareTo(other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return valid ? 31 * (31 * (31 * major + minor) + micro) + qualifier.hashCode() : text.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
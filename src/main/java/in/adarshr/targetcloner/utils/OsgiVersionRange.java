@@ -0,0 +1,129 @@
+package in.adarshr.targetcloner.utils;
+
+/**
+ * This class is an OSGi version range: a floor and a ceiling in brackets, "[" and "]" when the version is
+ * included and "(" and ")" when it is not, e.g. [1.2,2.0). A single version is the range from that version
+ * up, with no ceiling.
+ */
+public final class OsgiVersionRange {
+
+    private final OsgiVersion floor;
+    private final boolean floorIncluded;
+    private final OsgiVersion ceiling;
+    private final boolean ceilingIncluded;
+    private final String text;
+
+    /**
+     * Constructor
+     *
+     * @param floor           the lowest version
+     * @param floorIncluded   true when the lowest version is in the range
+     * @param ceiling         the highest version, null when there is no ceiling
+     * @param ceilingIncluded true when the highest version is in the range
+     * @param text            the range as written
+     */
+    private OsgiVersionRange(OsgiVersion floor, boolean floorIncluded, OsgiVersion ceiling, boolean ceilingIncluded, String text) {
+        this.floor = floor;
+        this.floorIncluded = floorIncluded;
+        this.ceiling = ceiling;
+        this.ceilingIncluded = ceilingIncluded;
+        this.text = text;
+    }
+
+    /**
+     * Parse a version range
+     *
+     * @param range the range, or a single version
+     * @return OsgiVersionRange
+     * @throws IllegalArgumentException if the range is not a valid OSGi version range
+     */
+    public static OsgiVersionRange parse(String range) {
+        String text = range == null ? "" : range.trim();
+        if (text.isEmpty() || (text.charAt(0) != '[' && text.charAt(0) != '(')) {
+            OsgiVersion floor = parseVersion(text, range);
+            return new OsgiVersionRange(floor, true, null, false, text);
+        }
+        char last = text.charAt(text.length() - 1);
+        int comma = text.indexOf(',');
+        if ((last != ']' && last != ')') || comma < 0 || comma != text.lastIndexOf(',')) {
+            throw new IllegalArgumentException("Invalid version range: " + range);
+        }
+        OsgiVersion floor = parseVersion(text.substring(1, comma), range);
+        OsgiVersion ceiling = parseVersion(text.substring(comma + 1, text.length() - 1), range);
+        return new OsgiVersionRange(floor, text.charAt(0) == '[', ceiling, last == ']', text);
+    }
+
+    /**
+     * Parse a version of a range, which must be valid
+     *
+     * @param version the version
+     * @param range   the range, for the error message
+     * @return OsgiVersion
+     */
+    private static OsgiVersion parseVersion(String version, String range) {
+        OsgiVersion osgiVersion = OsgiVersion.parse(version);
+        if (!osgiVersion.isValid()) {
+            throw new IllegalArgumentException("Invalid version range: " + range);
+        }
+        return osgiVersion;
+    }
+
+    /**
+     * Get the lowest version
+     *
+     * @return OsgiVersion
+     */
+    public OsgiVersion getFloor() {
+        return floor;
+    }
+
+    /**
+     * Check if the lowest version is in the range
+     *
+     * @return boolean
+     */
+    public boolean isFloorIncluded() {
+        return floorIncluded;
+    }
+
+    /**
+     * Get the highest version
+     *
+     * @return OsgiVersion, null when there is no ceiling
+     */
+    public OsgiVersion getCeiling() {
+        return ceiling;
+    }
+
+    /**
+     * Check if the highest version is in the range
+     *
+     * @return boolean
+     */
+    public boolean isCeilingIncluded() {
+        return ceilingIncluded;
+    }
+
+    /**
+     * Check if a version is in the range
+     *
+     * @param version the version
+     * @return boolean
+     */
+    public boolean includes(OsgiVersion version) {
+        int floorResult = version.compareTo(floor);
+        if (floorResult < 0 || (floorResult == 0 && !floorIncluded)) {
+            return false;
+        }
+        if (ceiling == null) {
+            return true;
+        }
+        int ceilingResult = version.compareTo(ceiling);
+        return ceilingResult < 0 || (ceilingResult == 0 && ceilingIncluded);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,202 @@
+package in.adarshr.targetcloner.utils;
+
+/**
+ * This class packs the numbers of an OSGi version into a single long: the major number in the top 16 bits,
+ * the minor number in the next 16 bits and the micro number in the low 32 bits. The qualifier is not part of
+ * the packed number. Only a version in canonical form is packed, so the version can be written back exactly
+ * from its numbers, its number of segments and its qualifier.
+ */
+public final class PackedVersion {
+
+    /**
+     * The packed number of a version that is not in canonical form or does not fit
+     */
+    public static final long INVALID = -1L;
+    public static final int MAX_MAJOR = 0xFFFF;
+    public static final int MAX_MINOR = 0xFFFF;
+
+    private static final int MAX_SEGMENTS = 4;
+    private static final char SEPARATOR = '.';
+
+    /**
+     * Constructor
+     */
+    private PackedVersion() {
+    }
+
+    /**
+     * Pack the numbers of a version
+     *
+     * @param major the major number, 0 to 65535
+     * @param minor the minor number, 0 to 65535
+     * @param micro the micro number, not negative
+     * @return long
+     */
+    public static long pack(int major, int minor, int micro) {
+        if (major < 0 || major > MAX_MAJOR || minor < 0 || minor > MAX_MINOR || micro < 0) {
+            throw new IllegalArgumentException("Version numbers out of range: " + major + "." + minor + "." + micro);
+        }
+        return (long) major << 48 | (long) minor << 32 | micro;
+    }
+
+    /**
+     * Get the major number of a packed version
+     *
+     * @param packed the packed version
+     * @return int
+     */
+    public static int getMajor(long packed) {
+        return (int) (packed >>> 48);
+    }
+
+    /**
+     * Get the minor number of a packed version
+     *
+     * @param packed the packed version
+     * @return int
+     */
+    public static int getMinor(long packed) {
+        return (int) (packed >>> 32) & MAX_MINOR;
+    }
+
+    /**
+     * Get the micro number of a packed version
+     *
+     * @param packed the packed version
+     * @return int
+     */
+    public static int getMicro(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * Parse the numbers of a version in canonical form: one to three numbers without leading zeros, and an
+     * optional qualifier of letters, digits, '_' and '-', all separated by dots. The missing numbers are 0.
+     * The version is read in place, nothing is allocated.
+     *
+     * @param version the version
+     * @return the packed numbers, {@link #INVALID} when the version is not in canonical form or a number
+     * does not fit
+     */
+    public static long parse(String version) {
+        if (version == null || version.isEmpty()) {
+            return INVALID;
+        }
+        int length = version.length();
+        long major = 0;
+        long minor = 0;
+        long micro = 0;
+        int segment = 0;
+        int start = 0;
+        while (start <= length && segment < MAX_SEGMENTS - 1) {
+            int end = start;
+            long number = 0;
+            while (end < length && version.charAt(end) != SEPARATOR) {
+                char character = version.charAt(end);
+                if (character < '0' || character > '9' || (end > start && version.charAt(start) == '0')) {
+                    return INVALID;
+                }
+                number = number * 10 + (character - '0');
+                if (number > Integer.MAX_VALUE) {
+                    return INVALID;
+                }
+                end++;
+            }
+            if (end == start) {
+                return INVALID;
+            }
+            switch (segment) {
+                case 0 -> major = number;
+                case 1 -> minor = number;
+                default -> micro = number;
+            }
+            segment++;
+            if (end == length) {
+                break;
+            }
+            start = end + 1;
+            if (segment == MAX_SEGMENTS - 1 && !isQualifier(version, start)) {
+                return INVALID;
+            }
+        }
+        if (major > MAX_MAJOR || minor > MAX_MINOR) {
+            return INVALID;
+        }
+        return pack((int) major, (int) minor, (int) micro);
+    }
+
+    /**
+     * Get the number of segments of a version, the numbers and the qualifier
+     *
+     * @param version the version
+     * @return int, 1 to 4
+     */
+    public static int getSegmentCount(String version) {
+        int segments = 1;
+        for (int i = version.indexOf(SEPARATOR); i >= 0 && segments < MAX_SEGMENTS; i = version.indexOf(SEPARATOR, i + 1)) {
+            segments++;
+        }
+        return segments;
+    }
+
+    /**
+     * Get the qualifier of a version
+     *
+     * @param version the version
+     * @return String, null when the version has no qualifier
+     */
+    public static String getQualifier(String version) {
+        int index = -1;
+        for (int separators = 0; separators < MAX_SEGMENTS - 1; separators++) {
+            index = version.indexOf(SEPARATOR, index + 1);
+            if (index < 0) {
+                return null;
+            }
+        }
+        return version.substring(index + 1);
+    }
+
+    /**
+     * Write a packed version in canonical form
+     *
+     * @param packed    the packed version
+     * @param segments  the number of segments to write, 1 to 4
+     * @param qualifier the qualifier, written when there are 4 segments
+     * @return String
+     */
+    public static String format(long packed, int segments, String qualifier) {
+        StringBuilder builder = new StringBuilder(segments == MAX_SEGMENTS ? 16 + qualifier.length() : 16);
+        builder.append(getMajor(packed));
+        if (segments > 1) {
+            builder.append(SEPARATOR).append(getMinor(packed));
+        }
+        if (segments > 2) {
+            builder.append(SEPARATOR).append(getMicro(packed));
+        }
+        if (segments > 3) {
+            builder.append(SEPARATOR).append(qualifier);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Check if a version has a valid qualifier from the given index to its end
+     *
+     * @param version the version
+     * @param start   the first character of the qualifier
+     * @return boolean
+     */
+    private static boolean isQualifier(String version, int start) {
+        if (start == version.length()) {
+            return false;
+        }
+        for (int i = start; i < version.length(); i++) {
+            char character = version.charAt(i);
+            if (!(character >= 'a' && character <= 'z') && !(character >= 'A' && character <= 'Z')
+                    && !(character >= '0' && character <= '9') && character != '_' && character != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
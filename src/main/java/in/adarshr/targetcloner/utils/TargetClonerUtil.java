@@ -1,10 +1,17 @@
 package in.adarshr.targetcloner.utils;
 
+import in.adarshr.targetcloner.bo.TargetLoadFailure;
+import in.adarshr.targetcloner.bo.TargetLoadResult;
 import in.adarshr.targetcloner.constants.TargetClonerConstants;
+import in.adarshr.targetcloner.data.Mirror;
 import in.adarshr.targetcloner.data.Target;
 import in.adarshr.targetcloner.data.TargetDetails;
+import in.adarshr.targetcloner.helper.HttpTransport;
 import in.adarshr.targetcloner.helper.JaxbHelper;
+import in.adarshr.targetcloner.helper.RepoUnitIndex;
+import in.adarshr.targetcloner.helper.RepositoryCache;
 import jakarta.xml.bind.JAXBException;
+import org.apache.commons.lang3.StringUtils;
 import org.xml.sax.SAXException;
 
 import java.io.*;
@@ -14,8 +21,16 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 /**
@@ -50,56 +65,86 @@ public class TargetClonerUtil {
     }
 
     /**
-     * Get the target files to copy.
+     * Parse the input target files in the given location. The directory is walked lazily and every target
+     * file is handed to a bounded pool of parser threads as soon as it is found, so parsing starts before
+     * the walk is done. A file that cannot be parsed is reported as a failure and does not stop the others.
      *
-     * @param location the location
-     * @return the target files
+     * @param location the location of the target files
+     * @return the parsed targets, in the order the files were found, and the failures
      */
-    public static List<File> getTargetFilesToCopy(String location) {
-        List<File> targetFiles;
-        try (Stream<Path> paths = Files.walk(Paths.get(location))) {
-            targetFiles = paths.filter(Files::isRegularFile)
-                    .filter(p -> p.toString().endsWith(TargetClonerConstants.TARGET_FILE_SUFFIX))
-                    .map(Path::toFile).toList();
-        } catch (IOException e) {
-            LOG.error(">>> Failed to get target files to copy: {}", e.getMessage());
-            return Collections.emptyList();
+    public static TargetLoadResult loadTargetFiles(String location) {
+        List<Path> files = new ArrayList<>();
+        List<CompletableFuture<Target>> futures = new ArrayList<>();
+        List<TargetLoadFailure> failures = new ArrayList<>();
+        ExecutorService executor = createTargetLoaderExecutor();
+        try {
+            try (Stream<Path> paths = Files.walk(Paths.get(location))) {
+                paths.filter(p -> p.toString().endsWith(TargetClonerConstants.TARGET_FILE_SUFFIX))
+                        .filter(Files::isRegularFile)
+                        .forEach(path -> {
+                            files.add(path);
+                            futures.add(CompletableFuture.supplyAsync(() -> unmarshalTargetFile(path), executor));
+                        });
+            } catch (IOException | UncheckedIOException e) {
+                LOG.error(">>> Failed to get target files to copy: {}", e.getMessage());
+                failures.add(new TargetLoadFailure(Paths.get(location), e.getMessage()));
+            }
+            List<Target> targets = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    targets.add(futures.get(i).join());
+                } catch (CompletionException e) {
+                    failures.add(new TargetLoadFailure(files.get(i), getErrorMessage(e.getCause() != null ? e.getCause() : e)));
+                }
+            }
+            return new TargetLoadResult(targets, failures);
+        } finally {
+            executor.shutdownNow();
         }
-        return targetFiles;
     }
 
     /**
-     * Unmarshal the given XML file to an object without namespace.
+     * Unmarshal a target file
      *
-     * @param targetFiles the XML files
-     * @return the unmarshalled object
+     * @param file the target file
+     * @return the target
+     * @throws CompletionException if the file cannot be parsed
      */
-    public static List<Target> unmarshalTargetFiles(List<File> targetFiles) {
-        return targetFiles.stream()
-                .map(TargetClonerUtil::apply)
-                .toList();
+    private static Target unmarshalTargetFile(Path file) {
+        try {
+            return JaxbHelper.unmarshallOrThrow(file.toFile(), Target.class);
+        } catch (JAXBException e) {
+            throw new CompletionException(e);
+        }
     }
 
     /**
-     * Unmarshal the given XML file to an object without namespace.
+     * Get the message of a parse error. JAXB often keeps the message in the linked exception.
      *
-     * @param file the XML file
-     * @return the unmarshalled object
+     * @param exception the error
+     * @return String
      */
-    private static Target apply(File file) {
-        return JaxbHelper.unmarshall(file, Target.class);
+    private static String getErrorMessage(Throwable exception) {
+        if (exception.getMessage() == null && exception instanceof JAXBException jaxbException
+                && jaxbException.getLinkedException() != null) {
+            return jaxbException.getLinkedException().getMessage();
+        }
+        return exception.getMessage() != null ? exception.getMessage() : exception.toString();
     }
 
     /**
-     * Delivery report key
+     * Create the executor of the target file parsers, one thread per processor at most
      *
-     * @param group    Group
-     * @param artifact Artifact
-     * @param version  Version
-     * @return String
+     * @return ExecutorService
      */
-    public static String deliveryReportKey(String group, String artifact, String version) {
-        return group + artifact + version;
+    private static ExecutorService createTargetLoaderExecutor() {
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), TargetClonerConstants.MAX_TARGET_LOADER_THREADS);
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "target-loader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -118,6 +163,74 @@ public class TargetClonerUtil {
         }
     }
 
+    /**
+     * Create the repository cache. The directory given on the command line wins over the one in the input XML.
+     *
+     * @param cliCacheDirectory the cache directory from the command line, may be null
+     * @param targetDetails     the target details
+     * @param httpTransport     the transport the cache downloads with
+     * @return the repository cache, null when no cache directory is configured or it cannot be created
+     */
+    public static RepositoryCache createRepositoryCache(String cliCacheDirectory, TargetDetails targetDetails, HttpTransport httpTransport) {
+        String cacheDirectory = StringUtils.isNotBlank(cliCacheDirectory) ? cliCacheDirectory : targetDetails.getCacheDirectory();
+        if (StringUtils.isBlank(cacheDirectory)) {
+            return null;
+        }
+        try {
+            RepositoryCache repositoryCache = new RepositoryCache(Paths.get(cacheDirectory), httpTransport);
+            LOG.info(">>> Using repository cache: {}", repositoryCache.getCacheDirectory().toAbsolutePath());
+            return repositoryCache;
+        } catch (IOException e) {
+            LOG.error(">>> Failed to create repository cache {}, caching is disabled: {}", cacheDirectory, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Create the index of the parsed repository metadata, in the repository cache
+     *
+     * @param repositoryCache the repository cache, may be null
+     * @return the unit index, null when there is no repository cache or the index directory cannot be created
+     */
+    public static RepoUnitIndex createRepoUnitIndex(RepositoryCache repositoryCache) {
+        if (repositoryCache == null) {
+            return null;
+        }
+        Path indexDirectory = repositoryCache.getCacheDirectory().resolve(TargetClonerConstants.UNIT_INDEX_DIRECTORY);
+        try {
+            return new RepoUnitIndex(indexDirectory);
+        } catch (IOException e) {
+            LOG.error(">>> Failed to create unit index {}, metadata is parsed every run: {}", indexDirectory, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get the mirror rules of the input XML
+     *
+     * @param targetDetails the target details
+     * @return the mirror rules, empty when none are configured
+     */
+    public static List<Mirror> getMirrors(TargetDetails targetDetails) {
+        if (targetDetails.getMirrors() == null) {
+            return Collections.emptyList();
+        }
+        return targetDetails.getMirrors().getMirror();
+    }
+
+    /**
+     * Create a SHA-256 digest, which every Java platform has to provide
+     *
+     * @return MessageDigest
+     */
+    public static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     /**
      * Check if the location is URL
      *
@@ -0,0 +1,170 @@
+package in.adarshr.targetcloner.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * This class is a unit id with wildcards, as the id of a unit of a location or a plugin of the include
+ * bundles: '*' is any number of characters and '?' is a single character, e.g. org.eclipse.orbit.maven.*
+ * The part before the first wildcard is the prefix, so the ids that can match are a range of the sorted ids.
+ */
+public final class UnitIdPattern {
+
+    private static final char ANY_CHARACTERS = '*';
+    private static final char ANY_CHARACTER = '?';
+
+    private final String pattern;
+    private final String prefix;
+
+    /**
+     * Constructor
+     *
+     * @param pattern the pattern
+     * @param prefix  the part of the pattern before the first wildcard
+     */
+    private UnitIdPattern(String pattern, String prefix) {
+        this.pattern = pattern;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Check if a unit id has wildcards
+     *
+     * @param unitId the unit id, may be null
+     * @return boolean
+     */
+    public static boolean isPattern(String unitId) {
+        return unitId != null && wildcardIndex(unitId) >= 0;
+    }
+
+    /**
+     * Parse a unit id with wildcards
+     *
+     * @param pattern the unit id
+     * @return UnitIdPattern
+     */
+    public static UnitIdPattern compile(String pattern) {
+        int wildcard = wildcardIndex(pattern);
+        return new UnitIdPattern(pattern, wildcard < 0 ? pattern : pattern.substring(0, wildcard));
+    }
+
+    /**
+     * Create the filter of a set of unit ids, some of which may have wildcards
+     *
+     * @param unitIds the unit ids
+     * @return the filter that accepts an id in the set or matching one of its patterns
+     */
+    public static Predicate<String> filterOf(Set<String> unitIds) {
+        Set<String> exactIds = new HashSet<>();
+        List<UnitIdPattern> patterns = new ArrayList<>();
+        for (String unitId : unitIds) {
+            if (isPattern(unitId)) {
+                patterns.add(compile(unitId));
+            } else {
+                exactIds.add(unitId);
+            }
+        }
+        if (patterns.isEmpty()) {
+            return exactIds::contains;
+        }
+        return id -> {
+            if (exactIds.contains(id)) {
+                return true;
+            }
+            for (UnitIdPattern pattern : patterns) {
+                if (pattern.matches(id)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Get the part of the pattern before the first wildcard. Every id the pattern matches starts with it.
+     *
+     * @return String
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Get the ids that match the pattern. The ids that can match are a range of the sorted ids, which is found
+     * with a binary search for the prefix, so only the ids that start with the prefix are visited.
+     *
+     * @param sortedIds the ids, sorted
+     * @return the matching ids, sorted
+     */
+    public List<String> getMatches(String[] sortedIds) {
+        int index = Arrays.binarySearch(sortedIds, prefix);
+        List<String> matchingIds = new ArrayList<>();
+        for (index = index < 0 ? -index - 1 : index; index < sortedIds.length && sortedIds[index].startsWith(prefix); index++) {
+            if (matches(sortedIds[index])) {
+                matchingIds.add(sortedIds[index]);
+            }
+        }
+        return matchingIds;
+    }
+
+    /**
+     * Check if a unit id matches the pattern. Nothing is allocated.
+     *
+     * @param unitId the unit id
+     * @return boolean
+     */
+    public boolean matches(String unitId) {
+        if (unitId == null || !unitId.startsWith(prefix)) {
+            return false;
+        }
+        int patternIndex = prefix.length();
+        int idIndex = prefix.length();
+        // The last '*' and the id index it was tried at, to try it on one more character when the rest fails
+        int star = -1;
+        int starIdIndex = 0;
+        while (idIndex < unitId.length()) {
+            if (patternIndex < pattern.length() && pattern.charAt(patternIndex) == ANY_CHARACTERS) {
+                star = patternIndex++;
+                starIdIndex = idIndex;
+            } else if (patternIndex < pattern.length() && (pattern.charAt(patternIndex) == ANY_CHARACTER
+                    || pattern.charAt(patternIndex) == unitId.charAt(idIndex))) {
+                patternIndex++;
+                idIndex++;
+            } else if (star >= 0) {
+                patternIndex = star + 1;
+                idIndex = ++starIdIndex;
+            } else {
+                return false;
+            }
+        }
+        while (patternIndex < pattern.length() && pattern.charAt(patternIndex) == ANY_CHARACTERS) {
+            patternIndex++;
+        }
+        return patternIndex == pattern.length();
+    }
+
+    /**
+     * Get the index of the first wildcard of a unit id
+     *
+     * @param unitId the unit id
+     * @return int, -1 when there is none
+     */
+    private static int wildcardIndex(String unitId) {
+        for (int i = 0; i < unitId.length(); i++) {
+            char character = unitId.charAt(i);
+            if (character == ANY_CHARACTERS || character == ANY_CHARACTER) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
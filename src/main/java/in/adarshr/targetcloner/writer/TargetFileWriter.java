@@ -0,0 +1,138 @@
+package in.adarshr.targetcloner.writer;
+
+import in.adarshr.targetcloner.bo.WriteResult;
+import in.adarshr.targetcloner.data.Target;
+import in.adarshr.targetcloner.helper.JaxbHelper;
+import in.adarshr.targetcloner.utils.TargetClonerUtil;
+import jakarta.xml.bind.JAXBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class writes the target files to the output directory. The targets are marshalled and written
+ * concurrently on the common fork join pool. Each target is written to a temporary file first, and only a
+ * changed file is moved in place, so a reader never sees a partial file and a file that already has the same
+ * content keeps its modification time.
+ */
+public class TargetFileWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TargetFileWriter.class);
+
+    private final Path outputDirectory;
+
+    /**
+     * Constructor
+     *
+     * @param outputDirectory the directory the target files are written to
+     */
+    public TargetFileWriter(Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * Write the targets. The output directory is created when it does not exist.
+     *
+     * @param targets Map of file name and target
+     * @return Map of file name and the result of writing it
+     */
+    public Map<String, WriteResult> writeAll(Map<String, Target> targets) {
+        Map<String, WriteResult> results = new ConcurrentHashMap<>();
+        try {
+            Files.createDirectories(outputDirectory);
+        } catch (IOException e) {
+            LOG.error(">>> Failed to create directory: {}", e.getMessage());
+            targets.keySet().forEach(fileName -> results.put(fileName, WriteResult.failed(e.getMessage())));
+            return results;
+        }
+        targets.entrySet().parallelStream().forEach(entry -> results.put(entry.getKey(), write(entry.getValue(), entry.getKey())));
+        return results;
+    }
+
+    /**
+     * Write a target, unless the file already has the same content. The target is marshalled straight to a
+     * temporary file and digested on the way, and the temporary file is moved in place only when its
+     * digest is not the one of the file.
+     *
+     * @param target   the target
+     * @param fileName the file name
+     * @return the result
+     */
+    public WriteResult write(Target target, String fileName) {
+        Path file = outputDirectory.resolve(fileName);
+        try {
+            Path tempFile = Files.createTempFile(outputDirectory, fileName, null);
+            try {
+                byte[] contentDigest = marshal(target, tempFile);
+                long size = Files.size(tempFile);
+                if (hasContent(file, size, contentDigest)) {
+                    return WriteResult.unchanged();
+                }
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return WriteResult.written(size);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            LOG.error(">>> Failed to write {}: {}", file, e.getMessage());
+            return WriteResult.failed(e.getMessage());
+        } catch (JAXBException | XMLStreamException e) {
+            LOG.error(">>> Failed to create XML file: {}", e.getMessage());
+            return WriteResult.failed(e.getMessage());
+        }
+    }
+
+    /**
+     * Marshal a target to a file
+     *
+     * @param target the target
+     * @param file   the file
+     * @return the digest of the content written
+     * @throws JAXBException      if the target cannot be marshalled
+     * @throws XMLStreamException if the XML cannot be written
+     * @throws IOException        if the file cannot be written
+     */
+    private static byte[] marshal(Target target, Path file) throws JAXBException, XMLStreamException, IOException {
+        MessageDigest contentDigest = TargetClonerUtil.newSha256Digest();
+        try (Writer writer = new OutputStreamWriter(new DigestOutputStream(Files.newOutputStream(file), contentDigest), StandardCharsets.UTF_8)) {
+            JaxbHelper.marshalWithInstruction(target, Target.class, writer);
+        }
+        return contentDigest.digest();
+    }
+
+    /**
+     * Check if a file has the given content. The sizes are compared first, and only a file of the same size is
+     * read to compare the digests.
+     *
+     * @param file          the file
+     * @param size          the size of the content
+     * @param contentDigest the digest of the content
+     * @return boolean, false when the file does not exist
+     * @throws IOException if the file cannot be read
+     */
+    private static boolean hasContent(Path file, long size, byte[] contentDigest) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) != size) {
+            return false;
+        }
+        MessageDigest fileDigest = TargetClonerUtil.newSha256Digest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), fileDigest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return MessageDigest.isEqual(fileDigest.digest(), contentDigest);
+    }
+}
@@ -0,0 +1,321 @@
+package in.adarshr.targetcloner.writer;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * This class writes a target file the way the JAXB formatted output does: every element on its own line,
+ * indented with four spaces, text kept on the line of its element and elements without content closed
+ * with "/&gt;". Target files have no namespaces, so namespace declarations are dropped and elements are
+ * written with their local name only. The start tag of the root element ends with " &gt;", the space the
+ * removed namespace declaration used to leave, so the files stay the same as the ones written before.
+ */
+public class TargetXmlStreamWriter implements XMLStreamWriter {
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+    private static final String INDENT = "    ";
+
+    private final Writer writer;
+    private final String[] elementNames = new String[64];
+    private int depth;
+    private boolean startTagOpen;
+    private boolean didText;
+
+    /**
+     * Constructor
+     *
+     * @param writer the writer of the file, encoding UTF-8
+     */
+    public TargetXmlStreamWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void writeStartDocument() throws XMLStreamException {
+        write(XML_DECLARATION);
+    }
+
+    @Override
+    public void writeStartDocument(String version) throws XMLStreamException {
+        writeStartDocument();
+    }
+
+    @Override
+    public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+        writeStartDocument();
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target) throws XMLStreamException {
+        writeProcessingInstruction(target, null);
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+        closeStartTag();
+        printIndent();
+        write("<?");
+        write(target);
+        if (data != null) {
+            write(" ");
+            write(data);
+        }
+        write("?>");
+    }
+
+    @Override
+    public void writeStartElement(String localName) throws XMLStreamException {
+        closeStartTag();
+        if (!didText) {
+            printIndent();
+        }
+        if (depth == elementNames.length) {
+            throw new XMLStreamException("Elements are nested too deep");
+        }
+        elementNames[depth++] = localName;
+        didText = false;
+        write("<");
+        write(localName);
+        startTagOpen = true;
+    }
+
+    @Override
+    public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+        writeStartElement(localName);
+    }
+
+    @Override
+    public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        writeStartElement(localName);
+    }
+
+    @Override
+    public void writeEmptyElement(String localName) throws XMLStreamException {
+        writeStartElement(localName);
+        writeEndElement();
+    }
+
+    @Override
+    public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+        writeEmptyElement(localName);
+    }
+
+    @Override
+    public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        writeEmptyElement(localName);
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        if (depth == 0) {
+            throw new XMLStreamException("No element to end");
+        }
+        String localName = elementNames[--depth];
+        if (startTagOpen) {
+            write(depth == 0 ? " />" : "/>");
+            startTagOpen = false;
+        } else {
+            if (!didText) {
+                printIndent();
+            }
+            write("</");
+            write(localName);
+            write(">");
+        }
+        didText = false;
+    }
+
+    @Override
+    public void writeEndDocument() throws XMLStreamException {
+        while (depth > 0) {
+            writeEndElement();
+        }
+        write("\n");
+    }
+
+    @Override
+    public void writeAttribute(String localName, String value) throws XMLStreamException {
+        if (!startTagOpen) {
+            throw new XMLStreamException("Attribute " + localName + " written outside of a start tag");
+        }
+        write(" ");
+        write(localName);
+        write("=\"");
+        writeEscaped(value, true);
+        write("\"");
+    }
+
+    @Override
+    public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+        writeAttribute(localName, value);
+    }
+
+    @Override
+    public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+        writeAttribute(localName, value);
+    }
+
+    @Override
+    public void writeNamespace(String prefix, String namespaceURI) {
+        // Target files have no namespaces
+    }
+
+    @Override
+    public void writeDefaultNamespace(String namespaceURI) {
+        // Target files have no namespaces
+    }
+
+    @Override
+    public void writeCharacters(String text) throws XMLStreamException {
+        closeStartTag();
+        didText = true;
+        writeEscaped(text, false);
+    }
+
+    @Override
+    public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+        writeCharacters(new String(text, start, len));
+    }
+
+    @Override
+    public void writeCData(String data) throws XMLStreamException {
+        writeCharacters(data);
+    }
+
+    @Override
+    public void writeComment(String data) throws XMLStreamException {
+        closeStartTag();
+        printIndent();
+        write("<!--");
+        write(data);
+        write("-->");
+    }
+
+    @Override
+    public void writeDTD(String dtd) {
+        // Target files have no DTD
+    }
+
+    @Override
+    public void writeEntityRef(String name) throws XMLStreamException {
+        closeStartTag();
+        didText = true;
+        write("&" + name + ";");
+    }
+
+    @Override
+    public String getPrefix(String uri) {
+        return null;
+    }
+
+    @Override
+    public void setPrefix(String prefix, String uri) {
+        // Target files have no namespaces
+    }
+
+    @Override
+    public void setDefaultNamespace(String uri) {
+        // Target files have no namespaces
+    }
+
+    @Override
+    public void setNamespaceContext(NamespaceContext context) {
+        // Target files have no namespaces
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        throw new IllegalArgumentException("Property " + name + " is not supported");
+    }
+
+    @Override
+    public void flush() throws XMLStreamException {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new XMLStreamException(e);
+        }
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        // The underlying writer belongs to the caller
+        flush();
+    }
+
+    /**
+     * Close the pending start tag, if any
+     *
+     * @throws XMLStreamException if the writer fails
+     */
+    private void closeStartTag() throws XMLStreamException {
+        if (startTagOpen) {
+            write(depth == 1 ? " >" : ">");
+            startTagOpen = false;
+        }
+    }
+
+    /**
+     * Start a new line indented to the current depth
+     *
+     * @throws XMLStreamException if the writer fails
+     */
+    private void printIndent() throws XMLStreamException {
+        write("\n");
+        for (int i = 0; i < depth; i++) {
+            write(INDENT);
+        }
+    }
+
+    /**
+     * Write text or an attribute value with the characters JAXB escapes
+     *
+     * @param value       the value
+     * @param isAttribute true for an attribute value, where quotes are escaped too
+     * @throws XMLStreamException if the writer fails
+     */
+    private void writeEscaped(String value, boolean isAttribute) throws XMLStreamException {
+        try {
+            int start = 0;
+            for (int i = 0; i < value.length(); i++) {
+                String escape = switch (value.charAt(i)) {
+                    case '&' -> "&amp;";
+                    case '<' -> "&lt;";
+                    case '>' -> "&gt;";
+                    case '"' -> isAttribute ? "&quot;" : null;
+                    default -> null;
+                };
+                if (escape != null) {
+                    writer.write(value, start, i - start);
+                    writer.write(escape);
+                    start = i + 1;
+                }
+            }
+            writer.write(value, start, value.length() - start);
+        } catch (IOException e) {
+            throw new XMLStreamException(e);
+        }
+    }
+
+    /**
+     * Write a string as it is
+     *
+     * @param value the string
+     * @throws XMLStreamException if the writer fails
+     */
+    private void write(String value) throws XMLStreamException {
+        try {
+            writer.write(value);
+        } catch (IOException e) {
+            throw new XMLStreamException(e);
+        }
+    }
+}
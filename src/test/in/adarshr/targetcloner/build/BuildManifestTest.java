@@ -0,0 +1,70 @@
+package in.adarshr.targetcloner.build;
+
+import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.bo.Gav;
+import in.adarshr.targetcloner.bo.RepoData;
+import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.data.Target;
+import in.adarshr.targetcloner.data.TargetDetails;
+import in.adarshr.targetcloner.dto.TargetData;
+import in.adarshr.targetcloner.template.TargetTemplates;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuildManifestTest {
+
+    @Test
+    void testRebuildReasons(@TempDir Path outputDirectory) throws IOException {
+        TargetBuildContext context = TargetBuildContext.of(target(), "2.0.0", TargetTemplates.compile(new TargetDetails()));
+        TargetData targetData = targetData("1.0.0");
+
+        BuildManifest manifest = BuildManifest.load(outputDirectory);
+        assertEquals(Optional.of("not built before"), manifest.getRebuildReason(context, targetData));
+        manifest.save();
+        Files.writeString(outputDirectory.resolve(context.fileName()), "target");
+
+        manifest = BuildManifest.load(outputDirectory);
+        assertTrue(manifest.getRebuildReason(context, targetData).isEmpty());
+        assertEquals(Optional.of("repository metadata changed"), manifest.getRebuildReason(context, targetData("1.1.0")));
+        assertEquals(1, manifest.getRebuiltTargets().size());
+
+        Files.delete(outputDirectory.resolve(context.fileName()));
+        assertEquals(Optional.of("target file missing"), BuildManifest.load(outputDirectory).getRebuildReason(context, targetData));
+        assertEquals(Optional.of("not built before"), BuildManifest.create(outputDirectory).getRebuildReason(context, targetData));
+    }
+
+    private static TargetData targetData(String unitVersion) {
+        RepoData repoData = new RepoData();
+        repoData.setGroup("group");
+        repoData.setArtifact("artifact");
+        repoData.setVersion("2.0.0");
+        repoData.setLocation("https://example.org/repo/");
+        RepoUnit repoUnit = new RepoUnit();
+        repoUnit.setId("org.example");
+        repoUnit.setVersion(unitVersion);
+        TargetDetails targetDetails = new TargetDetails();
+        targetDetails.setVersion("2.0.0");
+        TargetData targetData = new TargetData();
+        targetData.setTargetDetails(targetDetails);
+        targetData.setDeliveryReportMap(Map.of(new Gav("group", "artifact", "2.0.0"), new DeliveryReport(null, "group", "artifact", "2.0.0", null, null, false)));
+        targetData.setComponentRepoDataMap(Map.of("ABC_1.0.0", Map.of("https://example.org/repo/", repoData)));
+        targetData.setRepoUnitsMap(Map.of(repoData, UnitTable.of(List.of(repoUnit))));
+        return targetData;
+    }
+
+    private static Target target() {
+        Target target = new Target();
+        target.setName("ABC_1.0.0");
+        target.setSequenceNumber("1");
+        return target;
+    }
+}
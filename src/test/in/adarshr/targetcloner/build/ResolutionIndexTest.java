@@ -0,0 +1,70 @@
+package in.adarshr.targetcloner.build;
+
+import in.adarshr.targetcloner.bo.RepoData;
+import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.data.Target;
+import in.adarshr.targetcloner.dto.TargetData;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResolutionIndexTest {
+
+    @Test
+    void testLookupsTakeLatestUnitAndLastTarget() {
+        RepoData repoData = repoData("1.0.0");
+        Target first = target("ABC_1.0.0", "1");
+        Target last = target("ABC_1.0.0", "2");
+        TargetData targetData = new TargetData();
+        targetData.setRepoUnitsMap(Map.of(repoData, UnitTable.of(List.of(unit("org.example", "2.0.0"), unit("org.example", "1.0.0")))));
+        targetData.setComponentRepoDataMap(Map.of("ABC_1.0.0", Map.of("https://example.org/repo/", repoData)));
+        targetData.setInputTargets(List.of(first, last));
+
+        ResolutionIndex resolutionIndex = new ResolutionIndex(targetData);
+
+        assertEquals("2.0.0", resolutionIndex.getRepoUnit(repoData("1.0.0"), "org.example", "0.0.0").orElseThrow().getVersion());
+        assertTrue(resolutionIndex.getRepoUnit(repoData("9.9.9"), "org.example", "0.0.0").isEmpty());
+        assertSame(repoData, resolutionIndex.getRepoData("ABC_1.0.0", "https://example.org/repo/"));
+        assertNull(resolutionIndex.getRepoData("XYZ_1.0.0", "https://example.org/repo/"));
+        assertSame(last, resolutionIndex.getInputTarget("ABC_1.0.0"));
+    }
+
+    @Test
+    void testIndexWithRepoUnitsKeepsLookups() {
+        RepoData repoData = repoData("1.0.0");
+        Target target = target("ABC_1.0.0", "1");
+        ResolutionIndex runIndex = new ResolutionIndex(Map.of(), Map.of("ABC_1.0.0", Map.of("https://example.org/repo/", repoData)), List.of(target));
+
+        ResolutionIndex targetIndex = runIndex.withRepoUnits(Map.of(repoData, UnitTable.of(List.of(unit("org.example", "1.0.0")))));
+
+        assertEquals("1.0.0", targetIndex.getRepoUnit(repoData, "org.example", "0.0.0").orElseThrow().getVersion());
+        assertTrue(runIndex.getRepoUnit(repoData, "org.example", "0.0.0").isEmpty());
+        assertSame(repoData, targetIndex.getRepoData("ABC_1.0.0", "https://example.org/repo/"));
+        assertSame(target, targetIndex.getInputTarget("ABC_1.0.0"));
+    }
+
+    private static RepoData repoData(String version) {
+        RepoData repoData = new RepoData();
+        repoData.setGroup("group");
+        repoData.setArtifact("artifact");
+        repoData.setVersion(version);
+        return repoData;
+    }
+
+    private static RepoUnit unit(String id, String version) {
+        RepoUnit repoUnit = new RepoUnit();
+        repoUnit.setId(id);
+        repoUnit.setVersion(version);
+        return repoUnit;
+    }
+
+    private static Target target(String name, String sequenceNumber) {
+        Target target = new Target();
+        target.setName(name);
+        target.setSequenceNumber(sequenceNumber);
+        return target;
+    }
+}
@@ -0,0 +1,26 @@
+package in.adarshr.targetcloner.build;
+
+import in.adarshr.targetcloner.data.Target;
+import in.adarshr.targetcloner.data.TargetDetails;
+import in.adarshr.targetcloner.template.TargetTemplates;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TargetBuildContextTest {
+
+    @Test
+    void testOf() {
+        Target inputTarget = new Target();
+        inputTarget.setName("ABC_1.0.0");
+        TargetDetails targetDetails = new TargetDetails();
+        targetDetails.setTargetSaveFormat("$COMPONENT$-$VERSION$");
+
+        TargetBuildContext context = TargetBuildContext.of(inputTarget, "2.0.0", TargetTemplates.compile(targetDetails));
+
+        assertEquals("ABC", context.componentName());
+        assertEquals("2.0.0", context.version());
+        assertEquals("ABC_2.0.0", context.targetName());
+        assertEquals("ABC-2.0.0.target", context.fileName());
+    }
+}
@@ -1,9 +1,23 @@
 package in.adarshr.targetcloner.build;
 
+import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.bo.Gav;
+import in.adarshr.targetcloner.bo.RepoData;
+import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.data.*;
 import in.adarshr.targetcloner.dto.TargetData;
+import in.adarshr.targetcloner.helper.JaxbHelper;
+import in.adarshr.targetcloner.template.TargetTemplates;
+import jakarta.xml.bind.JAXBException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import javax.xml.stream.XMLStreamException;
+import java.io.StringWriter;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 class TargetBuilderTest {
     private TargetBuilder targetBuilder;
     private TargetData targetData;
@@ -11,13 +25,117 @@ class TargetBuilderTest {
     @BeforeEach
     void setUp() {
         targetBuilder = new TargetBuilder();
+        RepoData first = repoData("first", "org.example.a", "org.example.b");
+        RepoData second = repoData("second", "org.example.c");
+        TargetDetails targetDetails = new TargetDetails();
+        targetDetails.setVersion("2.0.0");
+
+        List<Target> inputTargets = new ArrayList<>();
+        Map<String, Map<String, RepoData>> componentRepoDataMap = new HashMap<>();
+        for (int i = 0; i < 6; i++) {
+            RepoData repoData = i % 2 == 0 ? first : second;
+            Target target = target("COMP" + i + "_1.0.0", "1", repoData);
+            inputTargets.add(target);
+            componentRepoDataMap.put(target.getName(), Map.of(repoData.getLocation(), repoData));
+        }
+        // Both give the file name of an earlier target, so they have to win over it
+        for (String name : List.of("COMP1_0.9.0", "COMP4_0.8.0")) {
+            Target target = target(name, "2", first);
+            inputTargets.add(target);
+            componentRepoDataMap.put(target.getName(), Map.of(first.getLocation(), first));
+        }
+
+        Map<RepoData, UnitTable> repoUnitsMap = new HashMap<>();
+        repoUnitsMap.put(first, UnitTable.of(List.of(repoUnit("org.example.a", "1.0.0"), repoUnit("org.example.a", "1.1.0"),
+                repoUnit("org.example.b", "2.0.0"))));
+        repoUnitsMap.put(second, UnitTable.of(List.of(repoUnit("org.example.c", "3.0.0"), repoUnit("org.example.a", "1.2.0"))));
+
         targetData = new TargetData();
-        // TODO: Initialize targetData with necessary data
+        targetData.setVersion(targetDetails.getVersion());
+        targetData.setTargetDetails(targetDetails);
+        targetData.setTemplates(TargetTemplates.compile(targetDetails));
+        targetData.setInputTargets(inputTargets);
+        targetData.setComponentRepoDataMap(componentRepoDataMap);
+        targetData.setRepoUnitsMap(repoUnitsMap);
+        Map<Gav, DeliveryReport> deliveryReportMap = new HashMap<>();
+        for (String artifact : List.of("first", "second")) {
+            deliveryReportMap.put(new Gav("group", artifact, "2.0.0"), new DeliveryReport("OK", "group", artifact, "2.0.0", null, null, false));
+        }
+        targetData.setDeliveryReportMap(deliveryReportMap);
     }
 
     @Test
-    void testBuildTargets() {
-        // Map<String, Target> targets = targetBuilder.buildTargets(targetData);
-        // TODO: Add assertions to check the targets map
+    void testBuildTargets() throws JAXBException, XMLStreamException {
+        Map<String, Target> targets = targetBuilder.buildTargets(targetData);
+
+        Map<String, Target> sequentialTargets = new HashMap<>();
+        for (Target inputTarget : targetData.getInputTargets()) {
+            Target inpTarget = targetData.getResolutionIndex().getInputTarget(inputTarget.getName());
+            TargetBuildContext context = TargetBuildContext.of(inpTarget, targetData.getVersion(), targetData.getTemplates());
+            sequentialTargets.put(context.fileName(), targetBuilder.buildTarget(context, targetData));
+        }
+
+        assertEquals(6, targets.size());
+        assertEquals(toXml(sequentialTargets), toXml(targets));
+        assertEquals("2", targets.get("COMP1_2.0.0.target").getSequenceNumber());
+        assertEquals("2", targets.get("COMP4_2.0.0.target").getSequenceNumber());
+        assertEquals("1", targets.get("COMP0_2.0.0.target").getSequenceNumber());
+        Plugin plugin = targets.get("COMP3_2.0.0.target").getIncludeBundles().getPlugin().get(0);
+        assertEquals("2.0.0", plugin.getVersion());
+    }
+
+    private static RepoData repoData(String artifact, String... unitIds) {
+        RepoData repoData = new RepoData();
+        repoData.setGroup("group");
+        repoData.setArtifact(artifact);
+        repoData.setVersion("2.0.0");
+        repoData.setLocation("https://example.org/" + artifact + "/");
+        List<RepoUnit> repoUnits = new ArrayList<>();
+        for (String unitId : unitIds) {
+            repoUnits.add(repoUnit(unitId, null));
+        }
+        repoData.setRepoUnits(repoUnits);
+        return repoData;
+    }
+
+    private static RepoUnit repoUnit(String id, String version) {
+        RepoUnit repoUnit = new RepoUnit();
+        repoUnit.setId(id);
+        repoUnit.setVersion(version);
+        return repoUnit;
+    }
+
+    private static Target target(String name, String sequenceNumber, RepoData repoData) {
+        Location location = new Location();
+        RepositoryLocation repositoryLocation = new RepositoryLocation();
+        repositoryLocation.setLocation(repoData.getLocation());
+        location.setRepository(repositoryLocation);
+        for (RepoUnit repoUnit : repoData.getRepoUnits()) {
+            Unit unit = new Unit();
+            unit.setId(repoUnit.getId());
+            unit.setVersion("0.0.0");
+            location.getUnit().add(unit);
+        }
+        Target target = new Target();
+        target.setName(name);
+        target.setSequenceNumber(sequenceNumber);
+        target.setLocations(new Locations());
+        target.getLocations().getLocation().add(location);
+        Plugin plugin = new Plugin();
+        plugin.setId("org.example.b");
+        plugin.setVersion("1.0.0");
+        target.setIncludeBundles(new IncludeBundles());
+        target.getIncludeBundles().getPlugin().add(plugin);
+        return target;
+    }
+
+    private static Map<String, String> toXml(Map<String, Target> targets) throws JAXBException, XMLStreamException {
+        Map<String, String> xml = new TreeMap<>();
+        for (Map.Entry<String, Target> entry : targets.entrySet()) {
+            StringWriter writer = new StringWriter();
+            JaxbHelper.marshalWithInstruction(entry.getValue(), Target.class, writer);
+            xml.put(entry.getKey(), writer.toString());
+        }
+        return xml;
     }
 }
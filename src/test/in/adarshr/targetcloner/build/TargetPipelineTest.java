@@ -0,0 +1,196 @@
+package in.adarshr.targetcloner.build;
+
+import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.bo.Gav;
+import in.adarshr.targetcloner.bo.RepoData;
+import in.adarshr.targetcloner.bo.RepoFetchResult;
+import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.constants.TargetClonerConstants;
+import in.adarshr.targetcloner.data.*;
+import in.adarshr.targetcloner.dto.TargetData;
+import in.adarshr.targetcloner.helper.*;
+import in.adarshr.targetcloner.source.RepositorySourceFactory;
+import in.adarshr.targetcloner.template.TargetTemplates;
+import jakarta.xml.bind.JAXBException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TargetPipelineTest {
+
+    @TempDir
+    Path directory;
+    private String userDirectory;
+    private DownloadScheduler scheduler;
+    private RepositoryResolver resolver;
+    private Path first;
+    private Path second;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // The pipeline writes each target as it is built, keep the files out of the working directory
+        userDirectory = System.getProperty(TargetClonerConstants.USER_DIRECTORY);
+        System.setProperty(TargetClonerConstants.USER_DIRECTORY, directory.toString());
+        scheduler = new DownloadScheduler(4, 2);
+        resolver = new RepositoryResolver(new RepositorySourceFactory(Collections.emptyList(), null, null, null), scheduler);
+        first = writeRepository("first", "<unit id='org.example.a' version='1.0.0'/><unit id='org.example.a' version='1.1.0'/>"
+                + "<unit id='org.example.b' version='2.0.0'/>");
+        second = writeRepository("second", "<unit id='org.example.c' version='3.0.0'/><unit id='org.example.a' version='1.2.0'/>");
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+        System.setProperty(TargetClonerConstants.USER_DIRECTORY, userDirectory);
+    }
+
+    @Test
+    void testPipelineBuildsSameTargetsAsStagedRun() throws Exception {
+        TargetData stagedData = createTargetData();
+        Map<RepoData, RepoFetchResult> fetchResults = ConnectionHelper.downloadAndParseAll(stagedData.getRepoDataUrlSet(),
+                ReportHelper.getWantedUnitIds(stagedData), new RepositorySourceFactory(Collections.emptyList(), null, null, null), scheduler, null);
+        stagedData.setRepoUnitsMap(ConnectionHelper.getRepoUnitsMap(fetchResults));
+        Map<String, Target> staged = new TargetBuilder().buildTargets(stagedData);
+
+        TargetData pipelineData = createTargetData();
+        Map<String, Target> pipelined = new TargetPipeline(resolver, scheduler, null).run(pipelineData, ReportHelper.getWantedUnitIds(pipelineData));
+
+        assertEquals(toXml(staged), toXml(pipelined));
+        assertEquals(Set.of("ABC_2.0.0.target", "XYZ_2.0.0.target"), pipelined.keySet());
+        // ABC_0.9.0 comes after ABC_1.0.0 and gives the same file name, so it wins
+        assertEquals("2", pipelined.get("ABC_2.0.0.target").getSequenceNumber());
+        // The plugin is only in the repository of ABC, so XYZ had to wait for all repositories
+        Plugin plugin = pipelined.get("XYZ_2.0.0.target").getIncludeBundles().getPlugin().get(0);
+        assertEquals("org.example.b", plugin.getId());
+        assertEquals("2.0.0", plugin.getVersion());
+        assertEquals(2, pipelineData.getRepoUnitsMap().size());
+        assertTrue(Files.isRegularFile(directory.resolve(TargetClonerConstants.OUTPUT_DIRECTORY).resolve("XYZ_2.0.0.target")));
+    }
+
+    @Test
+    void testFailedTargetIsBuiltAgainOnNextRun() throws IOException {
+        TargetData targetData = createTargetData();
+        // ABC_0.9.0 is the one built for ABC, a location without a repository fails its build
+        targetData.getInputTargets().get(2).getLocations().getLocation().add(new Location());
+        Path outputDirectory = directory.resolve(TargetClonerConstants.OUTPUT_DIRECTORY);
+        BuildManifest manifest = BuildManifest.create(outputDirectory);
+
+        Map<String, Target> pipelined = new TargetPipeline(resolver, scheduler, manifest).run(targetData, ReportHelper.getWantedUnitIds(targetData));
+        manifest.save();
+
+        assertEquals(Set.of("XYZ_2.0.0.target"), pipelined.keySet());
+        Properties digests = new Properties();
+        try (InputStream in = Files.newInputStream(outputDirectory.resolve(BuildManifest.MANIFEST_FILE))) {
+            digests.load(in);
+        }
+        assertTrue(digests.stringPropertyNames().stream().anyMatch(key -> key.startsWith("XYZ_2.0.0.target")));
+        assertTrue(digests.stringPropertyNames().stream().noneMatch(key -> key.startsWith("ABC_2.0.0.target")));
+    }
+
+    private TargetData createTargetData() {
+        RepoData firstRepo = repoData("first", first, "org.example.a", "org.example.b");
+        RepoData secondRepo = repoData("second", second, "org.example.c");
+        RepoData secondRepoOfAbc = repoData("second", second, "org.example.a");
+        TargetDetails targetDetails = new TargetDetails();
+        targetDetails.setVersion("2.0.0");
+
+        Target abc = target("ABC_1.0.0", "1", firstRepo);
+        Target xyz = target("XYZ_1.0.0", "1", secondRepo);
+        IncludeBundles includeBundles = new IncludeBundles();
+        includeBundles.getPlugin().add(plugin("org.example.b", "1.0.0"));
+        includeBundles.getPlugin().add(plugin("org.example.missing", null));
+        xyz.setIncludeBundles(includeBundles);
+        Target abcOlder = target("ABC_0.9.0", "2", secondRepoOfAbc);
+
+        TargetData targetData = new TargetData();
+        targetData.setVersion(targetDetails.getVersion());
+        targetData.setTargetDetails(targetDetails);
+        targetData.setTemplates(TargetTemplates.compile(targetDetails));
+        targetData.setInputTargets(List.of(abc, xyz, abcOlder));
+        targetData.setRepoDataUrlSet(new HashSet<>(List.of(firstRepo, secondRepo, secondRepoOfAbc)));
+        Map<String, Map<String, RepoData>> componentRepoDataMap = new HashMap<>();
+        componentRepoDataMap.put(abc.getName(), Map.of(firstRepo.getLocation(), firstRepo));
+        componentRepoDataMap.put(xyz.getName(), Map.of(secondRepo.getLocation(), secondRepo));
+        componentRepoDataMap.put(abcOlder.getName(), Map.of(secondRepoOfAbc.getLocation(), secondRepoOfAbc));
+        targetData.setComponentRepoDataMap(componentRepoDataMap);
+        Map<Gav, DeliveryReport> deliveryReportMap = new HashMap<>();
+        for (String artifact : List.of("first", "second")) {
+            DeliveryReport deliveryReport = new DeliveryReport();
+            deliveryReport.setGroup("group");
+            deliveryReport.setArtifact(artifact);
+            deliveryReport.setVersion("2.0.0");
+            deliveryReportMap.put(new Gav("group", artifact, "2.0.0"), deliveryReport);
+        }
+        targetData.setDeliveryReportMap(deliveryReportMap);
+        return targetData;
+    }
+
+    private Path writeRepository(String name, String units) throws IOException {
+        Path repository = Files.createDirectories(directory.resolve(name));
+        Files.writeString(repository.resolve("content.xml"), "<repository><units>" + units + "</units></repository>");
+        return repository;
+    }
+
+    private static RepoData repoData(String artifact, Path repository, String... unitIds) {
+        RepoData repoData = new RepoData();
+        repoData.setGroup("group");
+        repoData.setArtifact(artifact);
+        repoData.setVersion("2.0.0");
+        repoData.setLocation(repository.toUri().toString());
+        List<RepoUnit> repoUnits = new ArrayList<>();
+        for (String unitId : unitIds) {
+            RepoUnit repoUnit = new RepoUnit();
+            repoUnit.setId(unitId);
+            repoUnits.add(repoUnit);
+        }
+        repoData.setRepoUnits(repoUnits);
+        return repoData;
+    }
+
+    private static Target target(String name, String sequenceNumber, RepoData repoData) {
+        Location location = new Location();
+        RepositoryLocation repositoryLocation = new RepositoryLocation();
+        repositoryLocation.setLocation(repoData.getLocation());
+        location.setRepository(repositoryLocation);
+        for (RepoUnit repoUnit : repoData.getRepoUnits()) {
+            Unit unit = new Unit();
+            unit.setId(repoUnit.getId());
+            unit.setVersion("0.0.0");
+            location.getUnit().add(unit);
+        }
+        Target target = new Target();
+        target.setName(name);
+        target.setSequenceNumber(sequenceNumber);
+        target.setLocations(new Locations());
+        target.getLocations().getLocation().add(location);
+        return target;
+    }
+
+    private static Plugin plugin(String id, String version) {
+        Plugin plugin = new Plugin();
+        plugin.setId(id);
+        plugin.setVersion(version);
+        return plugin;
+    }
+
+    private static Map<String, String> toXml(Map<String, Target> targets) throws JAXBException, XMLStreamException {
+        Map<String, String> xml = new TreeMap<>();
+        for (Map.Entry<String, Target> entry : targets.entrySet()) {
+            StringWriter writer = new StringWriter();
+            JaxbHelper.marshalWithInstruction(entry.getValue(), Target.class, writer);
+            xml.put(entry.getKey(), writer.toString());
+        }
+        return xml;
+    }
+}
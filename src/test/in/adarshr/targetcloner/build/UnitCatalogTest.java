@@ -0,0 +1,66 @@
+package in.adarshr.targetcloner.build;
+
+import in.adarshr.targetcloner.bo.RepoData;
+import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.utils.UnitIdPattern;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UnitCatalogTest {
+
+    @Test
+    void testHighestVersionWinsInAnyOrder() {
+        RepoUnit older = unit("org.example", "1.9.0");
+        RepoUnit newer = unit("org.example", "1.10.0");
+        Map<RepoData, UnitTable> newerFirst = new LinkedHashMap<>();
+        newerFirst.put(repoData("a"), UnitTable.of(List.of(newer)));
+        newerFirst.put(repoData("b"), UnitTable.of(List.of(older)));
+        Map<RepoData, UnitTable> olderFirst = new LinkedHashMap<>();
+        olderFirst.put(repoData("b"), UnitTable.of(List.of(older)));
+        olderFirst.put(repoData("a"), UnitTable.of(List.of(newer)));
+
+        assertEquals("1.10.0", new UnitCatalog(newerFirst).get("org.example").getVersion());
+        assertEquals("1.10.0", new UnitCatalog(olderFirst).get("org.example").getVersion());
+        assertNull(new UnitCatalog(olderFirst).get("org.other"));
+    }
+
+    @Test
+    void testSameVersionKeepsSmallerVersionString() {
+        for (List<String> versions : List.of(List.of("1.0", "1.0.0"), List.of("1.0.0", "1.0"))) {
+            Map<RepoData, UnitTable> repoUnitsMap = new LinkedHashMap<>();
+            repoUnitsMap.put(repoData("a"), UnitTable.of(List.of(unit("org.example", versions.get(0)))));
+            repoUnitsMap.put(repoData("b"), UnitTable.of(List.of(unit("org.example", versions.get(1)))));
+
+            assertEquals("1.0", new UnitCatalog(repoUnitsMap).get("org.example").getVersion());
+        }
+    }
+
+    @Test
+    void testMatchingIdsOfAllRepositories() {
+        Map<RepoData, UnitTable> repoUnitsMap = new LinkedHashMap<>();
+        repoUnitsMap.put(repoData("a"), UnitTable.of(List.of(unit("org.example.b", "1.0.0"), unit("org.other", "1.0.0"))));
+        repoUnitsMap.put(repoData("b"), UnitTable.of(List.of(unit("org.example.a", "1.0.0"), unit("org.example.b", "2.0.0"))));
+
+        assertEquals(List.of("org.example.a", "org.example.b"),
+                new UnitCatalog(repoUnitsMap).getMatchingIds(UnitIdPattern.compile("org.example.*")));
+    }
+
+    private static RepoData repoData(String artifact) {
+        RepoData repoData = new RepoData();
+        repoData.setArtifact(artifact);
+        return repoData;
+    }
+
+    private static RepoUnit unit(String id, String version) {
+        RepoUnit repoUnit = new RepoUnit();
+        repoUnit.setId(id);
+        repoUnit.setVersion(version);
+        return repoUnit;
+    }
+}
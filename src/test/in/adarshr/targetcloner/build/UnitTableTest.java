@@ -0,0 +1,111 @@
+package in.adarshr.targetcloner.build;
+
+import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.data.UnitSelection;
+import in.adarshr.targetcloner.utils.PackedVersion;
+import in.adarshr.targetcloner.utils.UnitIdPattern;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitTableTest {
+
+    @Test
+    void testVersionsAreWrittenBackAsParsed() {
+        List<String> versions = Arrays.asList("1", "1.2", "1.2.3", "1.2.3.v20240101-1200_rc", "0.0.0",
+                "01.2.3", "1.2.3.", "1.2.3.a.b", "70000.0.0", "1.2.3.4.5", "", " 1.0", null);
+        List<RepoUnit> repoUnits = new ArrayList<>();
+        for (int i = 0; i < versions.size(); i++) {
+            repoUnits.add(unit("org.example." + i, versions.get(i), null, null));
+        }
+
+        UnitTable unitTable = UnitTable.of(repoUnits);
+
+        assertEquals(versions.size(), unitTable.size());
+        for (int row = 0; row < versions.size(); row++) {
+            assertEquals(versions.get(row), unitTable.getVersion(row));
+        }
+        assertEquals(PackedVersion.pack(1, 2, 3), unitTable.getPackedVersion(3));
+        assertEquals("v20240101-1200_rc", unitTable.getQualifier(3));
+        assertEquals(PackedVersion.INVALID, unitTable.getPackedVersion(5));
+        assertEquals(PackedVersion.INVALID, unitTable.getPackedVersion(8));
+    }
+
+    @Test
+    void testLookupTakesLatestVersionAndSharesIds() {
+        UnitTable first = UnitTable.of(List.of(unit(new String("org.example"), "2.0.0", "true", "2"),
+                unit("org.example", "1.0.0", "false", null), unit("org.other", "1.0.0", "", "x")));
+        UnitTable second = UnitTable.of(List.of(unit(new String("org.example"), "3.0.0", null, null)));
+
+        UnitTable.UnitView view = first.find("org.example").orElseThrow();
+        assertEquals("2.0.0", view.getVersion());
+        assertTrue(view.isSingleton());
+        assertEquals(2, view.getGeneration());
+        assertFalse(first.get(1).isSingleton());
+        assertEquals(-1, first.get(2).getGeneration());
+        assertEquals(2, first.latest("org.other"));
+        assertTrue(first.find("org.missing").isEmpty());
+        assertEquals(-1, UnitTable.empty().latest("org.example"));
+        assertSame(first.getId(0), second.getId(0));
+    }
+
+    @Test
+    void testSelectionPolicies() {
+        List<RepoUnit> repoUnits = new ArrayList<>();
+        for (String version : List.of("1.10.0", "2.0.0.v1", "1.2.0", "1.2", "2.0.0.v2", "1.9.0.b", "1.9.0.a", "1.0.0.")) {
+            repoUnits.add(unit("org.example", version, null, null));
+        }
+        repoUnits.add(unit("org.other", "1.0.0", null, null));
+        UnitTable unitTable = UnitTable.of(repoUnits);
+
+        assertEquals("2.0.0.v2", select(unitTable, UnitSelection.LATEST, "1.2.0"));
+        assertEquals("2.0.0.v2", select(unitTable, null, "1.2.0"));
+        assertEquals("1.10.0", select(unitTable, UnitSelection.LATEST_IN_RANGE, "[1.0,2.0)"));
+        assertEquals("1.9.0.b", select(unitTable, UnitSelection.LATEST_IN_RANGE, "[1.0,1.10.0)"));
+        assertEquals("2.0.0.v2", select(unitTable, UnitSelection.LATEST_IN_RANGE, "1.5"));
+        assertNull(select(unitTable, UnitSelection.LATEST_IN_RANGE, "(2.0.0.v2,3)"));
+        assertNull(select(unitTable, UnitSelection.LATEST_IN_RANGE, "[0.1,0.2]"));
+        assertEquals("1.2", select(unitTable, UnitSelection.EXACT, "1.2.0"));
+        assertEquals("1.0.0.", select(unitTable, UnitSelection.EXACT, "1.0"));
+        assertEquals("2.0.0.v1", select(unitTable, UnitSelection.EXACT, "2.0.0.v1"));
+        assertNull(select(unitTable, UnitSelection.EXACT, "1.3.0"));
+        assertEquals("2.0.0.v2", select(unitTable, UnitSelection.EXACT, "0.0.0"));
+        assertEquals("1.0.0", unitTable.select("org.other", UnitSelection.EXACT, "1.0.0").orElseThrow().getVersion());
+        assertThrows(IllegalArgumentException.class, () -> unitTable.select("org.example", UnitSelection.LATEST_IN_RANGE, "[1.0"));
+    }
+
+    @Test
+    void testMatchingIdsAreARangeOfTheSortedIds() {
+        List<RepoUnit> repoUnits = new ArrayList<>();
+        for (String id : List.of("org.eclipse.ui", "org.apache.ant", "org.eclipse.jdt.ui", "org.eclipse.jdt.core",
+                "org.eclipse.jdt", "org.eclipse.jdt.ui", "org.eclipsex.jdt.ui", "com.example")) {
+            repoUnits.add(unit(id, "1.0.0", null, null));
+        }
+        UnitTable unitTable = UnitTable.of(repoUnits);
+
+        assertEquals(List.of("org.eclipse.jdt.core", "org.eclipse.jdt.ui"),
+                unitTable.getMatchingIds(UnitIdPattern.compile("org.eclipse.jdt.*")));
+        assertEquals(List.of("org.eclipse.jdt.ui", "org.eclipse.ui"),
+                unitTable.getMatchingIds(UnitIdPattern.compile("org.eclipse.*ui")));
+        assertEquals(List.of("com.example", "org.eclipse.jdt.core"), unitTable.getMatchingIds(UnitIdPattern.compile("*e")));
+        assertEquals(List.of(), unitTable.getMatchingIds(UnitIdPattern.compile("org.eclipse.pde.*")));
+        assertEquals(List.of(), UnitTable.empty().getMatchingIds(UnitIdPattern.compile("*")));
+    }
+
+    private static String select(UnitTable unitTable, UnitSelection selection, String version) {
+        return unitTable.select("org.example", selection, version).map(UnitTable.UnitView::getVersion).orElse(null);
+    }
+
+    private static RepoUnit unit(String id, String version, String singleton, String generation) {
+        RepoUnit repoUnit = new RepoUnit();
+        repoUnit.setId(id);
+        repoUnit.setVersion(version);
+        repoUnit.setSingleton(singleton);
+        repoUnit.setGeneration(generation);
+        return repoUnit;
+    }
+}
@@ -0,0 +1,41 @@
+package in.adarshr.targetcloner.helper;
+
+import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.bo.Gav;
+import in.adarshr.targetcloner.bo.ReportParseResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeliveryReportParserTest {
+
+    @Test
+    void testParseReportsMalformedLines() throws IOException {
+        String report = "Delivery report\n"
+                + "status:group:artifact:version:classifier:extension\n"
+                + "OK : org.abc : core : 1.0.0 : : zip\n"
+                + "\n"
+                + "OK:org.abc:broken\n"
+                + "OK:ab:c:1.0.0\n"
+                + "OK:a:bc:1.0.0\n"
+                + "OK::core:1.0.0\n"
+                + "OK:org.xyz:ui:2.0.0\n";
+
+        ReportParseResult result = DeliveryReportParser.parse(new BufferedReader(new StringReader(report)), 2);
+
+        assertEquals(4, result.getDeliveryReports().size());
+        DeliveryReport deliveryReport = result.getDeliveryReports().get(new Gav("org.abc", "core", "1.0.0"));
+        assertEquals("OK", deliveryReport.getStatus());
+        assertEquals("", deliveryReport.getClassifier());
+        assertEquals("zip", deliveryReport.getExtension());
+        assertNull(result.getDeliveryReports().get(new Gav("org.xyz", "ui", "2.0.0")).getClassifier());
+        assertNotEquals(new Gav("ab", "c", "1.0.0"), new Gav("a", "bc", "1.0.0"));
+        assertEquals(2, result.getMalformedLines().size());
+        assertEquals(5, result.getMalformedLines().get(0).getLineNumber());
+        assertEquals(8, result.getMalformedLines().get(1).getLineNumber());
+    }
+}
@@ -0,0 +1,62 @@
+package in.adarshr.targetcloner.helper;
+
+import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.bo.Gav;
+import in.adarshr.targetcloner.bo.ReportChangeSet;
+import in.adarshr.targetcloner.data.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeliveryReportSnapshotTest {
+
+    private static final String LOCATION = "https://host/a/b/release/1.0.0/";
+
+    @Test
+    void testChangeSetAndCorrelations(@TempDir Path outputDirectory) {
+        List<Pattern> patterns = List.of(pattern("https://host/$GROUP$/$ARTIFACT$/release/$VERSION$/"));
+        Map<Gav, DeliveryReport> deliveryReports = new HashMap<>();
+        put(deliveryReports, new DeliveryReport("OK", "a", "b", "1.0.0", null, null, false));
+        put(deliveryReports, new DeliveryReport("OK", "a", "c", "1.0.0", null, null, false));
+
+        DeliveryReportSnapshot snapshot = DeliveryReportSnapshot.load(outputDirectory);
+        assertEquals(2, snapshot.getChangeSet(deliveryReports, patterns).added().size());
+        assertNull(snapshot.getPreviousCorrelation(LOCATION));
+        DeliveryReportSnapshot.Correlation correlation = new DeliveryReportSnapshot.Correlation(new Gav("a", "b", "1.0.0"), LOCATION, 1);
+        snapshot.putCorrelation(LOCATION, correlation);
+        snapshot.save();
+
+        Map<Gav, DeliveryReport> nextDeliveryReports = new HashMap<>();
+        put(nextDeliveryReports, new DeliveryReport("OK", "a", "b", "1.0.0", null, null, false));
+        put(nextDeliveryReports, new DeliveryReport("FAILED", "a", "c", "1.0.0", null, null, false));
+        put(nextDeliveryReports, new DeliveryReport("OK", "a", "d", "1.0.0", null, null, false));
+        snapshot = DeliveryReportSnapshot.load(outputDirectory);
+        ReportChangeSet changeSet = snapshot.getChangeSet(nextDeliveryReports, patterns);
+        assertEquals(Set.of(new Gav("a", "d", "1.0.0")), changeSet.added());
+        assertEquals(Set.of(new Gav("a", "c", "1.0.0")), changeSet.changed());
+        assertTrue(changeSet.removed().isEmpty());
+        assertEquals(correlation, snapshot.getPreviousCorrelation(LOCATION));
+
+        snapshot = DeliveryReportSnapshot.load(outputDirectory);
+        snapshot.getChangeSet(nextDeliveryReports, List.of(pattern("https://other/$GROUP$/$ARTIFACT$/$VERSION$/")));
+        assertNull(snapshot.getPreviousCorrelation(LOCATION));
+    }
+
+    private static void put(Map<Gav, DeliveryReport> deliveryReports, DeliveryReport deliveryReport) {
+        deliveryReports.put(new Gav(deliveryReport.getGroup(), deliveryReport.getArtifact(), deliveryReport.getVersion()), deliveryReport);
+    }
+
+    private static Pattern pattern(String urlPattern) {
+        Pattern pattern = new Pattern();
+        pattern.setUrlPattern(urlPattern);
+        pattern.setUseDeliveryReport(true);
+        return pattern;
+    }
+}
@@ -0,0 +1,78 @@
+package in.adarshr.targetcloner.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownloadSchedulerTest {
+
+    private static final int MAX_DOWNLOADS = 5;
+    private static final int MAX_DOWNLOADS_PER_HOST = 2;
+    private static final List<String> HOSTS = List.of("a.example.org", "b.example.org", "c.example.org", "d.example.org");
+
+    @Test
+    void testPeakConcurrencyStaysWithinLimits() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        Map<String, AtomicInteger> hostInFlight = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> hostPeak = new ConcurrentHashMap<>();
+        List<Integer> keys = IntStream.range(0, 40).boxed().toList();
+
+        Map<Integer, String> results;
+        try (DownloadScheduler scheduler = new DownloadScheduler(MAX_DOWNLOADS, MAX_DOWNLOADS_PER_HOST)) {
+            results = scheduler.runAll(keys, key -> {
+                String host = HOSTS.get(key % HOSTS.size());
+                try {
+                    return scheduler.withPermit("https://" + host.toUpperCase() + "/repo/" + key, () -> {
+                        AtomicInteger hostCount = hostInFlight.computeIfAbsent(host, ignored -> new AtomicInteger());
+                        peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        hostPeak.computeIfAbsent(host, ignored -> new AtomicInteger()).accumulateAndGet(hostCount.incrementAndGet(), Math::max);
+                        Thread.sleep(10);
+                        hostCount.decrementAndGet();
+                        inFlight.decrementAndGet();
+                        return host;
+                    });
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+        }
+
+        assertEquals(keys.size(), results.size());
+        assertTrue(peak.get() <= MAX_DOWNLOADS, "peak " + peak.get());
+        assertTrue(peak.get() > MAX_DOWNLOADS_PER_HOST, "the hosts did not run in parallel");
+        hostPeak.forEach((host, hostCount) -> assertTrue(hostCount.get() <= MAX_DOWNLOADS_PER_HOST, host + " peak " + hostCount.get()));
+    }
+
+    @Test
+    void testCloseInterruptsTasksAndRejectsNewOnes() throws InterruptedException {
+        DownloadScheduler scheduler = new DownloadScheduler(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> {
+            try {
+                return scheduler.withPermit("https://example.org/", () -> {
+                    started.countDown();
+                    Thread.sleep(60_000);
+                    return false;
+                });
+            } catch (InterruptedException e) {
+                return true;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, scheduler.getExecutor());
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        scheduler.close();
+
+        assertTrue(running.orTimeout(10, TimeUnit.SECONDS).join());
+        assertThrows(RejectedExecutionException.class, () -> scheduler.getExecutor().execute(() -> {
+        }));
+    }
+}
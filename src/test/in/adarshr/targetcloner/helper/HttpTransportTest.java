@@ -0,0 +1,120 @@
+package in.adarshr.targetcloner.helper;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpTransportTest {
+    private HttpServer server;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger hedgedCount = new AtomicInteger();
+    private final AtomicInteger stalledCount = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/flaky", exchange -> {
+            if (requestCount.incrementAndGet() == 1) {
+                exchange.sendResponseHeaders(503, -1);
+            } else {
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+                    out.write("report".getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            exchange.close();
+        });
+        server.createContext("/hedged", exchange -> {
+            // Only the hedged request is answered, the first one and the client's own retry of it are dropped
+            boolean isHedge = hedgedCount.incrementAndGet() == 2;
+            pause(isHedge ? 600 : 200);
+            if (isHedge) {
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write("hedged".getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            exchange.close();
+        });
+        server.createContext("/stalled", exchange -> {
+            // The first body stops sending after a few bytes, the second one is complete
+            boolean isFirst = stalledCount.incrementAndGet() == 1;
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write((isFirst ? "par" : "complete").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                if (isFirst) {
+                    pause(10_000);
+                }
+            }
+            exchange.close();
+        });
+        server.setExecutor(executor);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testGetRetriesUnavailableAndDecodesGzip() throws IOException {
+        try (HttpTransport.Response response = new HttpTransport(null).get(baseUrl + "/flaky", Collections.emptyMap())) {
+            assertEquals(200, response.statusCode());
+            assertEquals(2, response.attempts());
+            assertEquals("report", new String(response.body().readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testHedgedRequestAnswersWhenFirstFails() throws IOException {
+        try (HttpTransport.Response response = new HttpTransport(Duration.ofMillis(50)).get(baseUrl + "/hedged", Collections.emptyMap())) {
+            assertEquals(200, response.statusCode());
+            assertEquals(1, response.attempts());
+            assertEquals("hedged", new String(response.body().readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testStalledBodyTimesOutAndIsRequestedAgain() throws IOException {
+        long start = System.nanoTime();
+        String body = new HttpTransport(null, Duration.ofMillis(300)).get(baseUrl + "/stalled", Collections.emptyMap(), response -> {
+            assertEquals(stalledCount.get(), response.attempts());
+            return new String(response.body().readAllBytes(), StandardCharsets.UTF_8);
+        });
+
+        assertEquals("complete", body);
+        assertEquals(2, stalledCount.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5), "the stalled body was not abandoned");
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
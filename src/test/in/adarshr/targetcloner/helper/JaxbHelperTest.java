@@ -0,0 +1,56 @@
+package in.adarshr.targetcloner.helper;
+
+import in.adarshr.targetcloner.data.Target;
+import jakarta.xml.bind.JAXBException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JaxbHelperTest {
+    private static final String NAMESPACE = "https://in.adarshr.targetcloner.data/TargetCloner.xsd";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testContextIsCreatedOnce() throws JAXBException {
+        assertSame(JaxbHelper.getContext(Target.class), JaxbHelper.getContext(Target.class));
+    }
+
+    @Test
+    void testConcurrentUnmarshalWithPooledUnmarshallers() throws Exception {
+        List<File> files = IntStream.range(0, 20).mapToObj(i -> writeTarget("target" + i)).toList();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Target>> tasks = files.stream().<Callable<Target>>map(file -> () -> JaxbHelper.unmarshall(file, Target.class)).toList();
+            List<Future<Target>> results = executor.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("target" + i, results.get(i).get().getName());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private File writeTarget(String name) {
+        try {
+            Path file = directory.resolve(name + ".target");
+            Files.writeString(file, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><tar:target xmlns:tar=\"" + NAMESPACE + "\" name=\"" + name + "\"/>");
+            return file.toFile();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
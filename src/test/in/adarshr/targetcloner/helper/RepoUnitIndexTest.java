@@ -0,0 +1,91 @@
+package in.adarshr.targetcloner.helper;
+
+import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.source.LocalFileInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepoUnitIndexTest {
+
+    private static final String CONTENT_XML = "<repository><units size='3'>"
+            + "<unit id='a.bundle' version='1.0.0' singleton='true' generation='1'/>"
+            + "<unit id='b.bundle' version='2.0.0.v2024' singleton='true' generation='1'/>"
+            + "<unit id='c.bundle' version='1.0.0'/>"
+            + "</units></repository>";
+
+    @TempDir
+    Path indexDirectory;
+
+    @Test
+    void testUnitsAreIndexedOnce(@TempDir Path repository) throws IOException {
+        RepoUnitIndex unitIndex = new RepoUnitIndex(indexDirectory);
+        AtomicInteger parses = new AtomicInteger();
+        Path metadataFile = Files.writeString(repository.resolve("content.xml"), CONTENT_XML);
+
+        List<RepoUnit> parsed = unitIndex.getUnits(localStream(metadataFile), in -> {
+            parses.incrementAndGet();
+            return XMLHelper.parseXml(in);
+        }, id -> !id.startsWith("b"));
+        List<RepoUnit> loaded = unitIndex.getUnits(localStream(metadataFile), in -> {
+            parses.incrementAndGet();
+            return XMLHelper.parseXml(in);
+        }, id -> !id.startsWith("b"));
+
+        assertEquals(1, parses.get());
+        assertEquals(2, loaded.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            assertEquals(parsed.get(i).getId(), loaded.get(i).getId());
+            assertEquals(parsed.get(i).getVersion(), loaded.get(i).getVersion());
+            assertEquals(parsed.get(i).getSingleton(), loaded.get(i).getSingleton());
+            assertEquals(parsed.get(i).getGeneration(), loaded.get(i).getGeneration());
+        }
+        assertEquals(3, unitIndex.getUnits(localStream(metadataFile), in -> List.of(), id -> true).size());
+    }
+
+    @Test
+    void testStreamWithoutLocalCopyIsParsedAsItIsRead() throws IOException {
+        RepoUnitIndex unitIndex = new RepoUnitIndex(indexDirectory);
+        AtomicInteger parses = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            List<RepoUnit> repoUnits = unitIndex.getUnits(stream(), in -> {
+                parses.incrementAndGet();
+                return XMLHelper.parseXml(in);
+            }, id -> !id.startsWith("b"));
+            assertEquals(List.of("c.bundle", "a.bundle"), repoUnits.stream().map(RepoUnit::getId).toList());
+        }
+
+        assertEquals(2, parses.get());
+        try (Stream<Path> files = Files.list(indexDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testIndexOfAnotherFormatIsNotRead() throws IOException {
+        RepoUnitIndex unitIndex = new RepoUnitIndex(indexDirectory);
+        Path indexFile = indexDirectory.resolve("index.units");
+        Files.write(indexFile, new byte[]{0x54, 0x43, 0x55, 0x49, 0, 0, 0, 99, 0, 0, 0, 0, 0, 0, 0, 0});
+
+        assertNull(unitIndex.read(indexFile, id -> true));
+    }
+
+    private static ByteArrayInputStream stream() {
+        return new ByteArrayInputStream(CONTENT_XML.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static LocalFileInputStream localStream(Path file) throws IOException {
+        return new LocalFileInputStream(Files.newInputStream(file), file, null);
+    }
+}
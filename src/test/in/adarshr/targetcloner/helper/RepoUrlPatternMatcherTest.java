@@ -0,0 +1,64 @@
+package in.adarshr.targetcloner.helper;
+
+import in.adarshr.targetcloner.bo.DeliveryReport;
+import in.adarshr.targetcloner.data.Pattern;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RepoUrlPatternMatcherTest {
+
+    @Test
+    void testFindMatchesSameAsScan() {
+        List<Pattern> patterns = List.of(pattern(".", "/", true, null), pattern(".", "-", false, "9.0.0"));
+        List<DeliveryReport> deliveryReports = List.of(
+                new DeliveryReport("OK", "org.abc", "core", "1.0.0", null, null, false),
+                new DeliveryReport("OK", "org.abc", "co", "1.0.0", null, null, false),
+                new DeliveryReport("OK", "org.xyz", "ui", "2.0.0", null, null, false),
+                new DeliveryReport(null, "org.ext", "lib", "9.0.0", null, null, true),
+                new DeliveryReport(null, "org.ext", "lib", "8.0.0", null, null, true),
+                new DeliveryReport("OK", null, "core", "1.0.0", null, null, false));
+        RepoUrlPatternMatcher matcher = new RepoUrlPatternMatcher(patterns, deliveryReports);
+
+        List<String> locations = List.of("https://repo/org/abc/core/release/1.0.0/", "https://repo/org/abc/co/",
+                "https://repo/org-ext/lib/9.0.0/", "https://repo/org/ext/lib/", "https://repo/none/", "");
+        for (String location : locations) {
+            assertEquals(scan(location, patterns, deliveryReports), matcher.findMatches(location), location);
+        }
+        assertEquals(2, matcher.findMatches("https://repo/org/abc/core/").size());
+    }
+
+    private static List<DeliveryReport> scan(String location, List<Pattern> patterns, List<DeliveryReport> deliveryReports) {
+        List<DeliveryReport> matches = new ArrayList<>();
+        for (DeliveryReport deliveryReport : deliveryReports) {
+            if (deliveryReport.getGroup() == null || deliveryReport.getArtifact() == null) {
+                continue;
+            }
+            for (Pattern pattern : patterns) {
+                String group = deliveryReport.getGroup().replace(pattern.getCurrentGroupUrlPattern(), pattern.getFutureGroupUrlPattern()).trim();
+                String artifact = deliveryReport.getArtifact().replace(pattern.getCurrentArtifactUrlPattern(), pattern.getFutureArtifactUrlPattern()).trim();
+                if (location.contains(group) && location.contains(artifact)
+                        && ((!pattern.isUseDeliveryReport() && deliveryReport.isExternalEntry() && deliveryReport.getVersion().equals(pattern.getVersion()))
+                        || (pattern.isUseDeliveryReport() && !deliveryReport.isExternalEntry()))) {
+                    matches.add(deliveryReport);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static Pattern pattern(String currentGroup, String futureGroup, boolean useDeliveryReport, String version) {
+        Pattern pattern = new Pattern();
+        pattern.setCurrentGroupUrlPattern(currentGroup);
+        pattern.setFutureGroupUrlPattern(futureGroup);
+        pattern.setCurrentArtifactUrlPattern(".");
+        pattern.setFutureArtifactUrlPattern(".");
+        pattern.setUseDeliveryReport(useDeliveryReport);
+        pattern.setVersion(version);
+        return pattern;
+    }
+}
@@ -0,0 +1,102 @@
+package in.adarshr.targetcloner.helper;
+
+import com.sun.net.httpserver.HttpServer;
+import in.adarshr.targetcloner.source.LocalFileInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositoryCacheTest {
+    private static final String ETAG = "\"v1\"";
+    private static final byte[] BODY = "content".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path cacheDirectory;
+
+    private HttpServer server;
+    private final List<Integer> responseCodes = new ArrayList<>();
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/repo/content.jar", exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                responseCodes.add(304);
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                responseCodes.add(200);
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                exchange.sendResponseHeaders(200, BODY.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(BODY);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testFetchRevalidatesCachedFile() throws IOException {
+        RepositoryCache repositoryCache = new RepositoryCache(cacheDirectory, new HttpTransport(null));
+        RepositoryCache.CachedFile first = repositoryCache.fetch(baseUrl + "/repo/content.jar");
+        RepositoryCache.CachedFile second = new RepositoryCache(cacheDirectory, new HttpTransport(null)).fetch(baseUrl.toUpperCase() + "/repo/content.jar");
+
+        assertEquals(List.of(200, 304), responseCodes);
+        assertEquals(first.path(), second.path());
+        assertArrayEquals(BODY, Files.readAllBytes(second.path()));
+        // The digest is taken while downloading and kept for the revalidated file
+        assertEquals(new LocalFileInputStream(InputStream.nullInputStream(), second.path(), null).getDigest(), second.digest());
+        assertEquals(first.digest(), second.digest());
+    }
+
+    @Test
+    void testFetchIgnoresMetaOfOtherData() throws IOException {
+        RepositoryCache repositoryCache = new RepositoryCache(cacheDirectory, new HttpTransport(null));
+        Path cached = repositoryCache.fetch(baseUrl + "/repo/content.jar").path();
+        // New data next to the old meta file, as left by a crash between the two
+        Files.writeString(cached, "other content");
+
+        RepositoryCache.CachedFile refetched = repositoryCache.fetch(baseUrl + "/repo/content.jar");
+
+        assertEquals(List.of(200, 200), responseCodes);
+        assertArrayEquals(BODY, Files.readAllBytes(refetched.path()));
+        assertEquals(new LocalFileInputStream(InputStream.nullInputStream(), refetched.path(), null).getDigest(), refetched.digest());
+    }
+
+    @Test
+    void testFetchUsesCachedFileWhenServerIsDown() throws IOException {
+        RepositoryCache repositoryCache = new RepositoryCache(cacheDirectory, new HttpTransport(null));
+        Path cached = repositoryCache.fetch(baseUrl + "/repo/content.jar").path();
+        server.stop(0);
+
+        assertEquals(cached, repositoryCache.fetch(baseUrl + "/repo/content.jar").path());
+        assertThrows(IOException.class, () -> repositoryCache.fetch(baseUrl + "/other/content.jar"));
+    }
+
+    @Test
+    void testNormalizeUrl() {
+        assertEquals("https://download.eclipse.org/releases/4.30",
+                RepositoryCache.normalizeUrl("HTTPS://Download.Eclipse.org:443/releases//4.30/"));
+    }
+}
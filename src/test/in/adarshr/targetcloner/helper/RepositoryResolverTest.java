@@ -0,0 +1,175 @@
+package in.adarshr.targetcloner.helper;
+
+import com.sun.net.httpserver.HttpServer;
+import in.adarshr.targetcloner.bo.RepoFetchResult;
+import in.adarshr.targetcloner.bo.RepoUnit;
+import in.adarshr.targetcloner.constants.FetchStatus;
+import in.adarshr.targetcloner.source.RepositorySourceFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositoryResolverTest {
+
+    private static final String ALL_FORMATS = "metadata.repository.factory.order=content.xml.xz,content.xml,!\n";
+
+    @TempDir
+    Path directory;
+    private DownloadScheduler scheduler;
+    private RepositoryResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new DownloadScheduler(4, 2);
+        resolver = new RepositoryResolver(new RepositorySourceFactory(Collections.emptyList(), null, null, null), scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void testXzIsPreferredOverJar() throws IOException {
+        Path repository = Files.createDirectories(directory.resolve("repository"));
+        Files.writeString(repository.resolve("p2.index"), ALL_FORMATS);
+        writeXz(repository.resolve("content.xml.xz"), content("org.example.xz"));
+        writeJar(repository.resolve("content.jar"), "content.xml", content("org.example.jar"));
+
+        assertEquals(List.of("org.example.xz"), resolveIds(repository, null));
+    }
+
+    @Test
+    void testMissingFormatFallsThroughToNextOne() throws IOException {
+        Path repository = Files.createDirectories(directory.resolve("repository"));
+        Files.writeString(repository.resolve("p2.index"), ALL_FORMATS);
+        Files.writeString(repository.resolve("content.xml"), content("org.example.a", "org.example.b"));
+
+        assertEquals(List.of("org.example.b"), resolveIds(repository, Set.of("org.example.b")));
+
+        // The index stops before the composite format, so a composite file is not read
+        Files.delete(repository.resolve("content.xml"));
+        Files.writeString(repository.resolve("compositeContent.xml"), composite("."));
+        assertEquals(FetchStatus.FAILED, resolver.resolve(repository.toUri().toString(), null).getStatus());
+    }
+
+    @Test
+    void testNestedCompositesAreExpandedInChildOrder() throws IOException {
+        Path root = Files.createDirectories(directory.resolve("root"));
+        Files.writeString(root.resolve("compositeContent.xml"), composite("nested", "../first"));
+        Path nested = Files.createDirectories(root.resolve("nested"));
+        writeJar(nested.resolve("compositeContent.jar"), "compositeContent.xml", composite("second", "third"));
+        writeJar(Files.createDirectories(nested.resolve("second")).resolve("content.jar"), "content.xml", content("org.example.second"));
+        Files.writeString(Files.createDirectories(nested.resolve("third")).resolve("content.xml"), content("org.example.third"));
+        Files.writeString(Files.createDirectories(directory.resolve("first")).resolve("content.xml"), content("org.example.first"));
+
+        assertEquals(List.of("org.example.second", "org.example.third", "org.example.first"), resolveIds(root, null));
+    }
+
+    @Test
+    void testSelfReferencingCompositeTerminates() throws IOException {
+        Path first = Files.createDirectories(directory.resolve("first"));
+        Path second = Files.createDirectories(directory.resolve("second"));
+        Files.writeString(first.resolve("compositeContent.xml"), composite(".", "../second"));
+        Files.writeString(second.resolve("compositeContent.xml"), composite("../first", "leaf"));
+        Files.writeString(Files.createDirectories(second.resolve("leaf")).resolve("content.xml"), content("org.example.leaf"));
+
+        assertEquals(List.of("org.example.leaf"), resolveIds(first, null));
+    }
+
+    @Test
+    void testForbiddenProbesFallThroughToContentJar() throws IOException {
+        // Servers backed by an object store answer a missing file with 403 instead of 404
+        byte[] contentJar = jar("content.xml", content("org.example.jar"));
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/repo/", exchange -> {
+            if ("/repo/content.jar".equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(200, contentJar.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(contentJar);
+                }
+            } else {
+                exchange.sendResponseHeaders(403, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            RepositoryResolver httpResolver = new RepositoryResolver(
+                    new RepositorySourceFactory(Collections.emptyList(), null, new HttpTransport(null), scheduler), scheduler);
+            String location = "http://localhost:" + server.getAddress().getPort() + "/repo/";
+
+            RepoFetchResult result = httpResolver.resolve(location, null);
+
+            assertEquals(FetchStatus.SUCCESS, result.getStatus(), result.getError());
+            assertEquals(List.of("org.example.jar"), result.getRepoUnits().stream().map(RepoUnit::getId).toList());
+            // Without a readable metadata file the repository still fails, with the reason of the first failure
+            RepoFetchResult missing = httpResolver.resolve("http://localhost:" + server.getAddress().getPort() + "/repo/missing/", null);
+            assertEquals(FetchStatus.FAILED, missing.getStatus());
+            assertTrue(missing.getError().contains("403"), missing.getError());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private List<String> resolveIds(Path repository, Set<String> wantedUnitIds) {
+        RepoFetchResult result = resolver.resolve(repository.toUri().toString(), wantedUnitIds);
+        assertEquals(FetchStatus.SUCCESS, result.getStatus(), result.getError());
+        return result.getRepoUnits().stream().map(RepoUnit::getId).toList();
+    }
+
+    private static String content(String... unitIds) {
+        StringBuilder xml = new StringBuilder("<repository><units size='" + unitIds.length + "'>");
+        // The units are read back last to first, so write them in reverse to keep the expected order readable
+        for (int i = unitIds.length - 1; i >= 0; i--) {
+            xml.append("<unit id='").append(unitIds[i]).append("' version='1.0.0'/>");
+        }
+        return xml.append("</units></repository>").toString();
+    }
+
+    private static String composite(String... childLocations) {
+        StringBuilder xml = new StringBuilder("<repository><children size='" + childLocations.length + "'>");
+        for (String childLocation : childLocations) {
+            xml.append("<child location='").append(childLocation).append("'/>");
+        }
+        return xml.append("</children></repository>").toString();
+    }
+
+    private static void writeXz(Path file, String xml) throws IOException {
+        try (OutputStream out = new XZOutputStream(Files.newOutputStream(file), new LZMA2Options())) {
+            out.write(xml.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void writeJar(Path file, String entryName, String xml) throws IOException {
+        Files.write(file, jar(entryName, xml));
+    }
+
+    private static byte[] jar(String entryName, String xml) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry(entryName));
+            zip.write(xml.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,90 @@
+package in.adarshr.targetcloner.helper;
+
+import in.adarshr.targetcloner.bo.RepoUnit;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XMLHelperTest {
+
+    @Test
+    void testParseXmlReadsUnitsUnderUnits() throws IOException {
+        String xml = """
+                <?xml version='1.0' encoding='UTF-8'?>
+                <repository name='test'>
+                  <references><unit id='not.a.unit'/></references>
+                  <units size='2'>
+                    <unit id='org.example.a' version='1.0.0' singleton='false' generation='2'>
+                      <provides><unit id='nested'/></provides>
+                    </unit>
+                    <unit id='org.example.b' version='2.0.0'/>
+                  </units>
+                </repository>
+                """;
+
+        List<RepoUnit> repoUnits = XMLHelper.parseXml(toStream(xml));
+
+        assertEquals(2, repoUnits.size());
+        // Last unit first, same order as before
+        assertEquals("org.example.b", repoUnits.get(0).getId());
+        assertEquals("", repoUnits.get(0).getSingleton());
+        assertEquals("org.example.a", repoUnits.get(1).getId());
+        assertEquals("1.0.0", repoUnits.get(1).getVersion());
+        assertEquals("false", repoUnits.get(1).getSingleton());
+        assertEquals("2", repoUnits.get(1).getGeneration());
+    }
+
+    @Test
+    void testParseXmlCreatesOnlyWantedUnits() throws IOException {
+        String xml = """
+                <repository><units size='3'>
+                  <unit id='org.example.a' version='1.0.0'/>
+                  <unit id='org.example.b' version='1.0.0'/>
+                  <unit id='org.example.c' version='1.0.0'/>
+                </units></repository>
+                """;
+
+        List<RepoUnit> repoUnits = XMLHelper.parseXml(toStream(xml), Set.of("org.example.b")::contains);
+
+        assertEquals(1, repoUnits.size());
+        assertEquals("org.example.b", repoUnits.get(0).getId());
+    }
+
+    @Test
+    void testParseXmlDoesNotResolveExternalEntities() {
+        String xml = """
+                <?xml version='1.0'?>
+                <!DOCTYPE repository [<!ENTITY xxe SYSTEM "file:///etc/passwd">]>
+                <repository><units><unit id='&xxe;' version='1.0.0'/></units></repository>
+                """;
+
+        // The entity is not resolved, so the document is rejected instead of reading the file
+        IOException exception = assertThrows(IOException.class, () -> XMLHelper.parseXml(toStream(xml)));
+        assertFalse(exception.getMessage().contains("root:"));
+    }
+
+    @Test
+    void testParseXmlFailsOnTruncatedDocument() {
+        String xml = """
+                <repository><units size='3'>
+                  <unit id='org.example.a' version='1.0.0'/>
+                  <unit id='org.example.b' version='1.0.0'/>
+                  <unit id='org.exa
+                """;
+
+        assertThrows(IOException.class, () -> XMLHelper.parseXml(toStream(xml)));
+        assertThrows(IOException.class, () -> XMLHelper.parseXml(toStream(xml), in -> in, id -> true, null));
+        assertThrows(IOException.class, () -> XMLHelper.parseCompositeChildren(toStream("<repository><children><child location='a'/>")));
+    }
+
+    private static InputStream toStream(String xml) {
+        return new ByteArrayInputStream(xml.strip().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,71 @@
+package in.adarshr.targetcloner.source;
+
+import in.adarshr.targetcloner.data.Mirror;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositorySourceFactoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testDirectorySourceReadsJarEntry() throws IOException {
+        writeZip(directory.resolve("content.jar"), "content.xml");
+        RepositorySourceFactory factory = new RepositorySourceFactory(Collections.emptyList(), null, null, null);
+
+        try (RepositorySource source = factory.create(directory.toUri().toString())) {
+            assertInstanceOf(DirectoryRepositorySource.class, source);
+            assertEquals("content.xml", source.readJarEntry("content.jar", "content.xml", RepositorySourceFactoryTest::readString));
+            assertNull(source.read("p2.index", RepositorySourceFactoryTest::readString));
+        }
+    }
+
+    @Test
+    void testMirrorRewritesToArchive() throws IOException {
+        Path archive = directory.resolve("repository.zip");
+        writeZip(archive, "releases/content.xml");
+        Mirror mirror = new Mirror();
+        mirror.setFrom("https://download.eclipse.org/");
+        mirror.setTo("jar:" + archive.toUri() + "!/");
+        RepositorySourceFactory factory = new RepositorySourceFactory(List.of(mirror), null, null, null);
+
+        try (RepositorySource source = factory.create("https://download.eclipse.org/releases")) {
+            assertInstanceOf(ArchiveRepositorySource.class, source);
+            assertEquals("releases/content.xml", source.read("content.xml", RepositorySourceFactoryTest::readString));
+            assertTrue(source.resolve("child").endsWith("!/releases/child/"));
+        }
+    }
+
+    @Test
+    void testMissingLocalRepository() {
+        RepositorySourceFactory factory = new RepositorySourceFactory(Collections.emptyList(), null, null, null);
+        assertThrows(FileNotFoundException.class, () -> factory.create(directory.resolve("missing").toString()));
+    }
+
+    private static void writeZip(Path zipFile, String entryName) throws IOException {
+        try (OutputStream out = Files.newOutputStream(zipFile); ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry(entryName));
+            zip.write(entryName.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,54 @@
+package in.adarshr.targetcloner.template;
+
+import in.adarshr.targetcloner.constants.Placeholder;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaceholderTemplateTest {
+
+    private static final Set<Placeholder> URL_PLACEHOLDERS = EnumSet.of(Placeholder.GROUP, Placeholder.ARTIFACT, Placeholder.VERSION);
+    private static final Function<Placeholder, String> VALUES = placeholder -> switch (placeholder) {
+        case GROUP -> "tools/orbit";
+        case ARTIFACT -> "aggregation";
+        case VERSION -> "4.30.0";
+        default -> null;
+    };
+
+    @Test
+    void testRender() {
+        PlaceholderTemplate template = PlaceholderTemplate.compile("https://host/$GROUP$/$ARTIFACT$/release/$VERSION$/", URL_PLACEHOLDERS);
+
+        assertEquals("https://host/tools/orbit/aggregation/release/4.30.0/", template.render(VALUES));
+        assertEquals("https://host/tools/orbit/aggregation/release/", template.renderUntil(Placeholder.VERSION, VALUES));
+        assertTrue(template.contains(Placeholder.VERSION));
+    }
+
+    @Test
+    void testRenderWithoutPlaceholder() {
+        PlaceholderTemplate template = PlaceholderTemplate.compile("https://host/$GROUP$/latest/", URL_PLACEHOLDERS);
+
+        assertEquals("https://host/tools/orbit/latest/", template.renderUntil(Placeholder.VERSION, VALUES));
+        assertFalse(template.contains(Placeholder.VERSION));
+        assertEquals("https://host/$GROUP$/latest/", template.render(placeholder -> null));
+    }
+
+    @Test
+    void testLiteralDelimiters() {
+        PlaceholderTemplate template = PlaceholderTemplate.compile("a$b$$VERSION$$", URL_PLACEHOLDERS);
+
+        assertEquals("a$b$4.30.0$", template.render(VALUES));
+    }
+
+    @Test
+    void testUnknownPlaceholder() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> PlaceholderTemplate.compile("$COMPONENT$_$RELEASE$", EnumSet.of(Placeholder.COMPONENT)));
+        assertTrue(e.getMessage().contains("$RELEASE$"));
+        assertThrows(IllegalArgumentException.class, () -> PlaceholderTemplate.compile("$COMPONENT$", URL_PLACEHOLDERS));
+    }
+}
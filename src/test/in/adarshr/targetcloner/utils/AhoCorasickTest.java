@@ -0,0 +1,27 @@
+package in.adarshr.targetcloner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AhoCorasickTest {
+
+    @Test
+    void testFindAll() {
+        List<String> keywords = List.of("he", "she", "his", "hers", "", "xyz");
+        AhoCorasick ahoCorasick = new AhoCorasick(keywords);
+
+        for (String text : List.of("ushers", "this", "xy", "")) {
+            BitSet expected = new BitSet();
+            for (int i = 0; i < keywords.size(); i++) {
+                if (text.contains(keywords.get(i))) {
+                    expected.set(i);
+                }
+            }
+            assertEquals(expected, ahoCorasick.findAll(text), text);
+        }
+    }
+}
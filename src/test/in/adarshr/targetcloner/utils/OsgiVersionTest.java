@@ -0,0 +1,47 @@
+package in.adarshr.targetcloner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OsgiVersionTest {
+
+    @Test
+    void testVersionsAreOrderedTheOsgiWay() {
+        List<String> sorted = Stream.of("1.10.0", "1.2.0.v2024", "1.2", "not-a-version", "1.2.0.v2023", "0.0.0")
+                .sorted(OsgiVersion.COMPARATOR).toList();
+
+        assertEquals(List.of("not-a-version", "0.0.0", "1.2", "1.2.0.v2023", "1.2.0.v2024", "1.10.0"), sorted);
+        assertEquals(OsgiVersion.parse("1.2"), OsgiVersion.parse("1.2.0"));
+    }
+
+    @Test
+    void testComparatorAgreesWithParsedVersions() {
+        List<String> versions = Arrays.asList(null, "", " 1.2 ", "1", "1.0", "1.0.0", "01.0.0", "1.0.0.", "1.0.0.a.b",
+                "1.0.0.a", "1.0.0.b", "1.0.0.a-1", "1.", "1..0", "+1.0", "-0.1", "65535.65535.2147483647", "65536.0.0",
+                "1.2147483648", "9999999999", "1.2.3.v2024 ", "x");
+        for (String left : versions) {
+            for (String right : versions) {
+                assertEquals(Integer.signum(OsgiVersion.parse(left).compareTo(OsgiVersion.parse(right))),
+                        Integer.signum(OsgiVersion.compare(left, right)), left + " <> " + right);
+            }
+        }
+    }
+
+    @Test
+    void testVersionRanges() {
+        OsgiVersionRange range = OsgiVersionRange.parse("[1.2,2.0)");
+        assertTrue(range.includes(OsgiVersion.parse("1.2.0")));
+        assertTrue(range.includes(OsgiVersion.parse("1.99.0.z")));
+        assertFalse(range.includes(OsgiVersion.parse("2.0.0")));
+        assertFalse(OsgiVersionRange.parse("(1.2,2.0]").includes(OsgiVersion.parse("1.2")));
+        assertTrue(OsgiVersionRange.parse("(1.2,2.0]").includes(OsgiVersion.parse("2.0")));
+        assertTrue(OsgiVersionRange.parse("1.2").includes(OsgiVersion.parse("300.0.0")));
+        assertThrows(IllegalArgumentException.class, () -> OsgiVersionRange.parse("[1.2,2.0"));
+        assertThrows(IllegalArgumentException.class, () -> OsgiVersionRange.parse("[a,2.0]"));
+    }
+}
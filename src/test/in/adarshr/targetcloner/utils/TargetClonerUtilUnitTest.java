@@ -1,13 +1,19 @@
 package in.adarshr.targetcloner.utils;
 
+import in.adarshr.targetcloner.bo.TargetLoadResult;
 import in.adarshr.targetcloner.data.TargetDetails;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.when;
@@ -49,4 +55,20 @@ class TargetClonerUtilUnitTest {
         TargetDetails targetDetails = TargetClonerUtil.getTargetDetails("validInput.xml", "invalidSchema.xsd");
         assertNull(targetDetails);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLoadTargetFilesReportsFailures(@TempDir Path directory) throws IOException {
+        Files.writeString(directory.resolve("ABC_1.0.0.target"), "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<tar:target xmlns:tar=\"https://in.adarshr.targetcloner.data/TargetCloner.xsd\" name=\"ABC_1.0.0\"/>");
+        Files.writeString(directory.resolve("broken.target"), "<target");
+        Files.writeString(directory.resolve("readme.txt"), "not a target");
+
+        TargetLoadResult result = TargetClonerUtil.loadTargetFiles(directory.toString());
+
+        assertEquals(1, result.getTargets().size());
+        assertEquals("ABC_1.0.0", result.getTargets().get(0).getName());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(directory.resolve("broken.target"), result.getFailures().get(0).getFile());
+        assertNotNull(result.getFailures().get(0).getError());
+    }
+}
@@ -0,0 +1,46 @@
+package in.adarshr.targetcloner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitIdPatternTest {
+
+    @Test
+    void testMatches() {
+        UnitIdPattern pattern = UnitIdPattern.compile("org.eclipse.*.ui*");
+        assertEquals("org.eclipse.", pattern.getPrefix());
+        assertTrue(pattern.matches("org.eclipse.jdt.ui"));
+        assertTrue(pattern.matches("org.eclipse.jdt.ui.ui.editors"));
+        assertTrue(pattern.matches("org.eclipse..ui"));
+        assertFalse(pattern.matches("org.eclipse.jdt.core"));
+        assertFalse(pattern.matches("org.eclipse"));
+        assertFalse(pattern.matches(null));
+
+        UnitIdPattern single = UnitIdPattern.compile("org.example.v?");
+        assertTrue(single.matches("org.example.v1"));
+        assertFalse(single.matches("org.example.v"));
+        assertFalse(single.matches("org.example.v10"));
+
+        assertEquals("", UnitIdPattern.compile("*").getPrefix());
+        assertTrue(UnitIdPattern.compile("*").matches(""));
+        assertTrue(UnitIdPattern.compile("*a*b").matches("xaxxab"));
+        assertFalse(UnitIdPattern.compile("*a*b").matches("xaxxa"));
+    }
+
+    @Test
+    void testFilterOfExactIdsAndPatterns() {
+        assertTrue(UnitIdPattern.isPattern("org.*"));
+        assertFalse(UnitIdPattern.isPattern("org.example"));
+        assertFalse(UnitIdPattern.isPattern(null));
+
+        Predicate<String> filter = UnitIdPattern.filterOf(Set.of("org.example", "org.eclipse.orbit.maven.*"));
+        assertTrue(filter.test("org.example"));
+        assertTrue(filter.test("org.eclipse.orbit.maven.commons-io"));
+        assertFalse(filter.test("org.example.other"));
+        assertFalse(filter.test("org.eclipse.orbit"));
+    }
+}
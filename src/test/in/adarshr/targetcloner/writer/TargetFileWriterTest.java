@@ -0,0 +1,48 @@
+package in.adarshr.targetcloner.writer;
+
+import in.adarshr.targetcloner.bo.WriteResult;
+import in.adarshr.targetcloner.constants.WriteStatus;
+import in.adarshr.targetcloner.data.Target;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TargetFileWriterTest {
+
+    @Test
+    void testWriteAllSkipsUnchangedFiles(@TempDir Path directory) throws IOException {
+        Path outputDirectory = directory.resolve("output");
+        TargetFileWriter targetFileWriter = new TargetFileWriter(outputDirectory);
+
+        Map<String, WriteResult> results = targetFileWriter.writeAll(Map.of("ABC_1.0.0.target", target("1"), "XYZ_1.0.0.target", target("2")));
+        assertEquals(WriteStatus.WRITTEN, results.get("ABC_1.0.0.target").getStatus());
+        assertEquals(Files.size(outputDirectory.resolve("ABC_1.0.0.target")), results.get("ABC_1.0.0.target").getBytesWritten());
+        assertTrue(Files.readString(outputDirectory.resolve("XYZ_1.0.0.target")).contains("sequenceNumber=\"2\""));
+
+        FileTime modified = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(outputDirectory.resolve("ABC_1.0.0.target"), modified);
+        results = targetFileWriter.writeAll(Map.of("ABC_1.0.0.target", target("1"), "XYZ_1.0.0.target", target("3")));
+        assertEquals(WriteStatus.UNCHANGED, results.get("ABC_1.0.0.target").getStatus());
+        assertEquals(0, results.get("ABC_1.0.0.target").getBytesWritten());
+        assertEquals(modified, Files.getLastModifiedTime(outputDirectory.resolve("ABC_1.0.0.target")));
+        assertEquals(WriteStatus.WRITTEN, results.get("XYZ_1.0.0.target").getStatus());
+        assertTrue(Files.readString(outputDirectory.resolve("XYZ_1.0.0.target")).contains("sequenceNumber=\"3\""));
+        try (var files = Files.list(outputDirectory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    private static Target target(String sequenceNumber) {
+        Target target = new Target();
+        target.setName("ABC_1.0.0");
+        target.setSequenceNumber(sequenceNumber);
+        return target;
+    }
+}
@@ -0,0 +1,48 @@
+package in.adarshr.targetcloner.writer;
+
+import in.adarshr.targetcloner.data.*;
+import in.adarshr.targetcloner.helper.JaxbHelper;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TargetXmlStreamWriterTest {
+
+    @Test
+    void testOutputMatchesFormattedJaxbOutput() throws Exception {
+        Target target = new Target();
+        target.setName("ABC_4.30.0 & <\"quoted\"> 'x'");
+        target.setSequenceNumber("221");
+        TargetJRE targetJRE = new TargetJRE();
+        targetJRE.setPath("jre");
+        targetJRE.setValue("");
+        target.setTargetJRE(targetJRE);
+        LauncherArgs launcherArgs = new LauncherArgs();
+        launcherArgs.setVmArgs("-Dx=\"a&b\" <c>");
+        target.setLauncherArgs(launcherArgs);
+        IncludeBundles includeBundles = new IncludeBundles();
+        Plugin plugin = new Plugin();
+        plugin.setId("org.example");
+        includeBundles.getPlugin().add(plugin);
+        target.setIncludeBundles(includeBundles);
+
+        StringWriter writer = new StringWriter();
+        JaxbHelper.marshalWithInstruction(target, Target.class, writer);
+
+        assertEquals(formattedJaxbOutput(target), writer.toString());
+    }
+
+    /**
+     * The output of the formatted JAXB marshaller with the instruction added and the namespace removed, the
+     * way target files were written before
+     */
+    private static String formattedJaxbOutput(Target target) throws Exception {
+        String xml = JaxbHelper.marshal(target, Target.class);
+        int insertIndex = xml.indexOf("?>") + 2;
+        return (xml.substring(0, insertIndex) + "\n<?pde version=\"3.8\"?>" + xml.substring(insertIndex))
+                .replace("ns2:", "")
+                .replace("xmlns:ns2=\"https://in.adarshr.targetcloner.data/TargetCloner.xsd\"", "");
+    }
+}